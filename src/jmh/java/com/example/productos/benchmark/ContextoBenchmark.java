@@ -0,0 +1,50 @@
+package com.example.productos.benchmark;
+
+import com.example.productos.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Arranca la aplicación sobre una base H2 propia de cada trial, sin servidor web o con Tomcat en un
+// puerto libre para medir también el viaje HTTP
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {}
+
+    static ConfigurableApplicationContext iniciar(boolean cache, String... propiedades) {
+        return arrancar(WebApplicationType.NONE, cache, propiedades);
+    }
+
+    static ConfigurableApplicationContext iniciarServidor(boolean cache, String... propiedades) {
+        List<String> conPuerto = new ArrayList<>(List.of(propiedades));
+        conPuerto.add("server.port=0");
+        return arrancar(WebApplicationType.SERVLET, cache, conPuerto.toArray(String[]::new));
+    }
+
+    static int puerto(ConfigurableApplicationContext contexto) {
+        return ((WebServerApplicationContext) contexto).getWebServer().getPort();
+    }
+
+    private static ConfigurableApplicationContext arrancar(WebApplicationType tipo, boolean cache, String... propiedades) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=LEGACY",
+                "--logging.level.root=warn",
+                "--spring.main.banner-mode=off"));
+        if (!cache) {
+            argumentos.add("--spring.cache.type=none");
+            argumentos.add("--spring.jpa.properties.hibernate.cache.use_second_level_cache=false");
+            argumentos.add("--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        }
+        for (String propiedad : propiedades) {
+            argumentos.add("--" + propiedad);
+        }
+        return new SpringApplicationBuilder(Application.class)
+                .web(tipo)
+                .run(argumentos.toArray(String[]::new));
+    }
+}
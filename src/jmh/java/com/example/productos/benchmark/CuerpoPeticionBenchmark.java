@@ -0,0 +1,56 @@
+package com.example.productos.benchmark;
+
+import com.example.productos.controller.ProductoRequest;
+import com.example.productos.domain.Producto;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Lectura del cuerpo de POST/PUT /productos: el Map<String, Object> con conversión manual que usaba
+// ProductoController frente al record ProductoRequest. Con -prof gc se ve la asignación por petición
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CuerpoPeticionBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAPA = new TypeReference<>() {};
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectReader lectorRequest = mapper.readerFor(ProductoRequest.class);
+    private final byte[] cuerpo = "{\"nombre\":\"Teclado mecánico\",\"precio\":129.99,\"stock\":25}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public Producto leerComoMapa() throws IOException {
+        Map<String, Object> body = mapper.readValue(cuerpo, MAPA);
+        String nombre = (String) body.get("nombre");
+        BigDecimal precio = new BigDecimal(body.get("precio").toString());
+        Integer stock = (Integer) body.get("stock");
+        return new Producto(nombre, precio, stock);
+    }
+
+    @Benchmark
+    public Producto leerComoRecord() throws IOException {
+        ProductoRequest body = lectorRequest.readValue(cuerpo);
+        return new Producto(body.nombre(), body.precio(), body.stock());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.productos.benchmark;
+
+import com.example.productos.domain.Producto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Exportación de 10.000 productos como la escribe GET /productos en streaming, por formato y con o
+// sin gzip (nivel por defecto, como Tomcat). El tiempo es CPU de serialización y compresión; los bytes
+// que salen por la red de cada combinación se imprimen al preparar el estado
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatoBenchmark {
+
+    @Param({"ndjson", "smile", "cbor"})
+    public String formato;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"10000"})
+    public int tamano;
+
+    private ObjectWriter writer;
+    private List<Producto> productos;
+    private ByteArrayOutputStream salida;
+
+    @Setup
+    public void preparar() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper mapper = switch (formato) {
+            case "ndjson" -> json;
+            case "smile" -> json.copyWith(new SmileFactory());
+            case "cbor" -> json.copyWith(new CBORFactory());
+            default -> throw new IllegalArgumentException("Formato desconocido: " + formato);
+        };
+        writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        productos = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            Producto p = new Producto("Producto " + i, new BigDecimal("10.00").add(BigDecimal.valueOf(i % 1000)), i % 50);
+            p.setId((long) i + 1);
+            p.setVersion((long) i % 7);
+            productos.add(p);
+        }
+        salida = new ByteArrayOutputStream(tamano * 100);
+        System.out.printf("%nbytes por producto (%s, gzip=%s): %.1f%n", formato, gzip, (double) exportar() / tamano);
+    }
+
+    @Benchmark
+    public int exportar() throws IOException {
+        salida.reset();
+        OutputStream destino = gzip ? new GZIPOutputStream(salida, 8192) : salida;
+        try (JsonGenerator generator = writer.createGenerator(destino)) {
+            boolean porLinea = formato.equals("ndjson");
+            if (porLinea) {
+                generator.setRootValueSeparator(null);
+            }
+            for (Producto p : productos) {
+                writer.writeValue(generator, p);
+                if (porLinea) {
+                    generator.writeRaw('\n');
+                }
+            }
+        }
+        return salida.size();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.productos.benchmark;
+
+import com.example.productos.service.IndiceNombres;
+import com.example.productos.service.Sugerencia;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Índice de sugerencias sobre nombres sintéticos ("Lámpara Solar Acme 123"). SampleTime reporta los
+// percentiles de "sugerir"; la memoria retenida por el índice se imprime al final del setup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IndiceNombresBenchmark {
+
+    private static final String[] TIPOS = {"Lámpara", "Silla", "Mesa", "Router", "Cable", "Teclado", "Monitor",
+            "Zapatilla", "Mochila", "Cafetera", "Taladro", "Auricular", "Cargador", "Estante", "Ventilador"};
+    private static final String[] ATRIBUTOS = {"LED", "Solar", "Inalámbrico", "Plegable", "Ergonómica", "Compacto",
+            "Industrial", "Portátil", "Eléctrica", "Térmico", "Reforzado", "Mini", "Pro", "Ultra", "Náutico"};
+    private static final String[] MARCAS = {"Acme", "Nordika", "Pampa", "Andes", "Litoral", "Quasar", "Tecnix",
+            "Orbital", "Ceibo", "Patagonia"};
+
+    @Param({"100000", "1000000"})
+    public int filas;
+
+    private ConfigurableApplicationContext contexto;
+    private IndiceNombres indice;
+    private String[] consultas;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(false);
+        indice = contexto.getBean(IndiceNombres.class);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        List<Object[]> lote = new ArrayList<>(10_000);
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Object[]{nombre(i), new BigDecimal("10.00"), 1});
+            if (lote.size() == 10_000 || i == filas - 1) {
+                jdbc.batchUpdate("INSERT INTO producto (id, nombre, precio, stock, version) "
+                        + "VALUES (NEXT VALUE FOR producto_seq, ?, ?, ?, 0)", lote);
+                lote.clear();
+            }
+        }
+
+        long antes = heapUsado();
+        long inicio = System.nanoTime();
+        int indexados = indice.reconstruir();
+        long milis = (System.nanoTime() - inicio) / 1_000_000;
+        long despues = heapUsado();
+        System.out.printf("%nÍndice: %d productos en %d ms, %.1f MB medidos (%.1f MB estimados)%n",
+                indexados, milis, (despues - antes) / 1e6, indice.bytesEstimados() / 1e6);
+
+        // Prefijos de 1 a 6 letras de palabras reales: desde muy selectivos hasta "m" (miles de coincidencias)
+        consultas = new String[4096];
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        for (int i = 0; i < consultas.length; i++) {
+            String palabra = nombre(azar.nextInt(filas)).split(" ")[azar.nextInt(3)];
+            consultas[i] = palabra.substring(0, Math.min(palabra.length(), 1 + azar.nextInt(6)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Sugerencia> sugerir() {
+        return indice.sugerir(consultas[ThreadLocalRandom.current().nextInt(consultas.length)], 10);
+    }
+
+    private static String nombre(int i) {
+        return TIPOS[i % TIPOS.length] + " " + ATRIBUTOS[(i / TIPOS.length) % ATRIBUTOS.length] + " "
+                + MARCAS[(i / 7) % MARCAS.length] + " " + i;
+    }
+
+    private static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.productos.benchmark;
+
+import com.example.productos.domain.Producto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialización con Jackson de las páginas de Producto que devuelve GET /productos
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tamano;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Producto> productos;
+
+    @Setup
+    public void preparar() {
+        productos = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            Producto p = new Producto("Producto " + i, new BigDecimal("123.45"), i);
+            p.setId((long) i + 1);
+            p.setVersion(0L);
+            productos.add(p);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarLista() throws IOException {
+        return mapper.writeValueAsBytes(productos);
+    }
+}
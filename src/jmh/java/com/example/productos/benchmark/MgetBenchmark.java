@@ -0,0 +1,107 @@
+package com.example.productos.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// "cantidad" productos por HTTP (Tomcat en un puerto local, conexión keep-alive): un GET /productos/{id}
+// por producto, como hacen hoy carrito y checkout, contra un solo GET /productos?ids=... Sin cachés cada
+// GET individual es una consulta y el multi-get una sola con IN; con cachés se mide sobre todo el viaje HTTP
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MgetBenchmark {
+
+    private static final int FILAS = 10_000;
+
+    @Param({"10", "100"})
+    public int cantidad;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private String base;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciarServidor(cache, "productos.salida.despachador.habilitado=false");
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        List<Object[]> lote = new ArrayList<>(FILAS);
+        for (int i = 0; i < FILAS; i++) {
+            lote.add(new Object[]{"Producto " + i, new BigDecimal("10.00").add(BigDecimal.valueOf(i % 1000)), i % 50});
+        }
+        jdbc.batchUpdate("INSERT INTO producto (id, nombre, precio, stock, version) "
+                + "VALUES (NEXT VALUE FOR producto_seq, ?, ?, ?, 0)", lote);
+        ids = jdbc.queryForList("SELECT id FROM producto", Long.class).stream().mapToLong(Long::longValue).toArray();
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        base = "http://localhost:" + ContextoBenchmark.puerto(contexto) + "/productos";
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public long individuales() throws IOException, InterruptedException {
+        long bytes = 0;
+        for (long id : elegir()) {
+            bytes += pedir(base + "/" + id);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long mget() throws IOException, InterruptedException {
+        return pedir(base + "?ids=" + LongStream.of(elegir()).mapToObj(Long::toString).collect(Collectors.joining(",")));
+    }
+
+    private long[] elegir() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        long[] elegidos = new long[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            elegidos[i] = ids[azar.nextInt(ids.length)];
+        }
+        return elegidos;
+    }
+
+    private long pedir(String url) throws IOException, InterruptedException {
+        HttpResponse<byte[]> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json").build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException(url + " respondió " + respuesta.statusCode());
+        }
+        return respuesta.body().length;
+    }
+}
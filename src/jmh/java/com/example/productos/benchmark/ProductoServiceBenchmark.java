@@ -0,0 +1,90 @@
+package com.example.productos.benchmark;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.service.ProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ProductoService contra H2 con distintos tamaños de tabla, con y sin cachés (Caffeine y segundo nivel).
+// "crear" agrega filas durante la medición: la tabla crece unas decenas de miles de filas por trial
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductoServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int filas;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService service;
+    private long[] ids;
+    private final AtomicLong creados = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(cache);
+        service = contexto.getBean(ProductoService.class);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        List<Object[]> lote = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Object[]{"Producto " + i, new BigDecimal("10.00").add(BigDecimal.valueOf(i % 1000)), i % 50});
+        }
+        jdbc.batchUpdate("INSERT INTO producto (id, nombre, precio, stock, version) "
+                + "VALUES (NEXT VALUE FOR producto_seq, ?, ?, ?, 0)", lote);
+        ids = jdbc.queryForList("SELECT id FROM producto", Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Producto crear() {
+        return service.crear("Nuevo " + creados.incrementAndGet(), new BigDecimal("99.90"), 5);
+    }
+
+    @Benchmark
+    public Producto obtenerPorId() {
+        return service.obtenerPorId(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<Producto> listarPagina() {
+        return service.listarPagina(ids[ThreadLocalRandom.current().nextInt(ids.length)], 100);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Producto> listar() {
+        return service.listar();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.productos.benchmark;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.service.ProductoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Recorre la tabla completa en páginas como GET /productos, con entidades o con ?fields=id,precio,
+// y serializa cada página a JSON. Devuelve los bytes generados; con -prof gc se ve además la
+// memoria asignada por operación (gc.alloc.rate.norm)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class ProyeccionBenchmark {
+
+    @Param({"100000"})
+    public int filas;
+
+    @Param({"1000"})
+    public int pagina;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService service;
+    private ObjectMapper mapper;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws IOException {
+        contexto = ContextoBenchmark.iniciar(false);
+        service = contexto.getBean(ProductoService.class);
+        mapper = contexto.getBean(ObjectMapper.class);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        List<Object[]> lote = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Object[]{"Producto " + i, new BigDecimal("10.00").add(BigDecimal.valueOf(i % 1000)), i % 50});
+        }
+        jdbc.batchUpdate("INSERT INTO producto (id, nombre, precio, stock, version) "
+                + "VALUES (NEXT VALUE FOR producto_seq, ?, ?, ?, 0)", lote);
+        System.out.printf("%nbytes JSON por fila: entidades=%.1f, campos=%.1f%n",
+                (double) entidades() / filas, (double) campos() / filas);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public long entidades() throws IOException {
+        long bytes = 0;
+        long despuesDe = 0;
+        List<Producto> productos;
+        do {
+            productos = service.listarPagina(despuesDe, pagina);
+            bytes += mapper.writeValueAsBytes(productos).length;
+            if (!productos.isEmpty()) {
+                despuesDe = productos.get(productos.size() - 1).getId();
+            }
+        } while (productos.size() == pagina);
+        return bytes;
+    }
+
+    @Benchmark
+    public long campos() throws IOException {
+        long bytes = 0;
+        long despuesDe = 0;
+        List<Map<String, Object>> filasLeidas;
+        do {
+            filasLeidas = service.listarCampos(List.of("id", "precio"), despuesDe, pagina);
+            bytes += mapper.writeValueAsBytes(filasLeidas).length;
+            if (!filasLeidas.isEmpty()) {
+                despuesDe = (Long) filasLeidas.get(filasLeidas.size() - 1).get("id");
+            }
+        } while (filasLeidas.size() == pagina);
+        return bytes;
+    }
+}
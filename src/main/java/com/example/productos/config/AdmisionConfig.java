@@ -0,0 +1,28 @@
+package com.example.productos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+
+// Control de admisión de la API (productos.admision.habilitada=true); apagado por defecto
+@Configuration
+@Profile("!reactivo")
+@ConditionalOnProperty(name = "productos.admision.habilitada", havingValue = "true")
+@EnableConfigurationProperties(AdmisionProperties.class)
+public class AdmisionConfig {
+
+    // Después del filtro de observación de http.server.requests (HIGHEST_PRECEDENCE + 1), así los
+    // rechazos también aparecen en esa métrica, y antes de todos los demás
+    @Bean
+    FilterRegistrationBean<ControlAdmision> controlAdmision(AdmisionProperties propiedades, MeterRegistry registry) {
+        FilterRegistrationBean<ControlAdmision> registro = new FilterRegistrationBean<>(new ControlAdmision(propiedades, registry));
+        registro.addUrlPatterns("/productos", "/productos/*");
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registro;
+    }
+}
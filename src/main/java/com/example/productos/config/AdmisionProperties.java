@@ -0,0 +1,47 @@
+package com.example.productos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+// productos.admision.*: control de admisión de /productos (ControlAdmision). Lecturas (GET, HEAD y POST _mget) y
+// escrituras tienen cada una su tasa por cliente y su límite de concurrencia adaptativo.
+// cabeceraCliente solo se cree si la petición llega de una de las IP de proxiesConfiables
+@ConfigurationProperties("productos.admision")
+public record AdmisionProperties(@DefaultValue("false") boolean habilitada,
+                                 @DefaultValue("X-Client-Id") String cabeceraCliente,
+                                 @DefaultValue List<String> proxiesConfiables,
+                                 @DefaultValue("100000") int maxClientes,
+                                 Presupuesto lecturas,
+                                 Presupuesto escrituras) {
+
+    public AdmisionProperties {
+        proxiesConfiables = proxiesConfiables == null ? List.of() : List.copyOf(proxiesConfiables);
+        if (habilitada && (lecturas == null || escrituras == null)) {
+            throw new IllegalArgumentException("productos.admision necesita los presupuestos de lecturas y escrituras");
+        }
+        if (maxClientes < 1) {
+            throw new IllegalArgumentException("productos.admision.max-clientes debe ser mayor que cero");
+        }
+    }
+
+    // porSegundo y rafaga: el cubo de tokens de cada cliente. El límite de concurrencia parte de
+    // limiteInicial y se mueve entre limiteMinimo y limiteMaximo según latenciaObjetivo
+    public record Presupuesto(double porSegundo, int rafaga, int limiteInicial, int limiteMinimo, int limiteMaximo,
+                              Duration latenciaObjetivo) {
+
+        public Presupuesto {
+            if (porSegundo <= 0 || rafaga < 1) {
+                throw new IllegalArgumentException("por-segundo y rafaga deben ser mayores que cero");
+            }
+            if (limiteMinimo < 1 || limiteMinimo > limiteInicial || limiteInicial > limiteMaximo) {
+                throw new IllegalArgumentException("Se necesita 1 <= limite-minimo <= limite-inicial <= limite-maximo");
+            }
+            if (latenciaObjetivo == null || latenciaObjetivo.isNegative() || latenciaObjetivo.isZero()) {
+                throw new IllegalArgumentException("latencia-objetivo debe ser mayor que cero");
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.productos.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// El interceptor de caché se ordena por fuera del transaccional: las escrituras en la
+// caché ocurren después del commit, así un rollback nunca deja valores sin confirmar
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    public static final String PRODUCTOS = "productos";
+    public static final String PRODUCTOS_POR_NOMBRE = "productosPorNombre";
+}
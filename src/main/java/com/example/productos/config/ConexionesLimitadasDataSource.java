@@ -0,0 +1,93 @@
+package com.example.productos.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Con hilos virtuales no hay un pool de hilos que limite la concurrencia: miles de peticiones
+// pueden pedir conexión a la vez. Un semáforo justo (FIFO) con tantos permisos como conexiones
+// tiene el pool ordena la espera y corta con error cuando se supera el tiempo máximo, en lugar
+// de que los hilos compitan por el pool y algunos esperen hasta agotar el connection-timeout
+public class ConexionesLimitadasDataSource extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+    private final long esperaMaximaNanos;
+
+    public ConexionesLimitadasDataSource(DataSource destino, int conexiones, Duration esperaMaxima) {
+        super(destino);
+        this.permisos = new Semaphore(conexiones, true);
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirir();
+        try {
+            return liberarAlCerrar(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        adquirir();
+        try {
+            return liberarAlCerrar(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    public int permisosDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    // Aproximado (Semaphore.getQueueLength): hilos esperando un permiso
+    public int enEspera() {
+        return permisos.getQueueLength();
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("No hay conexiones disponibles: se agotó la espera de "
+                        + TimeUnit.NANOSECONDS.toMillis(esperaMaximaNanos) + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", e);
+        }
+    }
+
+    private Connection liberarAlCerrar(Connection conexion) {
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, args) -> {
+                    if (metodo.getName().equals("close") && cerrada.compareAndSet(false, true)) {
+                        try {
+                            conexion.close();
+                        } finally {
+                            permisos.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return metodo.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.productos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Cuenta las sentencias JDBC (un batch cuenta como una: es un solo viaje a la base) de cada petición
+// y de cada transacción, y registra las consultas que superan productos.sql.umbral-lenta.
+// La petición en curso se guarda en un ThreadLocal: el interceptor la abre y la cierra en el mismo hilo
+public class ContadorSentencias implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ContadorSentencias.class);
+
+    private final SentenciasProperties propiedades;
+    private final ObjectProvider<MeterRegistry> registry;
+    private final ThreadLocal<Peticion> peticion = new ThreadLocal<>();
+    private final ThreadLocal<Integer> ultimaPeticion = new ThreadLocal<>();
+
+    public ContadorSentencias(SentenciasProperties propiedades, ObjectProvider<MeterRegistry> registry) {
+        this.propiedades = propiedades;
+        this.registry = registry;
+    }
+
+    public void iniciarPeticion(String operacion) {
+        peticion.set(new Peticion(operacion, propiedades.presupuesto(operacion)));
+    }
+
+    public void terminarPeticion() {
+        Peticion actual = peticion.get();
+        if (actual == null) {
+            return;
+        }
+        peticion.remove();
+        ultimaPeticion.set(actual.sentencias);
+        registry.ifAvailable(r -> r.summary("productos.sql.sentencias", "operacion", actual.operacion)
+                .record(actual.sentencias));
+        if (actual.excedida()) {
+            log.warn("{} ejecutó {} sentencias SQL; su presupuesto es {}", actual.operacion, actual.sentencias,
+                    actual.presupuesto);
+            registry.ifAvailable(r -> r.counter("productos.sql.presupuesto.excedido", "operacion", actual.operacion)
+                    .increment());
+        }
+    }
+
+    // Sentencias de la última petición terminada en este hilo (con MockMvc, el hilo de la prueba)
+    public int sentenciasUltimaPeticion() {
+        Integer sentencias = ultimaPeticion.get();
+        return sentencias == null ? 0 : sentencias;
+    }
+
+    public Integer presupuesto(String operacion) {
+        return propiedades.presupuesto(operacion);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        contarEnTransaccion();
+        Peticion actual = peticion.get();
+        if (actual == null) {
+            return;
+        }
+        actual.sentencias++;
+        if (propiedades.estricto() && actual.excedida()) {
+            throw new PresupuestoSentenciasExcedidoException("La sentencia " + actual.sentencias + " de "
+                    + actual.operacion + " excede su presupuesto de " + actual.presupuesto + ": " + sql(queryInfoList));
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (execInfo.getElapsedTime() >= propiedades.umbralLenta().toMillis()) {
+            log.warn("Consulta lenta ({} ms): {}", execInfo.getElapsedTime(), sql(queryInfoList));
+            registry.ifAvailable(r -> r.counter("productos.sql.lentas").increment());
+        }
+    }
+
+    // El contador de la transacción se liga al hilo como recurso y se publica al terminar (commit o rollback)
+    private void contarEnTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Transaccion transaccion = (Transaccion) TransactionSynchronizationManager.getResource(this);
+        if (transaccion == null) {
+            transaccion = new Transaccion();
+            TransactionSynchronizationManager.bindResource(this, transaccion);
+            TransactionSynchronizationManager.registerSynchronization(transaccion);
+        }
+        transaccion.sentencias++;
+    }
+
+    private static String sql(List<QueryInfo> consultas) {
+        return consultas.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+    }
+
+    private static final class Peticion {
+        final String operacion;
+        final Integer presupuesto;
+        int sentencias;
+
+        Peticion(String operacion, Integer presupuesto) {
+            this.operacion = operacion;
+            this.presupuesto = presupuesto;
+        }
+
+        boolean excedida() {
+            return presupuesto != null && sentencias > presupuesto;
+        }
+    }
+
+    private final class Transaccion implements TransactionSynchronization {
+        int sentencias;
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ContadorSentencias.this);
+            String resultado = status == STATUS_COMMITTED ? "commit" : "rollback";
+            log.debug("Transacción terminada ({}) con {} sentencias SQL", resultado, sentencias);
+            registry.ifAvailable(r -> r.summary("productos.sql.sentencias.transaccion", "resultado", resultado)
+                    .record(sentencias));
+        }
+    }
+}
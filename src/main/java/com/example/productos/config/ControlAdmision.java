@@ -0,0 +1,151 @@
+package com.example.productos.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Control de admisión delante de /productos: primero la tasa del cliente (cubo de tokens por cliente
+// y tipo de petición, 429) y después el límite de concurrencia adaptativo del tipo (503). Las dos
+// respuestas llevan Retry-After y se dan antes de tocar el pool de conexiones o un hilo del
+// controlador. El cliente es el usuario autenticado o, si no hay, la IP. La cabecera
+// productos.admision.cabecera-cliente la puede inventar cualquiera (y llenar el mapa de cubos con
+// claves nuevas), así que solo vale si la petición viene de productos.admision.proxies-confiables
+class ControlAdmision extends OncePerRequestFilter {
+
+    enum Tipo { LECTURA, ESCRITURA }
+
+    private record Clave(String cliente, Tipo tipo) {}
+
+    private final AdmisionProperties propiedades;
+    private final Set<String> proxiesConfiables;
+    private final Map<Tipo, LimiteAdaptativo> limites;
+    private final Cache<Clave, CuboTokens> cubos;
+    private final MeterRegistry registry;
+
+    ControlAdmision(AdmisionProperties propiedades, MeterRegistry registry) {
+        this.propiedades = propiedades;
+        this.proxiesConfiables = Set.copyOf(propiedades.proxiesConfiables());
+        this.registry = registry;
+        this.limites = Map.of(Tipo.LECTURA, limite(propiedades.lecturas()), Tipo.ESCRITURA, limite(propiedades.escrituras()));
+        // Un cubo que no se usa en un minuto ya se llenó de nuevo: descartarlo no cambia nada
+        this.cubos = Caffeine.newBuilder()
+                .maximumSize(propiedades.maxClientes())
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+        limites.forEach((tipo, limite) -> {
+            String etiqueta = etiqueta(tipo);
+            Gauge.builder("productos.admision.limite", limite, LimiteAdaptativo::limite)
+                    .description("Límite de concurrencia actual").tag("tipo", etiqueta).register(registry);
+            Gauge.builder("productos.admision.en.curso", limite, LimiteAdaptativo::enCurso)
+                    .description("Peticiones admitidas en curso").tag("tipo", etiqueta).register(registry);
+        });
+    }
+
+    // El flujo de cambios (SSE) queda afuera: mantiene la petición abierta y ya tiene su propio tope
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/productos/changes");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Tipo tipo = tipo(request);
+        AdmisionProperties.Presupuesto presupuesto = tipo == Tipo.LECTURA ? propiedades.lecturas() : propiedades.escrituras();
+        long ahora = System.nanoTime();
+        long espera = cubos.get(new Clave(cliente(request), tipo),
+                c -> new CuboTokens(presupuesto.porSegundo(), presupuesto.rafaga(), ahora)).tomar(ahora);
+        if (espera > 0) {
+            rechazar(response, HttpStatus.TOO_MANY_REQUESTS, segundos(espera), "tasa", tipo);
+            return;
+        }
+        LimiteAdaptativo limite = limites.get(tipo);
+        if (!limite.adquirir()) {
+            rechazar(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "concurrencia", tipo);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (esExportacion(response)) {
+                limite.liberarSinMuestra();
+            } else {
+                limite.liberar(System.nanoTime() - ahora, response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value());
+            }
+        }
+    }
+
+    // Cada origen lleva un prefijo para que un valor de la cabecera no coincida con una IP o un usuario
+    private String cliente(HttpServletRequest request) {
+        Principal usuario = request.getUserPrincipal();
+        if (usuario != null) {
+            return "usuario:" + usuario.getName();
+        }
+        String ip = request.getRemoteAddr();
+        if (proxiesConfiables.contains(ip)) {
+            String cliente = request.getHeader(propiedades.cabeceraCliente());
+            if (cliente != null && !cliente.isBlank()) {
+                return "cabecera:" + cliente;
+            }
+        }
+        return "ip:" + ip;
+    }
+
+    private void rechazar(HttpServletResponse response, HttpStatus estado, long reintentar, String motivo, Tipo tipo)
+            throws IOException {
+        registry.counter("productos.admision.rechazadas", "motivo", motivo, "tipo", etiqueta(tipo)).increment();
+        response.setStatus(estado.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(reintentar));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(estado == HttpStatus.TOO_MANY_REQUESTS
+                ? "Demasiadas peticiones, reintente más tarde"
+                : "Servicio saturado, reintente más tarde");
+    }
+
+    // POST /productos/_mget es un GET con los ids en el cuerpo: no escribe nada
+    private static Tipo tipo(HttpServletRequest request) {
+        String metodo = request.getMethod();
+        if (metodo.equals("GET") || metodo.equals("HEAD")) {
+            return Tipo.LECTURA;
+        }
+        return metodo.equals("POST") && request.getRequestURI().equals(request.getContextPath() + "/productos/_mget")
+                ? Tipo.LECTURA
+                : Tipo.ESCRITURA;
+    }
+
+    // Su duración depende del tamaño de la tabla, no de la carga
+    private static boolean esExportacion(HttpServletResponse response) {
+        String tipo = response.getContentType();
+        return tipo != null && (tipo.startsWith(MediaType.APPLICATION_NDJSON_VALUE) || tipo.startsWith("application/cbor-seq"));
+    }
+
+    private static long segundos(long nanos) {
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static String etiqueta(Tipo tipo) {
+        return tipo == Tipo.LECTURA ? "lectura" : "escritura";
+    }
+
+    private static LimiteAdaptativo limite(AdmisionProperties.Presupuesto presupuesto) {
+        return new LimiteAdaptativo(presupuesto.limiteInicial(), presupuesto.limiteMinimo(), presupuesto.limiteMaximo(),
+                presupuesto.latenciaObjetivo().toNanos());
+    }
+}
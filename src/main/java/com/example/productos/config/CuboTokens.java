@@ -0,0 +1,29 @@
+package com.example.productos.config;
+
+// Cubo de tokens de un cliente: se llena a "porSegundo" hasta "rafaga" y cada petición toma uno.
+// Los tiempos vienen de afuera (System.nanoTime en ControlAdmision) para poder probarlo sin esperar
+final class CuboTokens {
+
+    private final double porNano;
+    private final double capacidad;
+    private double tokens;
+    private long ultimo;
+
+    CuboTokens(double porSegundo, int rafaga, long ahora) {
+        this.porNano = porSegundo / 1e9;
+        this.capacidad = rafaga;
+        this.tokens = rafaga;
+        this.ultimo = ahora;
+    }
+
+    // 0 si tomó un token; si no, cuántos nanosegundos faltan para el próximo
+    synchronized long tomar(long ahora) {
+        tokens = Math.min(capacidad, tokens + (ahora - ultimo) * porNano);
+        ultimo = ahora;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / porNano);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.productos.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Modo de ejecución con hilos virtuales (spring.threads.virtual.enabled=true, perfil "virtual").
+// Tomcat atiende cada petición en un hilo virtual y el acceso al pool queda acotado por
+// ConexionesLimitadasDataSource con tantos permisos como conexiones tiene Hikari
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class HilosVirtualesConfig {
+
+    @Bean
+    static BeanPostProcessor limitadorDeConexiones(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Hikari puede venir envuelto (p. ej. por el proxy de SentenciasConfig): el limitador va por fuera
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConexionesLimitadasDataSource)) {
+                    HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class,
+                            HikariDataSource.class);
+                    if (hikari != null) {
+                        Duration espera = environment.getProperty("productos.virtual.espera-conexion", Duration.class,
+                                Duration.ofMillis(hikari.getConnectionTimeout()));
+                        return new ConexionesLimitadasDataSource(dataSource, hikari.getMaximumPoolSize(), espera);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Con el semáforo por delante, las esperas no llegan a Hikari (hikaricp.connections.pending queda
+    // en cero): la saturación se ve en estos dos gauges
+    @Bean
+    MeterBinder metricasConexionesLimitadas(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConexionesLimitadasDataSource limitado) {
+                Gauge.builder("productos.conexiones.disponibles", limitado, ConexionesLimitadasDataSource::permisosDisponibles)
+                        .description("Permisos libres del limitador de conexiones")
+                        .register(registry);
+                Gauge.builder("productos.conexiones.en.espera", limitado, ConexionesLimitadasDataSource::enEspera)
+                        .description("Hilos esperando un permiso del limitador de conexiones")
+                        .register(registry);
+            }
+        };
+    }
+}
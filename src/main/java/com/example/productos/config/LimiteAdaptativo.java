@@ -0,0 +1,64 @@
+package com.example.productos.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Límite de peticiones en curso que se ajusta con AIMD según la latencia observada: cada respuesta
+// dentro de la latencia objetivo, con el límite en uso (al menos la mitad ocupado), lo sube en uno;
+// una respuesta lenta o un 503 de más abajo (pool de conexiones saturado) lo multiplica por 0,9.
+// Lo que no entra se rechaza en el momento, sin cola: la espera ya la hacen el pool y Tomcat
+final class LimiteAdaptativo {
+
+    private static final double RETROCESO = 0.9;
+
+    private final int minimo;
+    private final int maximo;
+    private final long objetivoNanos;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private volatile double limite;
+
+    LimiteAdaptativo(int inicial, int minimo, int maximo, long objetivoNanos) {
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.objetivoNanos = objetivoNanos;
+        this.limite = inicial;
+    }
+
+    boolean adquirir() {
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= (int) limite) {
+                return false;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Libera el lugar y ajusta el límite con la muestra
+    void liberar(long nanos, boolean saturado) {
+        int enVuelo = enCurso.getAndDecrement();
+        ajustar(nanos, saturado, enVuelo);
+    }
+
+    // Para respuestas cuya duración no dice nada de la carga (exportaciones en streaming)
+    void liberarSinMuestra() {
+        enCurso.decrementAndGet();
+    }
+
+    int limite() {
+        return (int) limite;
+    }
+
+    int enCurso() {
+        return enCurso.get();
+    }
+
+    private synchronized void ajustar(long nanos, boolean saturado, int enVuelo) {
+        if (saturado || nanos > objetivoNanos) {
+            limite = Math.max(minimo, limite * RETROCESO);
+        } else if (enVuelo * 2 >= limite) {
+            limite = Math.min(maximo, limite + 1);
+        }
+    }
+}
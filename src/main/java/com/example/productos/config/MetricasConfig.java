@@ -0,0 +1,17 @@
+package com.example.productos.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Habilita @Timed en los servicios. Los beans anotados ya tienen proxy (transacciones y caché),
+// así que el aspecto agrega un interceptor más, no una indirección nueva
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.productos.config;
+
+// Solo en modo estricto: la sentencia que excede el presupuesto no llega a ejecutarse
+public class PresupuestoSentenciasExcedidoException extends RuntimeException {
+    public PresupuestoSentenciasExcedidoException(String message) {
+        super(message);
+    }
+}
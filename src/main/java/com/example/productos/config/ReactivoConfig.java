@@ -0,0 +1,18 @@
+package com.example.productos.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Con starter-web en el classpath Spring Boot elegiría Tomcat también para WebFlux;
+// se declara Netty para atender con unos pocos hilos de event loop
+@Configuration
+@Profile("reactivo")
+public class ReactivoConfig {
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.productos.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Map;
+
+// Perfil "performance": aplica productos.rendimiento.* al pool Hikari de spring.datasource y a
+// Hibernate, por encima de spring.datasource.hikari.* y spring.jpa.properties.*. Con réplica
+// (ReplicaConfig) los pools no son beans y se configuran con sus propias propiedades hikari
+@Configuration
+@Profile("performance")
+@EnableConfigurationProperties(RendimientoProperties.class)
+public class RendimientoConfig {
+
+    // Antes de la inicialización: después de que Spring Boot enlazó spring.datasource.hikari.* y
+    // antes de que el proxy de SentenciasConfig lo envuelva. El pool arranca con la primera conexión
+    @Bean
+    static BeanPostProcessor ajustesDelPool(ObjectProvider<RendimientoProperties> propiedades) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    RendimientoProperties ajustes = propiedades.getObject();
+                    RendimientoProperties.Pool pool = ajustes.pool();
+                    hikari.setMaximumPoolSize(pool.tamanoEfectivo());
+                    hikari.setMinimumIdle(pool.minimoOciosoEfectivo());
+                    hikari.setConnectionTimeout(pool.esperaConexion().toMillis());
+                    hikari.setLeakDetectionThreshold(pool.deteccionFugas().toMillis());
+                    cacheDeSentencias(hikari.getJdbcUrl(), ajustes.jdbc().cacheSentencias())
+                            .forEach(hikari::addDataSourceProperty);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer ajustesDeHibernate(RendimientoProperties propiedades) {
+        RendimientoProperties.Jdbc jdbc = propiedades.jdbc();
+        return hibernate -> {
+            hibernate.put(AvailableSettings.STATEMENT_BATCH_SIZE, jdbc.tamanoLote());
+            hibernate.put(AvailableSettings.STATEMENT_FETCH_SIZE, jdbc.tamanoFetch());
+            hibernate.put(AvailableSettings.ORDER_INSERTS, true);
+            hibernate.put(AvailableSettings.ORDER_UPDATES, true);
+            // Los UPDATE con @Version también van en batch (el driver informa las filas de cada uno)
+            hibernate.put(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        };
+    }
+
+    // Cada driver tiene su propia caché de sentencias preparadas; JDBC no define una propiedad común
+    static Map<String, Object> cacheDeSentencias(String url, int tamano) {
+        if (tamano == 0 || url == null) {
+            return Map.of();
+        }
+        if (url.startsWith("jdbc:h2:")) {
+            return Map.of("QUERY_CACHE_SIZE", tamano);
+        }
+        if (url.startsWith("jdbc:postgresql:")) {
+            return Map.of("preparedStatementCacheQueries", tamano);
+        }
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            return Map.of("cachePrepStmts", true, "prepStmtCacheSize", tamano, "useServerPrepStmts", true);
+        }
+        return Map.of();
+    }
+}
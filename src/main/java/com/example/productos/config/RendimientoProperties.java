@@ -0,0 +1,56 @@
+package com.example.productos.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+// productos.rendimiento.*: ajustes del pool y de Hibernate que aplica el perfil "performance"
+// (RendimientoConfig). Se validan al arrancar: un valor fuera de rango impide levantar la aplicación
+@ConfigurationProperties("productos.rendimiento")
+@Validated
+public record RendimientoProperties(@NotNull @Valid Pool pool, @NotNull @Valid Jdbc jdbc) {
+
+    // Sin tamano: 2 conexiones por núcleo más una (la regla de HikariCP para una base en disco local).
+    // Sin minimoOcioso el pool es fijo, como recomienda HikariCP. deteccionFugas en cero la apaga
+    public record Pool(@Min(1) @Max(500) Integer tamano,
+                       @Min(0) Integer minimoOcioso,
+                       @NotNull Duration esperaConexion,
+                       @NotNull Duration deteccionFugas) {
+
+        public int tamanoEfectivo() {
+            return tamano != null ? tamano : Runtime.getRuntime().availableProcessors() * 2 + 1;
+        }
+
+        public int minimoOciosoEfectivo() {
+            return minimoOcioso != null ? minimoOcioso : tamanoEfectivo();
+        }
+
+        @AssertTrue(message = "minimo-ocioso no puede superar el tamaño del pool")
+        public boolean isMinimoOciosoValido() {
+            return minimoOciosoEfectivo() <= tamanoEfectivo();
+        }
+
+        @AssertTrue(message = "espera-conexion debe ser de al menos 250 ms")
+        public boolean isEsperaConexionValida() {
+            return esperaConexion == null || esperaConexion.toMillis() >= 250;
+        }
+
+        @AssertTrue(message = "deteccion-fugas debe ser 0 o de al menos 2 s")
+        public boolean isDeteccionFugasValida() {
+            return deteccionFugas == null || deteccionFugas.isZero() || deteccionFugas.toMillis() >= 2000;
+        }
+    }
+
+    // tamanoLote: sentencias por batch JDBC. tamanoFetch: filas por viaje al leer. cacheSentencias:
+    // sentencias preparadas que el driver guarda por conexión (0 deja la del driver)
+    public record Jdbc(@Min(1) @Max(1000) int tamanoLote,
+                       @Min(1) @Max(10000) int tamanoFetch,
+                       @Min(0) @Max(10000) int cacheSentencias) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.productos.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Con productos.replica.url las transacciones de solo lectura (@Transactional(readOnly = true)) usan
+// un pool hacia la réplica y el resto el pool de spring.datasource.*. El proxy lazy es necesario:
+// la transacción pide la conexión antes de marcarse como de solo lectura, y así la conexión real
+// recién se elige con la primera sentencia, cuando el enrutador ya puede ver esa marca
+@Configuration
+@Profile("!reactivo")
+@ConditionalOnProperty("productos.replica.url")
+public class ReplicaConfig {
+
+    static final String PRIMARIA = "primaria";
+    static final String REPLICA = "replica";
+
+    // Los pools no son beans DataSource: así el proxy de SentenciasConfig (y el limitador del perfil
+    // virtual) envuelven una sola vez al DataSource enrutado. Se cierran junto con este bean
+    @Bean(destroyMethod = "close")
+    Pools poolsDeConexiones(DataSourceProperties propiedades, Environment environment,
+                            ObjectProvider<MeterRegistry> registry) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primaria = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primaria));
+        primaria.setPoolName(PRIMARIA);
+
+        HikariDataSource replica = new HikariDataSource();
+        replica.setDriverClassName(propiedades.determineDriverClassName());
+        replica.setJdbcUrl(environment.getRequiredProperty("productos.replica.url"));
+        replica.setUsername(environment.getProperty("productos.replica.username", propiedades.determineUsername()));
+        replica.setPassword(environment.getProperty("productos.replica.password", propiedades.determinePassword()));
+        binder.bind("productos.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName(REPLICA);
+        replica.setReadOnly(true);
+
+        // Métricas hikaricp_connections_* con pool="primaria" o pool="replica"
+        registry.ifAvailable(r -> {
+            primaria.setMetricRegistry(r);
+            replica.setMetricRegistry(r);
+        });
+        return new Pools(primaria, replica);
+    }
+
+    @Bean
+    DataSource dataSource(Pools pools) {
+        EnrutadorLecturas enrutador = new EnrutadorLecturas();
+        enrutador.setTargetDataSources(Map.of(PRIMARIA, pools.primaria(), REPLICA, pools.replica()));
+        enrutador.setDefaultTargetDataSource(pools.primaria());
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+
+    record Pools(HikariDataSource primaria, HikariDataSource replica) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            replica.close();
+            primaria.close();
+        }
+    }
+
+    static class EnrutadorLecturas extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARIA;
+        }
+    }
+}
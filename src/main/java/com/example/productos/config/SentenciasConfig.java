@@ -0,0 +1,92 @@
+package com.example.productos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+// Envuelve el DataSource con datasource-proxy para contar sentencias (ContadorSentencias) y abre
+// el conteo por petición en un interceptor, donde ya se conoce el método del controlador
+@Configuration
+@Profile("!reactivo")
+@EnableConfigurationProperties(SentenciasProperties.class)
+public class SentenciasConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<ContadorSentencias> contador;
+
+    public SentenciasConfig(ObjectProvider<ContadorSentencias> contador) {
+        this.contador = contador;
+    }
+
+    @Bean
+    ContadorSentencias contadorSentencias(SentenciasProperties propiedades,
+                                          ObjectProvider<MeterRegistry> registry) {
+        return new ContadorSentencias(propiedades, registry);
+    }
+
+    // Ordenado (el tipo declarado debe exponer Ordered): corre antes que el limitador de HilosVirtualesConfig,
+    // que queda por fuera del proxy
+    @Bean
+    static ProxySentencias proxySentencias(ObjectProvider<ContadorSentencias> contador) {
+        return new ProxySentencias(contador);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (handler instanceof HandlerMethod metodo) {
+                    contador.getObject().iniciarPeticion(metodo.getMethod().getName());
+                }
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                contador.getObject().terminarPeticion();
+            }
+
+            // Respuestas asíncronas (SSE): afterCompletion no corre en este hilo, que vuelve al pool
+            @Override
+            public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                                       Object handler) {
+                contador.getObject().terminarPeticion();
+            }
+        });
+    }
+
+    record ProxySentencias(ObjectProvider<ContadorSentencias> contador) implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(contador.getObject())
+                        .build();
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
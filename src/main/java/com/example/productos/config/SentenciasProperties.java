@@ -0,0 +1,24 @@
+package com.example.productos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+// productos.sql.*: umbral de consulta lenta, modo estricto y presupuesto de sentencias por operación
+// (nombre del método del controlador, p. ej. productos.sql.presupuestos.obtener=1)
+@ConfigurationProperties("productos.sql")
+public record SentenciasProperties(@DefaultValue("500ms") Duration umbralLenta,
+                                   @DefaultValue("false") boolean estricto,
+                                   Map<String, Integer> presupuestos) {
+
+    public SentenciasProperties {
+        presupuestos = presupuestos == null ? Map.of() : Map.copyOf(presupuestos);
+    }
+
+    // null si la operación no tiene presupuesto
+    public Integer presupuesto(String operacion) {
+        return presupuestos.get(operacion);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.productos.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Cursor opaco de /productos/search: los valores de orden de la última fila (más el id) en JSON y Base64 URL.
+// Al decodificar cada clave recupera el tipo de su columna para que la comparación keyset sea exacta, y las
+// claves tienen que ser exactamente las del orden pedido más el id (un cursor editado a mano o reusado con
+// otro sort= haría fallar a Spring Data con un IllegalStateException)
+final class CursorBusqueda {
+
+    private CursorBusqueda() {}
+
+    static String codificar(KeysetScrollPosition posicion, ObjectMapper mapper) {
+        ObjectNode claves = mapper.createObjectNode();
+        posicion.getKeys().forEach((propiedad, valor) -> claves.set(propiedad, mapper.valueToTree(valor)));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mapper.writeValueAsBytes(claves));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static KeysetScrollPosition decodificar(String cursor, Sort orden, ObjectMapper mapper) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            JsonNode claves = mapper.readTree(Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII)));
+            Map<String, Object> valores = new LinkedHashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = claves.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> clave = it.next();
+                valores.put(clave.getKey(), Objects.requireNonNull(valor(clave.getKey(), clave.getValue())));
+            }
+            Set<String> esperadas = new HashSet<>();
+            orden.forEach(o -> esperadas.add(o.getProperty()));
+            esperadas.add("id");
+            if (!valores.keySet().equals(esperadas)) {
+                throw new IllegalArgumentException("Las claves del cursor no corresponden al orden");
+            }
+            return ScrollPosition.forward(valores);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    private static Object valor(String propiedad, JsonNode nodo) {
+        return switch (propiedad) {
+            case "id" -> nodo.isIntegralNumber() ? nodo.longValue() : null;
+            case "nombre" -> nodo.textValue();
+            case "precio" -> nodo.isNumber() || nodo.isTextual() ? new BigDecimal(nodo.asText()) : null;
+            case "stock" -> nodo.isInt() ? nodo.intValue() : null;
+            default -> throw new IllegalArgumentException(propiedad);
+        };
+    }
+}
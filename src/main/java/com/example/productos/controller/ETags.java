@@ -0,0 +1,77 @@
+package com.example.productos.controller;
+
+import com.example.productos.domain.Producto;
+
+import java.util.List;
+
+// ETags derivados de la columna @Version de Producto: fuertes para un producto (sirven para If-Match)
+// y débiles para las páginas del listado. Un producto con cambios de la escritura diferida todavía
+// sin escribir lleva además la revisión de esos cambios ("versión.revisión")
+final class ETags {
+
+    // Valor imposible de versión: un If-Match que no se puede interpretar nunca coincide
+    private static final long VERSION_INVALIDA = -1L;
+
+    private ETags() {}
+
+    static String de(Producto producto) {
+        if (producto.getRevisionPendiente() != null) {
+            return "\"" + producto.getVersion() + "." + producto.getRevisionPendiente() + "\"";
+        }
+        return "\"" + producto.getVersion() + "\"";
+    }
+
+    // Para una página del listado: cambia si cambia cualquier id o versión de la página. Es débil porque
+    // la misma página sale en varias representaciones (JSON, Smile, CBOR, con o sin gzip) y porque Tomcat
+    // no comprime respuestas con un ETag fuerte; para If-None-Match alcanza con la comparación débil
+    static String de(List<Producto> productos) {
+        long hash = 17;
+        for (Producto p : productos) {
+            hash = 31 * hash + p.getId();
+            hash = 31 * hash + p.getVersion();
+        }
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+
+    // Versión esperada según If-Match: null si no hay condición ("*" o encabezado ausente).
+    // Los ETags débiles o con varios valores no admiten comparación fuerte y fallan siempre. De uno con
+    // cambios diferidos sin escribir ("versión.revisión") es la versión de la fila; el servicio compara
+    // además la revisión (revisionEsperada) con la de lo pendiente
+    static Long versionEsperada(String ifMatch) {
+        long[] partes = partes(ifMatch);
+        return partes == null ? null : partes[0];
+    }
+
+    // La revisión de lo pendiente según If-Match, o null si el ETag no la lleva
+    static Long revisionEsperada(String ifMatch) {
+        long[] partes = partes(ifMatch);
+        return partes == null || partes.length < 2 ? null : partes[1];
+    }
+
+    // Para la variante reactiva, sin escritura diferida: un ETag con revisión no describe ningún
+    // estado suyo y nunca coincide
+    static Long versionEsperadaSinPendientes(String ifMatch) {
+        return revisionEsperada(ifMatch) != null ? Long.valueOf(VERSION_INVALIDA) : versionEsperada(ifMatch);
+    }
+
+    // {versión} o {versión, revisión}; null sin condición
+    private static long[] partes(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        if (etag.length() < 2 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+            return new long[] {VERSION_INVALIDA};
+        }
+        String valor = etag.substring(1, etag.length() - 1);
+        int punto = valor.indexOf('.');
+        try {
+            if (punto < 0) {
+                return new long[] {Long.parseLong(valor)};
+            }
+            return new long[] {Long.parseLong(valor.substring(0, punto)), Long.parseLong(valor.substring(punto + 1))};
+        } catch (NumberFormatException e) {
+            return new long[] {VERSION_INVALIDA};
+        }
+    }
+}
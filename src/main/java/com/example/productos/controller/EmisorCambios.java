@@ -0,0 +1,42 @@
+package com.example.productos.controller;
+
+import com.example.productos.service.FlujoCambios;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Destino de FlujoCambios sobre Server-Sent Events. El id de cada evento es la secuencia del cambio,
+// así un cliente que se reconecta manda Last-Event-ID y continúa donde se cortó
+final class EmisorCambios extends SseEmitter implements FlujoCambios.Destino {
+
+    EmisorCambios(long timeoutMs) {
+        super(timeoutMs);
+    }
+
+    @Override
+    public void enviar(FlujoCambios.Cambio cambio) throws IOException {
+        send(event().id(Long.toString(cambio.secuencia()))
+                .name("cambio")
+                .data(cambio.evento(), MediaType.APPLICATION_JSON));
+    }
+
+    // Sin id: el cliente sigue reconectándose desde el último cambio que sí recibió
+    @Override
+    public void desbordado(long primeraDisponible) throws IOException {
+        send(event().name("desborde")
+                .data(Map.of("primeraDisponible", primeraDisponible), MediaType.APPLICATION_JSON));
+    }
+
+    // Comentario SSE: mantiene viva la conexión a través de proxies y detecta clientes caídos
+    @Override
+    public void latido() throws IOException {
+        send(event().comment("latido"));
+    }
+
+    @Override
+    public void cerrar() {
+        complete();
+    }
+}
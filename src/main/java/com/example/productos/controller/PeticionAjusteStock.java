@@ -0,0 +1,5 @@
+package com.example.productos.controller;
+
+// Cuerpo de POST /productos/{id}/stock:adjust: {"delta": -2}
+public record PeticionAjusteStock(Integer delta) {
+}
@@ -0,0 +1,7 @@
+package com.example.productos.controller;
+
+import java.util.List;
+
+// Cuerpo de POST /productos/_mget: {"ids": [1, 2, 3]}
+public record PeticionMget(List<Long> ids) {
+}
@@ -1,105 +1,411 @@
 package com.example.productos.controller;
 
 import com.example.productos.domain.Producto;
+import com.example.productos.service.AjusteStock;
+import com.example.productos.service.DemasiadosSuscriptoresException;
+import com.example.productos.service.EsperaAgotadaException;
+import com.example.productos.service.FiltroProductos;
+import com.example.productos.service.FlujoCambios;
+import com.example.productos.service.IndiceNombres;
 import com.example.productos.service.NotFoundException;
+import com.example.productos.service.PrecondicionFallidaException;
+import com.example.productos.service.ProductoBulkItem;
+import com.example.productos.service.ProductoBulkService;
 import com.example.productos.service.ProductoService;
+import com.example.productos.service.ResultadoBulk;
+import com.example.productos.service.ResultadoMget;
+import com.example.productos.service.StockInsuficienteException;
+import com.example.productos.service.Sugerencia;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
 
 @RestController
+@Profile("!reactivo")
 @RequestMapping("/productos")
 public class ProductoController {
 
+    static final String APPLICATION_CBOR_SEQ_VALUE = "application/cbor-seq";
+
     private final ProductoService service;
+    private final ProductoBulkService bulkService;
+    private final IndiceNombres indiceNombres;
+    private final FlujoCambios flujoCambios;
+    private final Duration timeoutCambios;
+    private final ObjectWriter writer;
+    private final ObjectWriter writerCbor;
+    private final ObjectReader bulkReader;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
 
-    public ProductoController(ProductoService service) {
+    public ProductoController(ProductoService service, ProductoBulkService bulkService, IndiceNombres indiceNombres,
+                              FlujoCambios flujoCambios, ObjectMapper objectMapper, MeterRegistry registry,
+                              @Value("${productos.cambios.timeout:30m}") Duration timeoutCambios) {
         this.service = service;
+        this.bulkService = bulkService;
+        this.indiceNombres = indiceNombres;
+        this.flujoCambios = flujoCambios;
+        this.timeoutCambios = timeoutCambios;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.writerCbor = objectMapper.copyWith(new CBORFactory()).writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.bulkReader = objectMapper.readerFor(ProductoBulkItem.class);
+        this.objectMapper = objectMapper;
+        this.registry = registry;
     }
 
     // Se agrega método en el controlador que maneja las excepciones
     // de tipo IllegalArgumentException que ocurren en los endpoints. HTTP400
     @ExceptionHandler(IllegalArgumentException.class)
-    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex, HandlerMethod handler) {
+        contarError("argumento_invalido", handler.getMethod().getName());
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
 
+    // Cuerpo que no es JSON o con tipos que no corresponden (p. ej. "stock": 2.5 o "precio": "abc"). HTTP400
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<String> handleCuerpoIlegible(HttpMessageNotReadableException ex, HandlerMethod handler) {
+        if (ex.getCause() instanceof JsonProcessingException e) {
+            return handleIllegalArgument(cuerpoInvalido(e), handler);
+        }
+        contarError("argumento_invalido", handler.getMethod().getName());
+        return ResponseEntity.badRequest().body("Cuerpo JSON inválido");
+    }
+
+    // If-Match con una versión que ya no es la actual. HTTP412
+    @ExceptionHandler(PrecondicionFallidaException.class)
+    public ResponseEntity<String> handlePrecondicionFallida(PrecondicionFallidaException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(StockInsuficienteException.class)
+    public ResponseEntity<String> handleStockInsuficiente(StockInsuficienteException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    // Otra transacción modificó el producto entre la lectura y el UPDATE. HTTP409
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConflictoDeVersion(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("El producto fue modificado por otra petición");
+    }
+
+    // Sin conexión disponible dentro de la espera máxima (pool saturado). HTTP503 con Retry-After
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<String> handleSinConexion(CannotCreateTransactionException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Servicio saturado, reintente más tarde");
+    }
+
+    // Una lectura compartida con otras peticiones no terminó dentro de productos.lecturas.espera. HTTP503
+    @ExceptionHandler(EsperaAgotadaException.class)
+    public ResponseEntity<String> handleEsperaAgotada(EsperaAgotadaException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Servicio saturado, reintente más tarde");
+    }
+
+    // Tope de conexiones SSE abiertas en /productos/changes. HTTP503 con Retry-After
+    @ExceptionHandler(DemasiadosSuscriptoresException.class)
+    public ResponseEntity<String> handleDemasiadosSuscriptores(DemasiadosSuscriptoresException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(ex.getMessage());
+    }
+
+    // Listado paginado por cursor: el encabezado Link apunta a la siguiente página.
+    // Con If-None-Match igual al ETag de la página se responde 304 sin serializar nada
     @GetMapping
-    public List<Producto> listar() {
-        return service.listar();
+    public ResponseEntity<List<Producto>> listar(@RequestParam(defaultValue = "0") long after,
+                                                 @RequestParam(defaultValue = "100") int limit) {
+        List<Producto> pagina = service.listarPagina(after, limit);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().eTag(ETags.de(pagina));
+        if (pagina.size() == limit) {
+            Long siguiente = pagina.get(pagina.size() - 1).getId();
+            respuesta.header(HttpHeaders.LINK, "</productos?after=" + siguiente + "&limit=" + limit + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina);
+    }
+
+    // Mismo listado con solo los campos pedidos (?fields=id,precio). El id va siempre: es el cursor
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> listarCampos(@RequestParam List<String> fields,
+                                                                  @RequestParam(defaultValue = "0") long after,
+                                                                  @RequestParam(defaultValue = "100") int limit) {
+        List<Map<String, Object>> pagina = service.listarCampos(fields, after, limit);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.size() == limit) {
+            Object siguiente = pagina.get(pagina.size() - 1).get("id");
+            String campos = String.join(",", pagina.get(0).keySet());
+            respuesta.header(HttpHeaders.LINK,
+                    "</productos?fields=" + campos + "&after=" + siguiente + "&limit=" + limit + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina);
+    }
+
+    // Varios productos por id en una sola llamada (?ids=1,2,3), en el orden pedido; los que no existen
+    // van con "encontrado": false. Para listas que no entran cómodas en la URL está POST /productos/_mget
+    @GetMapping(params = "ids")
+    public List<ResultadoMget> obtenerVarios(@RequestParam List<Long> ids) {
+        return service.obtenerVarios(ids);
+    }
+
+    @PostMapping("/_mget")
+    public List<ResultadoMget> obtenerVarios(@RequestBody PeticionMget body) {
+        return service.obtenerVarios(body.ids());
+    }
+
+    // Búsqueda por prefijo o texto del nombre, rangos de precio y stock, ordenada con ?sort=precio,desc.
+    // Pagina por cursor: el encabezado Link (rel="next") lleva los mismos filtros y el cursor siguiente
+    @GetMapping("/search")
+    public ResponseEntity<List<Producto>> buscar(FiltroProductos filtro,
+                                                 @SortDefault("id") Sort sort,
+                                                 @RequestParam(defaultValue = "100") int limit,
+                                                 @RequestParam(required = false) String cursor) {
+        Window<Producto> ventana = service.buscar(filtro, sort, limit, CursorBusqueda.decodificar(cursor, sort, objectMapper));
+        List<Producto> pagina = ventana.getContent();
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (ventana.hasNext()) {
+            KeysetScrollPosition siguiente = (KeysetScrollPosition) ventana.positionAt(pagina.size() - 1);
+            UriComponents actual = ServletUriComponentsBuilder.fromCurrentRequest().build(true);
+            String enlace = UriComponentsBuilder.fromPath(actual.getPath())
+                    .query(actual.getQuery())
+                    .replaceQueryParam("cursor", CursorBusqueda.codificar(siguiente, objectMapper))
+                    .build(true).toUriString();
+            respuesta.header(HttpHeaders.LINK, "<" + enlace + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina);
+    }
+
+    // Autocompletado por comienzo de palabra del nombre; se resuelve en memoria, sin consultar la base
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Sugerencia>> sugerir(@RequestParam String q,
+                                                    @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(indiceNombres.sugerir(q, limit));
+    }
+
+    // Vuelve a armar el índice de sugerencias desde la base (p. ej. tras cargar datos por fuera de la API)
+    @PostMapping("/suggest:rebuild")
+    public ResponseEntity<Map<String, Integer>> reconstruirSugerencias() {
+        return ResponseEntity.ok(Map.of("productos", indiceNombres.reconstruir()));
+    }
+
+    // Cambios confirmados como Server-Sent Events. Sin punto de partida empieza por los próximos;
+    // con Last-Event-ID (reconexión) o ?desde=<secuencia> continúa después de esa secuencia
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter cambios(@RequestHeader(name = "Last-Event-ID", required = false) String ultimoId,
+                              @RequestParam(required = false) Long desde) throws IOException {
+        long despuesDe;
+        if (desde != null) {
+            despuesDe = desde;
+        } else if (ultimoId != null && !ultimoId.isBlank()) {
+            try {
+                despuesDe = Long.parseLong(ultimoId.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Last-Event-ID inválido: " + ultimoId);
+            }
+        } else {
+            despuesDe = flujoCambios.ultimaSecuencia();
+        }
+        if (despuesDe < 0) {
+            throw new IllegalArgumentException("La secuencia no puede ser negativa");
+        }
+        EmisorCambios emisor = new EmisorCambios(timeoutCambios.toMillis());
+        // Se envía antes que cualquier cambio: confirma al cliente que la suscripción ya está activa
+        emisor.send(SseEmitter.event().comment("conectado"));
+        FlujoCambios.Suscripcion suscripcion = flujoCambios.suscribir(despuesDe, emisor);
+        emisor.onCompletion(suscripcion::cerrar);
+        emisor.onTimeout(suscripcion::cerrar);
+        emisor.onError(e -> suscripcion.cerrar());
+        return emisor;
+    }
+
+    // Exportación completa en NDJSON: cada fila se escribe en cuanto se lee de la base de datos
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void listarNdjson(@RequestParam(defaultValue = "0") long after, HttpServletResponse response) throws IOException {
+        exportar(after, response, MediaType.APPLICATION_NDJSON_VALUE, writer, true);
+    }
+
+    // La misma exportación como secuencia CBOR (RFC 8742): un producto tras otro, sin separadores
+    @GetMapping(produces = APPLICATION_CBOR_SEQ_VALUE)
+    public void listarCbor(@RequestParam(defaultValue = "0") long after, HttpServletResponse response) throws IOException {
+        exportar(after, response, APPLICATION_CBOR_SEQ_VALUE, writerCbor, false);
     }
 
     @PostMapping
-    public ResponseEntity<Producto> crear(@RequestBody Map<String, Object> body) {
-        String nombre = (String) body.get("nombre");
-        BigDecimal precio = new BigDecimal(body.get("precio").toString());
-        Integer stock = (Integer) body.get("stock");
-        Producto creado = service.crear(nombre, precio, stock);
-        return ResponseEntity.status(HttpStatus.CREATED).body(creado);
+    public ResponseEntity<Producto> crear(@RequestBody ProductoRequest body) {
+        Producto creado = service.crear(body.nombre(), body.precio(), body.stock());
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.de(creado)).body(creado);
+    }
+
+    // Carga masiva: acepta un arreglo JSON o NDJSON y lo procesa como stream, sin
+    // materializar el cuerpo completo. Devuelve un resultado por elemento, en orden
+    @PostMapping(path = "/_bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ResultadoBulk> crearEnLote(InputStream cuerpo) throws IOException {
+        try (MappingIterator<ProductoBulkItem> items = bulkReader.readValues(cuerpo)) {
+            return bulkService.procesar(items);
+        } catch (JsonProcessingException e) {
+            throw cuerpoInvalido(e);
+        } catch (RuntimeException e) {
+            // MappingIterator envuelve los errores de parseo en excepciones no chequeadas
+            if (e.getCause() instanceof JsonProcessingException jpe) {
+                throw cuerpoInvalido(jpe);
+            }
+            throw e;
+        }
     }
 
+    // El generador escribe sobre el stream de la respuesta con su propio buffer y sin flush por valor:
+    // el contenedor (y la compresión gzip, si corresponde) recibe bloques a medida que avanza el recorrido
+    private void exportar(long after, HttpServletResponse response, String tipo, ObjectWriter escritor,
+                          boolean porLinea) throws IOException {
+        response.setContentType(tipo);
+        try (JsonGenerator generator = escritor.createGenerator(response.getOutputStream())) {
+            if (porLinea) {
+                generator.setRootValueSeparator(null);
+            }
+            service.recorrer(after, p -> {
+                try {
+                    escritor.writeValue(generator, p);
+                    if (porLinea) {
+                        generator.writeRaw('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private <T> ResponseEntity<T> noEncontrado(String operacion) {
+        contarError("no_encontrado", operacion);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+
+    // Resultados 4xx por causa y operación; el estado HTTP solo ya está en http.server.requests
+    private void contarError(String tipo, String operacion) {
+        registry.counter("productos.errores", "tipo", tipo, "operacion", operacion).increment();
+    }
+
+    private static IllegalArgumentException cuerpoInvalido(JsonProcessingException e) {
+        return new IllegalArgumentException("Cuerpo JSON inválido: " + e.getOriginalMessage());
+    }
+
+    // El ETag es la versión del producto; con If-None-Match coincidente Spring responde 304
     @GetMapping("/{id}")
     public ResponseEntity<Producto> obtener(@PathVariable Long id) {
         try {
-            return ResponseEntity.ok(service.obtenerPorId(id));
+            Producto producto = service.obtenerPorId(id);
+            return ResponseEntity.ok().eTag(ETags.de(producto)).body(producto);
         } catch (NotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            return noEncontrado("obtener");
+        }
+    }
+
+    // Búsqueda exacta por nombre; para prefijos o texto está /search
+    @GetMapping("/by-name/{nombre}")
+    public ResponseEntity<Producto> obtenerPorNombre(@PathVariable String nombre) {
+        try {
+            Producto producto = service.obtenerPorNombre(nombre);
+            return ResponseEntity.ok().eTag(ETags.de(producto)).body(producto);
+        } catch (NotFoundException e) {
+            return noEncontrado("obtenerPorNombre");
         }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> eliminar(@PathVariable Long id) {
+    public ResponseEntity<Void> eliminar(@PathVariable Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            service.eliminar(id);
+            service.eliminar(id, ETags.versionEsperada(ifMatch), ETags.revisionEsperada(ifMatch));
             return ResponseEntity.noContent().build();
         } catch (NotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            return noEncontrado("eliminar");
         }
     }
 
     //Se agrega el método para actualizar un producto completo
     @PutMapping("/{id}")
-    public ResponseEntity<Producto> actualizar(@PathVariable Long id, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<Producto> actualizar(@PathVariable Long id, @RequestBody ProductoRequest body,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            String nombre = (String) body.get("nombre");
-            BigDecimal precio = new BigDecimal(body.get("precio").toString());
-            Integer stock = (Integer) body.get("stock");
-            Producto existente = service.obtenerPorId(id);
-            existente.setNombre(nombre);
-            existente.setPrecio(precio);
-            existente.setStock(stock);
-            Producto actualizado = service.actualizar(existente);
-            return ResponseEntity.ok(actualizado);
+            Producto actualizado = service.actualizar(id, body.nombre(), body.precio(), body.stock(),
+                    ETags.versionEsperada(ifMatch), ETags.revisionEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.de(actualizado)).body(actualizado);
         } catch (NotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            return noEncontrado("actualizar");
         }
     }
 
     //Se agrega el método para actualizar un producto parcialmente
     @PatchMapping("/{id}")
-    public ResponseEntity<Producto> actualizarParcial(@PathVariable Long id, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<Producto> actualizarParcial(@PathVariable Long id, @RequestBody ProductoParcialRequest body,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Producto existente = service.obtenerPorId(id);
-            if (body.containsKey("nombre")) {
-                existente.setNombre((String) body.get("nombre"));
-            }
-            if (body.containsKey("precio")) {
-                existente.setPrecio(new BigDecimal(body.get("precio").toString()));
-            }
-            if (body.containsKey("stock")) {
-                existente.setStock((Integer) body.get("stock"));
-            }
-            Producto actualizado = service.actualizar(existente);
-            return ResponseEntity.ok(actualizado);
+            Producto actualizado = service.actualizarParcial(id, body.nombreOAusente(), body.precioOAusente(),
+                    body.stockOAusente(), ETags.versionEsperada(ifMatch), ETags.revisionEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.de(actualizado)).body(actualizado);
+        } catch (NotFoundException e) {
+            return noEncontrado("actualizarParcial");
+        }
+    }
+
+    // Ajuste atómico de stock ({"delta": -2}): un único UPDATE condicional, sin cargar el producto
+    @PostMapping("/{id}/stock:adjust")
+    public ResponseEntity<Void> ajustarStock(@PathVariable Long id, @RequestBody PeticionAjusteStock body) {
+        if (body.delta() == null) {
+            throw new IllegalArgumentException("El delta es obligatorio y debe ser entero");
+        }
+        try {
+            service.ajustarStock(id, body.delta());
+            return ResponseEntity.noContent().build();
         } catch (NotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            return noEncontrado("ajustarStock");
         }
     }
 
-    
+    // Variante para varios productos en una transacción: [{"id": 1, "delta": -2}, ...]
+    @PostMapping("/stock:adjust")
+    public ResponseEntity<Void> ajustarStockEnLote(@RequestBody List<AjusteStock> ajustes) {
+        try {
+            service.ajustarStock(ajustes);
+            return ResponseEntity.noContent().build();
+        } catch (NotFoundException e) {
+            return noEncontrado("ajustarStockEnLote");
+        }
+    }
 }
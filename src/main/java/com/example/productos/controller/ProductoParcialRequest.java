@@ -0,0 +1,50 @@
+package com.example.productos.controller;
+
+import java.math.BigDecimal;
+
+// Cuerpo de PATCH /productos/{id} con presencia explícita por campo. Jackson solo llama al setter
+// de los campos que vienen en el JSON: un campo ausente no se modifica y uno enviado como null se rechaza
+public final class ProductoParcialRequest {
+
+    private String nombre;
+    private BigDecimal precio;
+    private Integer stock;
+    private boolean conNombre;
+    private boolean conPrecio;
+    private boolean conStock;
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+        this.conNombre = true;
+    }
+
+    public void setPrecio(BigDecimal precio) {
+        this.precio = precio;
+        this.conPrecio = true;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+        this.conStock = true;
+    }
+
+    // null si el campo no vino en el cuerpo
+    String nombreOAusente() {
+        return valorOAusente(nombre, conNombre, "nombre");
+    }
+
+    BigDecimal precioOAusente() {
+        return valorOAusente(precio, conPrecio, "precio");
+    }
+
+    Integer stockOAusente() {
+        return valorOAusente(stock, conStock, "stock");
+    }
+
+    private static <T> T valorOAusente(T valor, boolean presente, String campo) {
+        if (presente && valor == null) {
+            throw new IllegalArgumentException("El campo " + campo + " no puede ser null");
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.productos.controller;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.service.AjusteStock;
+import com.example.productos.service.NotFoundException;
+import com.example.productos.service.PrecondicionFallidaException;
+import com.example.productos.service.ProductoBulkItem;
+import com.example.productos.service.ProductoReactivoService;
+import com.example.productos.service.ResultadoBulk;
+import com.example.productos.service.StockInsuficienteException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Mismo contrato /productos que ProductoController, sobre WebFlux (perfil "reactivo")
+@RestController
+@Profile("reactivo")
+@RequestMapping("/productos")
+public class ProductoReactivoController {
+
+    private final ProductoReactivoService service;
+
+    public ProductoReactivoController(ProductoReactivoService service) {
+        this.service = service;
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    // Cuerpo que no se puede decodificar o con tipos que no corresponden. HTTP400
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<String> handleCuerpoIlegible(ServerWebInputException ex) {
+        if (ex.getMostSpecificCause() instanceof JsonProcessingException e) {
+            return ResponseEntity.badRequest().body("Cuerpo JSON inválido: " + e.getOriginalMessage());
+        }
+        return ResponseEntity.badRequest().body(ex.getReason());
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<Void> handleNotFound(NotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+
+    @ExceptionHandler(PrecondicionFallidaException.class)
+    public ResponseEntity<String> handlePrecondicionFallida(PrecondicionFallidaException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(StockInsuficienteException.class)
+    public ResponseEntity<String> handleStockInsuficiente(StockInsuficienteException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConflictoDeVersion(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("El producto fue modificado por otra petición");
+    }
+
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<String> handleSinConexion(CannotCreateTransactionException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Servicio saturado, reintente más tarde");
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<Producto>>> listar(@RequestParam(defaultValue = "0") long after,
+                                                       @RequestParam(defaultValue = "100") int limit) {
+        return service.listarPagina(after, limit).map(pagina -> {
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().eTag(ETags.de(pagina));
+            if (pagina.size() == limit) {
+                Long siguiente = pagina.get(pagina.size() - 1).getId();
+                respuesta.header(HttpHeaders.LINK, "</productos?after=" + siguiente + "&limit=" + limit + ">; rel=\"next\"");
+            }
+            return respuesta.body(pagina);
+        });
+    }
+
+    // Cada producto se codifica y se envía en cuanto llega de la base, respetando la demanda del cliente
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Producto> listarNdjson(@RequestParam(defaultValue = "0") long after) {
+        return service.recorrer(after);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Producto>> crear(@RequestBody ProductoRequest body) {
+        return service.crear(body.nombre(), body.precio(), body.stock())
+                .map(creado -> ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.de(creado)).body(creado));
+    }
+
+    // El cuerpo (arreglo JSON o NDJSON) se decodifica elemento a elemento
+    @PostMapping(path = "/_bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ResultadoBulk> crearEnLote(@RequestBody Flux<ProductoBulkItem> items) {
+        return service.procesar(items);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Producto>> obtener(@PathVariable Long id) {
+        return service.obtenerPorId(id)
+                .map(producto -> ResponseEntity.ok().eTag(ETags.de(producto)).body(producto));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> eliminar(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return service.eliminar(id, ETags.versionEsperadaSinPendientes(ifMatch))
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Producto>> actualizar(@PathVariable Long id, @RequestBody ProductoRequest body,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return service.actualizar(id, body.nombre(), body.precio(), body.stock(), ETags.versionEsperadaSinPendientes(ifMatch))
+                .map(actualizado -> ResponseEntity.ok().eTag(ETags.de(actualizado)).body(actualizado));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Producto>> actualizarParcial(@PathVariable Long id, @RequestBody ProductoParcialRequest body,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return service.actualizarParcial(id, body.nombreOAusente(), body.precioOAusente(), body.stockOAusente(),
+                        ETags.versionEsperadaSinPendientes(ifMatch))
+                .map(actualizado -> ResponseEntity.ok().eTag(ETags.de(actualizado)).body(actualizado));
+    }
+
+    @PostMapping("/{id}/stock:adjust")
+    public Mono<ResponseEntity<Void>> ajustarStock(@PathVariable Long id, @RequestBody PeticionAjusteStock body) {
+        if (body.delta() == null) {
+            return Mono.error(new IllegalArgumentException("El delta es obligatorio y debe ser entero"));
+        }
+        return service.ajustarStock(id, body.delta()).then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @PostMapping("/stock:adjust")
+    public Mono<ResponseEntity<Void>> ajustarStockEnLote(@RequestBody List<AjusteStock> ajustes) {
+        return service.ajustarStock(ajustes).then(Mono.just(ResponseEntity.noContent().build()));
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.productos.controller;
+
+import java.math.BigDecimal;
+
+// Cuerpo de POST /productos y PUT /productos/{id}. Jackson lee "precio" directo a BigDecimal
+// desde el texto del número, sin pasar por double ni por un Map intermedio
+public record ProductoRequest(String nombre, BigDecimal precio, Integer stock) {
+}
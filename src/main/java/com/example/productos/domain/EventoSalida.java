@@ -0,0 +1,53 @@
+package com.example.productos.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Fila del outbox: un cambio de Producto pendiente de publicar, escrita en la misma transacción que
+// el cambio. El id sale de una secuencia con pool, como el de Producto, para que los INSERT vayan en
+// batch JDBC. El orden lo da la secuencia: RegistroSalida pide los ids al final de la transacción, con
+// la fila del producto ya bloqueada, y el pool de una instancia los entrega crecientes, así los
+// eventos de un mismo producto quedan en el orden en que se confirmaron. Con varias instancias sobre
+// la misma tabla los bloques del pool se intercalan y ese orden solo vale dentro de cada una
+@Entity
+@Table(name = "evento_salida")
+public class EventoSalida {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "evento_salida_seq")
+    @SequenceGenerator(name = "evento_salida_seq", sequenceName = "evento_salida_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productoId;
+
+    @Column(nullable = false, length = 20)
+    private String tipo;
+
+    // ProductoCambiado en JSON
+    @Column(nullable = false, length = 2000)
+    private String carga;
+
+    @Column(nullable = false)
+    private Instant creadoEn;
+
+    public EventoSalida() {}
+
+    public EventoSalida(Long productoId, String tipo, String carga, Instant creadoEn) {
+        this.productoId = productoId;
+        this.tipo = tipo;
+        this.carga = carga;
+        this.creadoEn = creadoEn;
+    }
+
+    public Long getId() { return id; }
+    public Long getProductoId() { return productoId; }
+    public String getTipo() { return tipo; }
+    public String getCarga() { return carga; }
+    public Instant getCreadoEn() { return creadoEn; }
+
+    @Override
+    public String toString() {
+        return "EventoSalida{id=" + id + ", productoId=" + productoId + ", tipo=" + tipo + "}";
+    }
+}
@@ -1,14 +1,26 @@
 package com.example.productos.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.util.Objects;
 
+// nombre ya tiene índice por su restricción unique; precio y stock se indexan para /productos/search
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_producto_precio", columnList = "precio"),
+        @Index(name = "idx_producto_stock", columnList = "stock")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "producto")
 public class Producto {
 
+    // Secuencia con optimizador pooled: reserva ids de 50 en 50 y permite el batching JDBC de inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "producto_seq")
+    @SequenceGenerator(name = "producto_seq", sequenceName = "producto_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -20,6 +32,16 @@ public class Producto {
     @Column(nullable = false)
     private Integer stock;
 
+    // Control de concurrencia optimista; se expone como ETag en la API
+    @Version
+    private Long version;
+
+    // Solo en las copias con cambios de la escritura diferida superpuestos (EscrituraDiferida.superponer):
+    // la revisión de lo superpuesto. Entra en el ETag, que así cambia aunque la versión todavía no
+    @Transient
+    @JsonIgnore
+    private Long revisionPendiente;
+
     public Producto() {}
 
     public Producto(String nombre, BigDecimal precio, Integer stock) {
@@ -32,11 +54,15 @@ public class Producto {
     public String getNombre() { return nombre; }
     public BigDecimal getPrecio() { return precio; }
     public Integer getStock() { return stock; }
+    public Long getVersion() { return version; }
+    public Long getRevisionPendiente() { return revisionPendiente; }
 
     public void setId(Long id) { this.id = id; }
     public void setNombre(String nombre) { this.nombre = nombre; }
     public void setPrecio(BigDecimal precio) { this.precio = precio; }
     public void setStock(Integer stock) { this.stock = stock; }
+    public void setVersion(Long version) { this.version = version; }
+    public void setRevisionPendiente(Long revisionPendiente) { this.revisionPendiente = revisionPendiente; }
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,22 @@
+package com.example.productos.repository;
+
+import com.example.productos.domain.EventoSalida;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface EventoSalidaRepository extends JpaRepository<EventoSalida, Long> {
+
+    // Los más antiguos primero; un evento que confirmó tarde con id menor entra en la próxima lectura
+    List<EventoSalida> findByOrderByIdAsc(Limit limit);
+
+    // Un solo DELETE por lote publicado
+    @Modifying
+    @Query("delete from EventoSalida e where e.id in :ids")
+    int eliminarPorIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,5 @@
+package com.example.productos.repository;
+
+// Proyección mínima para recorrer los nombres sin materializar entidades
+public record IdYNombre(Long id, String nombre) {
+}
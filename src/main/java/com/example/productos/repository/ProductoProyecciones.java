@@ -0,0 +1,16 @@
+package com.example.productos.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedCollection;
+
+// Fragmento de ProductoRepository para listados con solo algunas columnas (?fields=)
+public interface ProductoProyecciones {
+
+    // Columnas que se pueden pedir; son las propiedades simples de Producto
+    List<String> CAMPOS = List.of("id", "nombre", "precio", "stock", "version");
+
+    // Página por cursor sobre el id con solo los "campos" pedidos, en ese orden. Devuelve una fila por
+    // producto (campo -> valor) leída como tupla: no se crean entidades ni entran al contexto de persistencia
+    List<Map<String, Object>> listarCampos(SequencedCollection<String> campos, long despuesDe, int limite);
+}
@@ -0,0 +1,44 @@
+package com.example.productos.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedCollection;
+import java.util.stream.Collectors;
+
+class ProductoProyeccionesImpl implements ProductoProyecciones {
+
+    private final EntityManager entityManager;
+
+    ProductoProyeccionesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Map<String, Object>> listarCampos(SequencedCollection<String> campos, long despuesDe, int limite) {
+        for (String campo : campos) {
+            if (!CAMPOS.contains(campo)) {
+                throw new IllegalArgumentException("Campo desconocido: " + campo);
+            }
+        }
+        // Los nombres vienen de CAMPOS, nunca del cliente: se pueden concatenar en el JPQL
+        String seleccion = campos.stream().map(c -> "p." + c + " as " + c).collect(Collectors.joining(", "));
+        List<Tuple> filas = entityManager.createQuery(
+                        "select " + seleccion + " from Producto p where p.id > :despuesDe order by p.id", Tuple.class)
+                .setParameter("despuesDe", despuesDe)
+                .setMaxResults(limite)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+        return filas.stream().map(t -> {
+            Map<String, Object> fila = new LinkedHashMap<>(campos.size() * 2);
+            for (String campo : campos) {
+                fila.put(campo, t.get(campo));
+            }
+            return fila;
+        }).toList();
+    }
+}
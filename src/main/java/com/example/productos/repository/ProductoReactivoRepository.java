@@ -0,0 +1,131 @@
+package com.example.productos.repository;
+
+import com.example.productos.domain.Producto;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+// Contraparte R2DBC de ProductoRepository para el perfil "reactivo". Son las mismas consultas
+// escritas en SQL: sin contexto de persistencia, cada UPDATE sube la versión explícitamente
+@Repository
+@Profile("reactivo")
+public class ProductoReactivoRepository {
+
+    private static final String COLUMNAS = "SELECT id, nombre, precio, stock, version FROM producto ";
+
+    private final DatabaseClient client;
+
+    public ProductoReactivoRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Mono<Producto> findById(Long id) {
+        return client.sql(COLUMNAS + "WHERE id = :id")
+                .bind("id", id)
+                .map(ProductoReactivoRepository::mapear)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return client.sql("SELECT 1 FROM producto WHERE id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    public Flux<Producto> findByNombreIn(Collection<String> nombres) {
+        if (nombres.isEmpty()) {
+            return Flux.empty();
+        }
+        return client.sql(COLUMNAS + "WHERE nombre IN (:nombres)")
+                .bind("nombres", nombres)
+                .map(ProductoReactivoRepository::mapear)
+                .all();
+    }
+
+    // Keyset: la siguiente página empieza después del último id entregado
+    public Flux<Producto> findByIdGreaterThanOrderByIdAsc(long id, int limite) {
+        return client.sql(COLUMNAS + "WHERE id > :id ORDER BY id LIMIT :limite")
+                .bind("id", id)
+                .bind("limite", limite)
+                .map(ProductoReactivoRepository::mapear)
+                .all();
+    }
+
+    // Sin límite: las filas se emiten según la demanda del suscriptor
+    public Flux<Producto> streamByIdGreaterThan(long id) {
+        return client.sql(COLUMNAS + "WHERE id > :id ORDER BY id")
+                .bind("id", id)
+                .map(ProductoReactivoRepository::mapear)
+                .all();
+    }
+
+    public Mono<Producto> insertar(String nombre, BigDecimal precio, Integer stock) {
+        return client.sql("INSERT INTO producto (nombre, precio, stock, version) VALUES (:nombre, :precio, :stock, 0)")
+                .bind("nombre", nombre)
+                .bind("precio", precio)
+                .bind("stock", stock)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> {
+                    Producto p = new Producto(nombre, precio, stock);
+                    p.setId(id);
+                    p.setVersion(0L);
+                    return p;
+                });
+    }
+
+    // Escribe todos los campos si la versión sigue siendo la leída; devuelve las filas afectadas
+    public Mono<Long> actualizar(Producto producto) {
+        return client.sql("UPDATE producto SET nombre = :nombre, precio = :precio, stock = :stock, version = version + 1 "
+                        + "WHERE id = :id AND version = :version")
+                .bind("nombre", producto.getNombre())
+                .bind("precio", producto.getPrecio())
+                .bind("stock", producto.getStock())
+                .bind("id", producto.getId())
+                .bind("version", producto.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> eliminarPorId(Long id) {
+        return client.sql("DELETE FROM producto WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> eliminarPorIdYVersion(Long id, Long version) {
+        return client.sql("DELETE FROM producto WHERE id = :id AND version = :version")
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // Mismo UPDATE condicional que ProductoRepository.ajustarStock
+    public Mono<Long> ajustarStock(Long id, int delta) {
+        return client.sql("UPDATE producto SET stock = stock + :delta, version = version + 1 "
+                        + "WHERE id = :id AND CAST(stock AS BIGINT) + :delta BETWEEN 0 AND " + Integer.MAX_VALUE)
+                .bind("delta", delta)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Producto mapear(Readable row) {
+        Producto p = new Producto(row.get("nombre", String.class), row.get("precio", BigDecimal.class),
+                row.get("stock", Integer.class));
+        p.setId(row.get("id", Long.class));
+        p.setVersion(row.get("version", Long.class));
+        return p;
+    }
+}
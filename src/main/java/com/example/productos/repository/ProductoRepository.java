@@ -1,10 +1,61 @@
 package com.example.productos.repository;
 
 import com.example.productos.domain.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, JpaSpecificationExecutor<Producto>,
+        ProductoProyecciones {
+    // Usa la caché de consultas de Hibernate (región default-query-results-region); la caché
+    // productosPorNombre está en ProductoService.obtenerPorNombre
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Producto> findByNombre(String nombre);
+
+    List<Producto> findByNombreIn(Collection<String> nombres);
+
+    // Paginación por cursor (keyset) sobre el id: nunca usa OFFSET
+    List<Producto> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Recorre la tabla fila a fila con un cursor JDBC, sin cargarla completa en memoria
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Producto p where p.id > :id order by p.id")
+    Stream<Producto> streamByIdGreaterThan(@Param("id") Long id);
+
+    // Solo id y nombre, para construir el índice de sugerencias sin pasar por el contexto de persistencia
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.productos.repository.IdYNombre(p.id, p.nombre) from Producto p")
+    Stream<IdYNombre> streamNombres();
+
+    // DELETE directo, sin el SELECT previo de deleteById; devuelve las filas afectadas
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Producto p where p.id = :id")
+    int eliminarPorId(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Producto p where p.id = :id and p.version = :version")
+    int eliminarPorIdYVersion(@Param("id") Long id, @Param("version") Long version);
+
+    // Ajuste atómico en una sola sentencia: la condición del WHERE impide dejar stock negativo
+    // sin leer la entidad ni hacer read-modify-write. La suma se compara como long, así un delta que
+    // desbordaría el int no llega al SET (sería un error de la base). Devuelve 0 si no existe, no
+    // alcanza o desbordaría
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Producto p set p.stock = p.stock + :delta, p.version = p.version + 1 "
+            + "where p.id = :id and cast(p.stock as Long) + :delta between 0 and " + Integer.MAX_VALUE)
+    int ajustarStock(@Param("id") Long id, @Param("delta") int delta);
 }
@@ -0,0 +1,60 @@
+package com.example.productos.repository;
+
+import com.example.productos.domain.Producto;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+// Criterios de búsqueda de /productos/search. Cada uno es null-safe: sin valor no agrega condición
+public final class ProductoSpecs {
+
+    private static final char ESCAPE = '\\';
+
+    private ProductoSpecs() {}
+
+    // LIKE 'x%' es un rango sobre el índice de nombre; distingue mayúsculas
+    public static Specification<Producto> nombreEmpiezaCon(String prefijo) {
+        if (prefijo == null || prefijo.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(root.get("nombre"), escapar(prefijo) + "%", ESCAPE);
+    }
+
+    // LIKE '%x%' no puede usar índices: recorre la tabla. Sin distinguir mayúsculas
+    public static Specification<Producto> nombreContiene(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(cb.lower(root.get("nombre")), "%" + escapar(texto.toLowerCase()) + "%", ESCAPE);
+    }
+
+    public static Specification<Producto> precioEntre(BigDecimal minimo, BigDecimal maximo) {
+        if (minimo == null && maximo == null) {
+            return null;
+        }
+        if (maximo == null) {
+            return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("precio"), minimo);
+        }
+        if (minimo == null) {
+            return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("precio"), maximo);
+        }
+        return (root, query, cb) -> cb.between(root.get("precio"), minimo, maximo);
+    }
+
+    public static Specification<Producto> stockEntre(Integer minimo, Integer maximo) {
+        if (minimo == null && maximo == null) {
+            return null;
+        }
+        if (maximo == null) {
+            return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("stock"), minimo);
+        }
+        if (minimo == null) {
+            return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("stock"), maximo);
+        }
+        return (root, query, cb) -> cb.between(root.get("stock"), minimo, maximo);
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
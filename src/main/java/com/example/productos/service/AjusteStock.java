@@ -0,0 +1,5 @@
+package com.example.productos.service;
+
+// Variación de stock para un producto: negativa para reservar, positiva para reponer
+public record AjusteStock(Long id, Integer delta) {
+}
@@ -0,0 +1,123 @@
+package com.example.productos.service;
+
+import com.example.productos.config.CacheConfig;
+import com.example.productos.domain.Producto;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+// Las cachés productos y productosPorNombre con una generación que avanza con cada escritura
+// confirmada, antes de tocar la entrada. Una lectura anota la generación antes de ir a la base y
+// solo guarda lo leído si no cambió mientras tanto: una consulta que empezó antes del commit no deja
+// la fila anterior encima de lo que puso o quitó la escritura (quedaría hasta el expireAfterWrite).
+// Las generaciones por id se reparten en un arreglo fijo: a dos ids que comparten posición a lo sumo
+// se les saltea algún guardado, nunca se sirve algo viejo. La de productosPorNombre es una sola, como su invalidación
+@Component
+@Profile("!reactivo")
+public class CacheProductos {
+
+    private static final int POSICIONES = 4096;
+
+    private final CacheManager cacheManager;
+    private final AtomicLongArray generaciones = new AtomicLongArray(POSICIONES);
+    private final AtomicLong generacionNombres = new AtomicLong();
+
+    public CacheProductos(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    Producto porId(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        return cache != null ? cache.get(id, Producto.class) : null;
+    }
+
+    Producto porNombre(String nombre) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE);
+        return cache != null ? cache.get(nombre, Producto.class) : null;
+    }
+
+    long generacion(Long id) {
+        return generaciones.get(posicion(id));
+    }
+
+    long generacionNombres() {
+        return generacionNombres.get();
+    }
+
+    // Se comprueba antes y después de guardar: si una escritura avanzó la generación entre medio,
+    // lo guardado se quita (a lo sumo junto con la entrada que ella acababa de poner)
+    void guardar(Long id, long generacion, Producto producto) {
+        guardar(cacheManager.getCache(CacheConfig.PRODUCTOS), id, producto, () -> generacion(id) == generacion);
+    }
+
+    void guardarPorNombre(String nombre, long generacion, Producto producto) {
+        guardar(cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE), nombre, producto,
+                () -> generacionNombres() == generacion);
+    }
+
+    // Para las escrituras con @CachePut/@CacheEvict: el interceptor de caché va por fuera del
+    // transaccional (ver CacheConfig), así la generación avanza al confirmar y antes de que toque la entrada
+    void avanzarAlConfirmar(Long id) {
+        alConfirmar(() -> avanzar(id));
+    }
+
+    // Quita las entradas de los ids y toda la caché por nombre
+    void invalidar(Collection<Long> ids) {
+        Cache productos = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        for (Long id : ids) {
+            avanzar(id);
+            if (productos != null) {
+                productos.evict(id);
+            }
+        }
+        generacionNombres.incrementAndGet();
+        Cache porNombre = cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE);
+        if (porNombre != null) {
+            porNombre.clear();
+        }
+    }
+
+    void invalidarAlConfirmar(Collection<Long> ids) {
+        alConfirmar(() -> invalidar(ids));
+    }
+
+    private void avanzar(Long id) {
+        generaciones.incrementAndGet(posicion(id));
+        generacionNombres.incrementAndGet();
+    }
+
+    private static void guardar(Cache cache, Object clave, Producto producto, BooleanSupplier vigente) {
+        if (cache == null || !vigente.getAsBoolean()) {
+            return;
+        }
+        cache.put(clave, producto);
+        if (!vigente.getAsBoolean()) {
+            cache.evict(clave);
+        }
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private static int posicion(Long id) {
+        return Long.hashCode(id) & (POSICIONES - 1);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.productos.service;
+
+public class DemasiadosSuscriptoresException extends RuntimeException {
+    public DemasiadosSuscriptoresException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.EventoSalida;
+import com.example.productos.repository.EventoSalidaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Publica el outbox en segundo plano: cada "intervalo" lee hasta "lote" eventos en orden de id, los
+// reparte en "paralelismo" carriles por producto (los de un mismo producto van siempre al mismo carril,
+// en orden) y borra en un solo DELETE los que el destino aceptó. Al menos una vez: si el borrado falla
+// o la aplicación cae entre medio, esos eventos se vuelven a publicar
+@Component
+@Profile("!reactivo")
+public class DespachadorSalida {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachadorSalida.class);
+
+    private final EventoSalidaRepository repository;
+    private final TransactionTemplate transacciones;
+    private final DestinoSalida destino;
+    private final int tamanoLote;
+    private final int paralelismo;
+    private final Duration intervalo;
+    private final boolean habilitado;
+    private final ScheduledExecutorService programador = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("salida-despachador").daemon().factory());
+    private final ExecutorService carriles = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter publicados;
+    private final Counter fallidos;
+
+    public DespachadorSalida(EventoSalidaRepository repository, PlatformTransactionManager transactionManager,
+                             ObjectProvider<DestinoSalida> destinos, MeterRegistry registry,
+                             @Value("${productos.salida.lote:200}") int tamanoLote,
+                             @Value("${productos.salida.paralelismo:4}") int paralelismo,
+                             @Value("${productos.salida.intervalo:500ms}") Duration intervalo,
+                             @Value("${productos.salida.archivo:}") String archivo,
+                             @Value("${productos.salida.despachador.habilitado:true}") boolean habilitado) {
+        if (tamanoLote < 1 || paralelismo < 1 || intervalo.isNegative() || intervalo.isZero()) {
+            throw new IllegalArgumentException("productos.salida.lote, paralelismo e intervalo deben ser mayores que cero");
+        }
+        this.repository = repository;
+        this.transacciones = new TransactionTemplate(transactionManager);
+        this.destino = destinos.getIfAvailable(() -> archivo.isBlank()
+                ? new DestinoSalidaLog()
+                : new DestinoSalidaArchivo(Path.of(archivo)));
+        this.tamanoLote = tamanoLote;
+        this.paralelismo = paralelismo;
+        this.intervalo = intervalo;
+        this.habilitado = habilitado;
+        this.publicados = registry.counter("productos.salida.publicados");
+        this.fallidos = registry.counter("productos.salida.fallidos");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (habilitado) {
+            programador.scheduleWithFixedDelay(this::despacharPendientes, intervalo.toMillis(), intervalo.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Una pasada: publica un lote y devuelve cuántos eventos salieron. Pública para poder forzarla
+    // (pruebas, tareas administrativas) con el despachador programado deshabilitado
+    public int despachar() {
+        List<EventoSalida> lote = transacciones.execute(s -> repository.findByOrderByIdAsc(Limit.of(tamanoLote)));
+        if (lote == null || lote.isEmpty()) {
+            return 0;
+        }
+        List<List<EventoSalida>> porCarril = new ArrayList<>(paralelismo);
+        for (int i = 0; i < paralelismo; i++) {
+            porCarril.add(new ArrayList<>());
+        }
+        for (EventoSalida evento : lote) {
+            porCarril.get(Math.floorMod(evento.getProductoId().hashCode(), paralelismo)).add(evento);
+        }
+
+        List<Future<List<Long>>> envios = new ArrayList<>(paralelismo);
+        for (List<EventoSalida> carril : porCarril) {
+            if (!carril.isEmpty()) {
+                envios.add(carriles.submit(() -> publicar(carril)));
+            }
+        }
+        List<Long> enviados = new ArrayList<>(lote.size());
+        for (Future<List<Long>> envio : envios) {
+            try {
+                enviados.addAll(envio.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.warn("Falló un carril del despachador de salida", e.getCause());
+            }
+        }
+        if (!enviados.isEmpty()) {
+            transacciones.executeWithoutResult(s -> repository.eliminarPorIds(enviados));
+        }
+        return enviados.size();
+    }
+
+    @PreDestroy
+    void detener() {
+        programador.shutdownNow();
+        carriles.shutdownNow();
+    }
+
+    // Mientras haya atraso encadena lotes sin esperar el intervalo
+    private void despacharPendientes() {
+        try {
+            int enviados;
+            do {
+                enviados = despachar();
+            } while (enviados == tamanoLote && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo despachar el outbox", e);
+        }
+    }
+
+    // En orden dentro del carril. Cuando un evento falla, los siguientes del mismo producto se saltean
+    // para no publicarlos antes que él; se reintentan todos juntos en la próxima pasada
+    private List<Long> publicar(List<EventoSalida> carril) {
+        List<Long> enviados = new ArrayList<>(carril.size());
+        Set<Long> detenidos = new HashSet<>();
+        for (EventoSalida evento : carril) {
+            if (detenidos.contains(evento.getProductoId())) {
+                continue;
+            }
+            try {
+                destino.publicar(evento);
+                enviados.add(evento.getId());
+                publicados.increment();
+            } catch (Exception e) {
+                detenidos.add(evento.getProductoId());
+                fallidos.increment();
+                log.warn("No se pudo publicar {}; se reintentará", evento, e);
+            }
+        }
+        return enviados;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.EventoSalida;
+
+// Adonde publica DespachadorSalida (un broker, un webhook...). Basta con declarar un bean de este tipo
+// para reemplazar el destino por defecto (archivo o log). Puede recibir el mismo evento más de una vez:
+// si lanza una excepción, ese evento y los siguientes del mismo producto se reintentan en la próxima pasada
+public interface DestinoSalida {
+    void publicar(EventoSalida evento) throws Exception;
+}
@@ -0,0 +1,33 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.EventoSalida;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Agrega cada evento como una línea NDJSON {"salida": id, "evento": {...}} al archivo indicado.
+// Sincronizado: los carriles del despachador escriben en paralelo
+class DestinoSalidaArchivo implements DestinoSalida {
+
+    private final Path archivo;
+
+    DestinoSalidaArchivo(Path archivo) {
+        this.archivo = archivo;
+    }
+
+    @Override
+    public synchronized void publicar(EventoSalida evento) throws IOException {
+        if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write("{\"salida\":" + evento.getId() + ",\"evento\":" + evento.getCarga() + "}");
+            writer.newLine();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.EventoSalida;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Destino por defecto sin productos.salida.archivo: una línea de log por evento
+class DestinoSalidaLog implements DestinoSalida {
+
+    private static final Logger log = LoggerFactory.getLogger("productos.salida");
+
+    @Override
+    public void publicar(EventoSalida evento) {
+        log.info("{} {}", evento.getId(), evento.getCarga());
+    }
+}
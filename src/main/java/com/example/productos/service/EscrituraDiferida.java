@@ -0,0 +1,398 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Escritura diferida (productos.diferida.habilitada) de los PATCH que solo cambian precio y/o stock:
+// se combinan por producto en memoria (el último valor de cada campo gana) y se escriben cada
+// "demora" en transacciones de hasta "lote" productos, con un UPDATE por producto aunque haya
+// recibido muchos PATCH. Las demás escrituras de un producto retiran antes lo pendiente y lo aplican
+// en su propia transacción, así nunca se pisan con un valor más viejo. Al cerrar se escribe todo.
+// Las lecturas por id (obtenerPorId) ven lo pendiente; los listados y búsquedas, lo que ya está en la base.
+// Cada cambio recibido lleva una revisión creciente que las copias superpuestas exponen para el ETag
+@Component
+@Profile("!reactivo")
+public class EscrituraDiferida implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EscrituraDiferida.class);
+    private static final Pendiente VACIO = new Pendiente(null, 0, null, 0);
+
+    // Campos a escribir; null es "sin cambios". Cada campo lleva la revisión del cambio que lo puso:
+    // al combinar gana la más nueva campo por campo, así el orden en que se combinan no importa
+    // (un lote que falla y devuelve lo suyo queda debajo de lo que llegó después)
+    record Pendiente(BigDecimal precio, long revisionPrecio, Integer stock, long revisionStock) {
+
+        static Pendiente de(BigDecimal precio, Integer stock, long revision) {
+            return new Pendiente(precio, precio != null ? revision : 0, stock, stock != null ? revision : 0);
+        }
+
+        Pendiente combinar(Pendiente otro) {
+            boolean precioPropio = revisionPrecio >= otro.revisionPrecio;
+            boolean stockPropio = revisionStock >= otro.revisionStock;
+            return new Pendiente(precioPropio ? precio : otro.precio, Math.max(revisionPrecio, otro.revisionPrecio),
+                    stockPropio ? stock : otro.stock, Math.max(revisionStock, otro.revisionStock));
+        }
+
+        long revision() {
+            return Math.max(revisionPrecio, revisionStock);
+        }
+
+        void aplicarA(Producto producto) {
+            if (precio != null) {
+                producto.setPrecio(precio);
+            }
+            if (stock != null) {
+                producto.setStock(stock);
+            }
+        }
+    }
+
+    private final ProductoRepository repository;
+    private final TransactionTemplate transacciones;
+    private final ApplicationEventPublisher eventos;
+    private final CacheProductos cache;
+    private final boolean habilitada;
+    private final Duration demora;
+    private final long esperaNanos;
+    private final int tamanoLote;
+    private final AtomicLong revisiones = new AtomicLong();
+    // Escrituras confirmadas: una lectura que ve cambiar este número puede haber mezclado la fila de
+    // antes de la escritura con lo superpuesto de después (ya sin lo que se escribió) y se repite
+    private final AtomicLong confirmaciones = new AtomicLong();
+    private final Map<Long, Pendiente> pendientes = new ConcurrentHashMap<>();
+    // Tomados por la escritura en curso y todavía sin confirmar: siguen visibles para las lecturas
+    private final Map<Long, Pendiente> enVuelo = new ConcurrentHashMap<>();
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition confirmados = cerrojo.newCondition();
+    private final ScheduledExecutorService programador = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("escritura-diferida").daemon().factory());
+    private final Counter recibidas;
+    private final Counter escritas;
+    private final Counter descartadas;
+    private final Counter reintentadas;
+    private volatile boolean activa;
+
+    public EscrituraDiferida(ProductoRepository repository, PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventos, CacheProductos cache, MeterRegistry registry,
+                             @Value("${productos.diferida.habilitada:false}") boolean habilitada,
+                             @Value("${productos.diferida.demora:200ms}") Duration demora,
+                             @Value("${productos.diferida.lote:500}") int tamanoLote,
+                             @Value("${productos.diferida.espera:2s}") Duration espera) {
+        if (tamanoLote < 1 || demora.isNegative() || demora.isZero() || espera.isNegative() || espera.isZero()) {
+            throw new IllegalArgumentException("productos.diferida.lote, demora y espera deben ser mayores que cero");
+        }
+        this.repository = repository;
+        this.transacciones = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.cache = cache;
+        this.habilitada = habilitada;
+        this.demora = demora;
+        this.esperaNanos = espera.toNanos();
+        this.tamanoLote = tamanoLote;
+        this.recibidas = registry.counter("productos.diferida.recibidas");
+        this.escritas = registry.counter("productos.diferida.escritas");
+        this.descartadas = registry.counter("productos.diferida.descartadas");
+        this.reintentadas = registry.counter("productos.diferida.reintentadas");
+        Gauge.builder("productos.diferida.pendientes", pendientes, Map::size).register(registry);
+    }
+
+    @Override
+    public void start() {
+        if (habilitada) {
+            programador.scheduleWithFixedDelay(this::vaciarProgramado, demora.toMillis(), demora.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+        activa = true;
+    }
+
+    // Al cerrar, después de que el servidor web terminó de atender (fase menor que la del apagado
+    // ordenado) y antes de destruir los beans: los eventos de lo que se escribe llegan al outbox,
+    // al flujo de cambios y al índice de nombres
+    @Override
+    public void stop() {
+        activa = false;
+        programador.shutdownNow();
+        try {
+            programador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!pendientes.isEmpty()) {
+            log.info("Escribiendo {} productos pendientes antes de cerrar", pendientes.size());
+            vaciar();
+        }
+        if (!pendientes.isEmpty()) {
+            log.error("Quedan sin escribir los cambios de {} productos: {}", pendientes.size(), pendientes);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activa;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    public boolean habilitada() {
+        return habilitada;
+    }
+
+    public int pendientes() {
+        return pendientes.size();
+    }
+
+    // Combina el cambio con lo pendiente del producto y devuelve cómo queda (una copia: lo que
+    // devuelve "carga" puede ser una entidad administrada y no debe ensuciarse). La primera carga es
+    // antes de registrar, así un producto inexistente no deja nada pendiente. La caché productos
+    // guarda solo la fila, que esto no cambia: las lecturas le superponen lo pendiente (ver ProductoService)
+    Producto registrar(Long id, Supplier<Producto> carga, BigDecimal precio, Integer stock) {
+        long vista = confirmaciones.get();
+        Producto actual = carga.get();
+        pendientes.merge(id, Pendiente.de(precio, stock, revisiones.incrementAndGet()), Pendiente::combinar);
+        recibidas.increment();
+        Producto resultado = superponer(actual);
+        return confirmaciones.get() == vista ? resultado : leer(carga);
+    }
+
+    // Lectura de la base con lo pendiente superpuesto, coherente con las escrituras diferidas: se
+    // repite si una se confirmó mientras tanto (ver confirmaciones)
+    Producto leer(Supplier<Producto> carga) {
+        while (true) {
+            long vista = confirmaciones.get();
+            Producto producto = superponer(carga.get());
+            if (confirmaciones.get() == vista) {
+                return producto;
+            }
+        }
+    }
+
+    List<Producto> leerTodos(Supplier<List<Producto>> carga) {
+        while (true) {
+            long vista = confirmaciones.get();
+            List<Producto> productos = carga.get().stream().map(this::superponer).toList();
+            if (confirmaciones.get() == vista) {
+                return productos;
+            }
+        }
+    }
+
+    // El producto como quedará cuando se escriba lo pendiente; el mismo objeto si no hay nada. La
+    // versión y la revisión del último cambio superpuesto identifican el estado: otro PATCH cambia el ETag.
+    // Lee pendientes antes que enVuelo, al revés que tomar: un cambio que ya no está en pendientes
+    // está en vuelo, o ya se confirmó
+    Producto superponer(Producto producto) {
+        Pendiente pendiente = pendientes.get(producto.getId());
+        Pendiente tomado = enVuelo.get(producto.getId());
+        if (tomado == null && pendiente == null) {
+            return producto;
+        }
+        Producto copia = new Producto(producto.getNombre(), producto.getPrecio(), producto.getStock());
+        copia.setId(producto.getId());
+        copia.setVersion(producto.getVersion());
+        long revision = 0;
+        if (tomado != null) {
+            tomado.aplicarA(copia);
+            revision = tomado.revision();
+        }
+        if (pendiente != null) {
+            pendiente.aplicarA(copia);
+            revision = Math.max(revision, pendiente.revision());
+        }
+        copia.setRevisionPendiente(revision);
+        return copia;
+    }
+
+    // Para una escritura sincrónica del producto: quita lo pendiente para aplicarlo en esa transacción.
+    // Si la escritura diferida lo está confirmando en este momento, espera a que termine (la carga
+    // posterior ya lo ve) y retira también lo que esa escritura no pudo confirmar y devolvió. Con
+    // rollback lo devuelve, debajo de lo que haya llegado entre medio. La espera tiene tope
+    // (productos.diferida.espera): el llamador puede tener filas bloqueadas que esa escritura necesita
+    Optional<Pendiente> retirar(Long id) {
+        Pendiente pendiente = pendientes.remove(id);
+        try {
+            while (esperarConfirmacion(id)) {
+                Pendiente devuelto = pendientes.remove(id);
+                if (devuelto != null) {
+                    pendiente = pendiente == null ? devuelto : pendiente.combinar(devuelto);
+                }
+            }
+        } catch (EsperaAgotadaException e) {
+            if (pendiente != null) {
+                pendientes.merge(id, pendiente, Pendiente::combinar);
+            }
+            throw e;
+        }
+        Pendiente retirado = pendiente;
+        if (retirado != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        pendientes.merge(id, retirado, Pendiente::combinar);
+                    }
+                }
+            });
+        }
+        return Optional.ofNullable(retirado);
+    }
+
+    // Escribe lo pendiente al empezar y devuelve cuántos productos actualizó. Pública para poder
+    // forzarla (pruebas, tareas administrativas); la pasada programada y el cierre usan la misma. Lo
+    // que llega mientras tanto, o lo que falló y se devolvió, queda para la pasada siguiente
+    public synchronized int vaciar() {
+        List<Long> ids = new ArrayList<>(pendientes.keySet());
+        int total = 0;
+        for (int desde = 0; desde < ids.size(); desde += tamanoLote) {
+            total += escribirLote(ids.subList(desde, Math.min(desde + tamanoLote, ids.size())));
+        }
+        return total;
+    }
+
+    private void vaciarProgramado() {
+        try {
+            vaciar();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo escribir la escritura diferida", e);
+        }
+    }
+
+    // Un SELECT con IN y los UPDATE en batch JDBC, con el evento de cada producto (outbox y flujo de
+    // cambios) en la misma transacción. Si el lote falla (p. ej. un conflicto de versión con una
+    // escritura sincrónica) se reintenta de a un producto, releyéndolo. El PATCH ya respondió 200:
+    // lo que falla también así vuelve a pendientes para la próxima pasada, salvo que el error sea
+    // permanente (una restricción de la base); un producto borrado no aparece y no se escribe
+    private int escribirLote(List<Long> ids) {
+        Map<Long, Pendiente> tomados = new HashMap<>();
+        try {
+            Integer escritos = transacciones.execute(s -> {
+                // Dentro de la transacción: quien espera la confirmación no retiene la única conexión libre
+                tomar(ids, tomados);
+                return aplicar(repository.findAllById(tomados.keySet()), tomados);
+            });
+            return confirmar(tomados.keySet(), escritos);
+        } catch (RuntimeException e) {
+            log.debug("Falló el lote de escritura diferida; se reintenta de a un producto", e);
+            int escritos = 0;
+            for (Map.Entry<Long, Pendiente> tomado : tomados.entrySet()) {
+                try {
+                    escritos += transacciones.execute(s -> aplicar(
+                            repository.findById(tomado.getKey()).stream().toList(), Map.of(tomado.getKey(), tomado.getValue())));
+                } catch (DataIntegrityViolationException falla) {
+                    descartadas.increment();
+                    log.warn("Se descarta la escritura diferida del producto {}: {}", tomado.getKey(), tomado.getValue(), falla);
+                } catch (RuntimeException falla) {
+                    // Antes de soltar la marca en vuelo: quien espera la confirmación lo encuentra al despertar
+                    pendientes.merge(tomado.getKey(), tomado.getValue(), Pendiente::combinar);
+                    reintentadas.increment();
+                    log.warn("Falló la escritura diferida del producto {}; se reintentará", tomado.getKey(), falla);
+                }
+            }
+            return confirmar(tomados.keySet(), escritos);
+        }
+    }
+
+    // Los productos borrados mientras tanto no aparecen en la consulta y se ignoran
+    private int aplicar(List<Producto> productos, Map<Long, Pendiente> tomados) {
+        for (Producto producto : productos) {
+            tomados.get(producto.getId()).aplicarA(producto);
+        }
+        repository.flush();
+        // Después del flush, para que los eventos lleven la versión que quedó en la base
+        productos.forEach(p -> eventos.publishEvent(ProductoCambiado.actualizado(p)));
+        return productos.size();
+    }
+
+    // Primero se marca en vuelo y después se quita de pendientes: una escritura sincrónica que no
+    // encuentra el pendiente siempre ve la marca y espera
+    private void tomar(List<Long> ids, Map<Long, Pendiente> tomados) {
+        for (Long id : ids) {
+            enVuelo.put(id, VACIO);
+            Pendiente pendiente = pendientes.remove(id);
+            if (pendiente == null) {
+                soltar(List.of(id));
+            } else {
+                enVuelo.put(id, pendiente);
+                tomados.put(id, pendiente);
+            }
+        }
+    }
+
+    // Las entradas de las cachés tienen la versión anterior a la escritura
+    private int confirmar(Collection<Long> ids, int escritos) {
+        cache.invalidar(ids);
+        confirmaciones.incrementAndGet();
+        soltar(ids);
+        escritas.increment(escritos);
+        return escritos;
+    }
+
+    private void soltar(Collection<Long> ids) {
+        cerrojo.lock();
+        try {
+            enVuelo.keySet().removeAll(ids);
+            confirmados.signalAll();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // true si tuvo que esperar. Pasada la espera falla con 503 y Retry-After; la transacción del
+    // llamador se revierte y suelta sus bloqueos, así la escritura en vuelo puede terminar
+    private boolean esperarConfirmacion(Long id) {
+        if (!enVuelo.containsKey(id)) {
+            return false;
+        }
+        cerrojo.lock();
+        try {
+            long restante = esperaNanos;
+            while (enVuelo.containsKey(id)) {
+                if (restante <= 0) {
+                    throw new EsperaAgotadaException("La escritura diferida del producto " + id
+                            + " no se confirmó en " + Duration.ofNanos(esperaNanos));
+                }
+                restante = confirmados.awaitNanos(restante);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EsperaAgotadaException("Se interrumpió la espera de la escritura diferida del producto " + id);
+        } finally {
+            cerrojo.unlock();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.productos.service;
+
+public class EsperaAgotadaException extends RuntimeException {
+    public EsperaAgotadaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.productos.service;
+
+import java.math.BigDecimal;
+
+// Criterios de GET /productos/search; todos opcionales
+public record FiltroProductos(String nombre, String contiene, BigDecimal precioMin, BigDecimal precioMax,
+                              Integer stockMin, Integer stockMax) {
+}
@@ -0,0 +1,281 @@
+package com.example.productos.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Últimos cambios confirmados en un buffer circular de capacidad fija, numerados con una secuencia
+// creciente. Los suscriptores comparten el buffer y solo guardan hasta dónde leyeron, así la memoria
+// no depende de cuántos haya ni de qué tan lentos sean. Cada uno se drena en su propio hilo virtual;
+// el que se atrasa más que la capacidad recibe un aviso de desborde y sigue desde el más antiguo.
+// Los latidos también salen por ese drenaje, así nunca se intercalan con un envío.
+// La secuencia se reserva justo antes del commit, con las filas todavía bloqueadas, así dos
+// transacciones sobre el mismo producto quedan numeradas en el orden de sus commits. Se publica
+// después, en orden: una secuencia queda visible cuando se resolvieron todas las anteriores
+@Component
+@Profile("!reactivo")
+public class FlujoCambios {
+
+    private static final int LOTE = 256;
+
+    // "evento" es null en las secuencias de una transacción revertida después de reservarlas: no se envían
+    public record Cambio(long secuencia, ProductoCambiado evento) {
+    }
+
+    // Adaptador al transporte (SSE en el controlador). Las llamadas de una suscripción nunca son concurrentes
+    public interface Destino {
+        void enviar(Cambio cambio) throws IOException;
+
+        // Se perdieron cambios: el siguiente disponible es "primeraDisponible"
+        void desbordado(long primeraDisponible) throws IOException;
+
+        void latido() throws IOException;
+
+        void cerrar();
+    }
+
+    private final Cambio[] anillo;
+    private final int maxSuscriptores;
+    private final Set<Suscripcion> suscripciones = ConcurrentHashMap.newKeySet();
+    // Lugares tomados, reservados antes de crear la suscripción y devueltos al cerrarla
+    private final AtomicInteger ocupados = new AtomicInteger();
+    private final ExecutorService entregas = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService latidos = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cambios-latido").daemon().factory());
+    private final Counter desbordes;
+    // Protegidos por "this". "publicadas" es la última secuencia en el anillo: todas las anteriores
+    // ya se resolvieron. Las resueltas fuera de orden esperan en "enEspera" a las que les faltan
+    private long siguiente = 1;
+    private long publicadas = 0;
+    private final Map<Long, Cambio> enEspera = new HashMap<>();
+
+    public FlujoCambios(@Value("${productos.cambios.capacidad:10000}") int capacidad,
+                        @Value("${productos.cambios.max-suscriptores:1000}") int maxSuscriptores,
+                        @Value("${productos.cambios.latido:15s}") Duration latido,
+                        MeterRegistry registry) {
+        if (capacidad < 1 || maxSuscriptores < 1) {
+            throw new IllegalArgumentException("productos.cambios.capacidad y max-suscriptores deben ser mayores que cero");
+        }
+        this.anillo = new Cambio[capacidad];
+        this.maxSuscriptores = maxSuscriptores;
+        this.desbordes = registry.counter("productos.cambios.desbordes");
+        Gauge.builder("productos.cambios.suscriptores", suscripciones, Set::size).register(registry);
+        latidos.scheduleAtFixedRate(this::latir, latido.toMillis(), latido.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Junta los eventos de la transacción (Reserva); un cambio revertido nunca llega a los suscriptores.
+    // Sin transacción se numera y se publica en el momento
+    @EventListener
+    public void alCambiar(ProductoCambiado evento) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            reserva().eventos.add(evento);
+            return;
+        }
+        long secuencia;
+        synchronized (this) {
+            secuencia = siguiente++;
+        }
+        resolver(secuencia, List.of(evento));
+    }
+
+    // Como el Lote de RegistroSalida: una por transacción, así una REQUIRES_NEW tiene la suya
+    private Reserva reserva() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof Reserva reserva && reserva.flujo == this) {
+                return reserva;
+            }
+        }
+        Reserva reserva = new Reserva(this);
+        TransactionSynchronizationManager.registerSynchronization(reserva);
+        return reserva;
+    }
+
+    // Deja los cambios de secuencias consecutivas desde "primera" (null si se revirtieron) y publica
+    // todo lo que ya no tiene huecos por delante
+    private void resolver(long primera, List<ProductoCambiado> eventos) {
+        synchronized (this) {
+            for (int i = 0; i < eventos.size(); i++) {
+                enEspera.put(primera + i, new Cambio(primera + i, eventos.get(i)));
+            }
+            Cambio cambio;
+            while ((cambio = enEspera.remove(publicadas + 1)) != null) {
+                publicadas++;
+                anillo[(int) (publicadas % anillo.length)] = cambio;
+            }
+        }
+        suscripciones.forEach(Suscripcion::despertar);
+    }
+
+    // Entrega los cambios con secuencia mayor que "despuesDe" y luego los nuevos a medida que llegan
+    public Suscripcion suscribir(long despuesDe, Destino destino) {
+        if (!reservarLugar()) {
+            throw new DemasiadosSuscriptoresException("Se alcanzó el máximo de " + maxSuscriptores + " suscriptores");
+        }
+        Suscripcion suscripcion = new Suscripcion(despuesDe, destino);
+        suscripciones.add(suscripcion);
+        suscripcion.despertar();
+        return suscripcion;
+    }
+
+    public synchronized long ultimaSecuencia() {
+        return publicadas;
+    }
+
+    public int suscriptores() {
+        return suscripciones.size();
+    }
+
+    @PreDestroy
+    void detener() {
+        latidos.shutdownNow();
+        suscripciones.forEach(Suscripcion::cerrar);
+        entregas.shutdownNow();
+    }
+
+    private boolean reservarLugar() {
+        while (true) {
+            int actual = ocupados.get();
+            if (actual >= maxSuscriptores) {
+                return false;
+            }
+            if (ocupados.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Hasta LOTE cambios posteriores a "despuesDe"; si los siguientes ya se sobrescribieron, desde el más antiguo
+    private synchronized List<Cambio> leer(long despuesDe) {
+        long primera = Math.max(1, publicadas + 1 - anillo.length);
+        List<Cambio> cambios = new ArrayList<>();
+        for (long s = Math.max(despuesDe + 1, primera); s <= publicadas && cambios.size() < LOTE; s++) {
+            cambios.add(anillo[(int) (s % anillo.length)]);
+        }
+        return cambios;
+    }
+
+    private void latir() {
+        suscripciones.forEach(Suscripcion::latir);
+    }
+
+    public final class Suscripcion {
+        private final Destino destino;
+        private final AtomicBoolean drenando = new AtomicBoolean();
+        private final AtomicBoolean cerrada = new AtomicBoolean();
+        private final AtomicBoolean latidoPendiente = new AtomicBoolean();
+        private volatile long cursor;
+
+        private Suscripcion(long despuesDe, Destino destino) {
+            this.cursor = despuesDe;
+            this.destino = destino;
+        }
+
+        public void cerrar() {
+            if (cerrada.compareAndSet(false, true)) {
+                suscripciones.remove(this);
+                ocupados.decrementAndGet();
+                destino.cerrar();
+            }
+        }
+
+        private void despertar() {
+            if (!cerrada.get() && drenando.compareAndSet(false, true)) {
+                entregas.execute(this::drenar);
+            }
+        }
+
+        // Un solo drenaje en curso por suscripción. Antes de terminar vuelve a mirar si llegó algo
+        // (un cambio o un latido) entre la última lectura y la liberación de la marca, para no perder un aviso
+        private void drenar() {
+            try {
+                while (!cerrada.get()) {
+                    if (latidoPendiente.getAndSet(false)) {
+                        destino.latido();
+                    }
+                    List<Cambio> cambios = leer(cursor);
+                    if (cambios.isEmpty()) {
+                        drenando.set(false);
+                        boolean pendiente = cursor < ultimaSecuencia() || latidoPendiente.get();
+                        if (pendiente && drenando.compareAndSet(false, true)) {
+                            continue;
+                        }
+                        return;
+                    }
+                    long primera = cambios.get(0).secuencia();
+                    if (primera > cursor + 1) {
+                        desbordes.increment();
+                        destino.desbordado(primera);
+                    }
+                    for (Cambio cambio : cambios) {
+                        if (cambio.evento() != null) {
+                            destino.enviar(cambio);
+                        }
+                        cursor = cambio.secuencia();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                cerrar();
+            }
+        }
+
+        // Si hay un drenaje en curso el latido sale entre dos lotes; si no, arranca uno
+        private void latir() {
+            latidoPendiente.set(true);
+            despertar();
+        }
+    }
+
+    private static final class Reserva implements TransactionSynchronization {
+
+        private final FlujoCambios flujo;
+        private final List<ProductoCambiado> eventos = new ArrayList<>();
+        private long primera;
+
+        private Reserva(FlujoCambios flujo) {
+            this.flujo = flujo;
+        }
+
+        // Después de todos los beforeCommit (el Lote de RegistroSalida hace el flush, así cada UPDATE
+        // ya tomó el lock de su fila) y antes del commit. Si la transacción se revierte igual se resuelven
+        @Override
+        public void beforeCompletion() {
+            synchronized (flujo) {
+                primera = flujo.siguiente;
+                flujo.siguiente += eventos.size();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (primera == 0) {
+                return;
+            }
+            flujo.resolver(primera, status == STATUS_COMMITTED
+                    ? eventos
+                    : Collections.nCopies(eventos.size(), null));
+        }
+    }
+}
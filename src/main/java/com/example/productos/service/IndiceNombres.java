@@ -0,0 +1,315 @@
+package com.example.productos.service;
+
+import com.example.productos.repository.IdYNombre;
+import com.example.productos.repository.ProductoRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Autocompletado de nombres en memoria. La base es una TablaSufijos inmutable; los cambios posteriores
+// se acumulan en un pendiente acotado (nombres nuevos + ids descartados de la base) que se compacta
+// en segundo plano al superar "max-pendientes". Las lecturas no toman locks: leen el Estado vigente
+@Component
+@Profile("!reactivo")
+public class IndiceNombres {
+
+    public static final int LIMITE_MAXIMO = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceNombres.class);
+    private static final char SEPARADOR = '\u0000';
+
+    private final ProductoRepository repository;
+    private final TransactionTemplate lectura;
+    private final int maxPendientes;
+    private final ReentrantLock reconstruccion = new ReentrantLock();
+    private final AtomicBoolean compactacionEnCurso = new AtomicBoolean();
+    private final ExecutorService compactador = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("indice-nombres").daemon().factory());
+
+    private volatile Estado estado = new Estado(TablaSufijos.VACIA);
+    // Cambios recibidos mientras se arma una base nueva; se vuelven a aplicar sobre ella. Protegido por "this"
+    private List<ProductoCambiado> cambiosDuranteReconstruccion;
+
+    public IndiceNombres(ProductoRepository repository, PlatformTransactionManager transactionManager,
+                         @Value("${productos.sugerencias.max-pendientes:10000}") int maxPendientes) {
+        if (maxPendientes < 1) {
+            throw new IllegalArgumentException("productos.sugerencias.max-pendientes debe ser mayor que cero");
+        }
+        this.repository = repository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.maxPendientes = maxPendientes;
+    }
+
+    // Productos cuyo nombre tiene alguna palabra que empieza con "consulta" (sin distinguir mayúsculas
+    // ni tildes), en orden alfabético del texto que coincide a partir de esa palabra
+    @Timed("productos.servicio")
+    public List<Sugerencia> sugerir(String consulta, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El limite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        String prefijo = consulta == null ? "" : TablaSufijos.normalizar(consulta);
+        if (prefijo.isEmpty()) {
+            return List.of();
+        }
+        Estado actual = estado;
+        List<Candidato> candidatos = new ArrayList<>();
+
+        Set<Long> vistos = new HashSet<>();
+        TablaSufijos base = actual.base;
+        base.recorrer(prefijo.getBytes(StandardCharsets.UTF_8), entrada -> {
+            long id = base.id(TablaSufijos.documento(entrada));
+            if (!actual.descartados.contains(id) && vistos.add(id)) {
+                candidatos.add(new Candidato(base.sufijo(entrada), id, base.nombre(TablaSufijos.documento(entrada))));
+            }
+            return vistos.size() < limite;
+        });
+
+        vistos.clear();
+        for (Map.Entry<String, Long> e : actual.claves.subMap(prefijo, prefijo + Character.MAX_VALUE).entrySet()) {
+            String nombre = actual.nombres.get(e.getValue());
+            if (nombre != null && vistos.add(e.getValue())) {
+                String clave = e.getKey();
+                candidatos.add(new Candidato(clave.substring(0, clave.indexOf(SEPARADOR)), e.getValue(), nombre));
+                if (vistos.size() == limite) {
+                    break;
+                }
+            }
+        }
+
+        candidatos.sort(Comparator.comparing(Candidato::clave).thenComparingLong(Candidato::id));
+        vistos.clear();
+        List<Sugerencia> sugerencias = new ArrayList<>(limite);
+        for (Candidato c : candidatos) {
+            if (sugerencias.size() < limite && vistos.add(c.id)) {
+                sugerencias.add(new Sugerencia(c.id, c.nombre));
+            }
+        }
+        return sugerencias;
+    }
+
+    // Vuelve a leer todos los nombres de la base de datos y reemplaza el índice. Devuelve cuántos indexó
+    @Timed("productos.servicio")
+    public int reconstruir() {
+        reconstruccion.lock();
+        try {
+            return reemplazarBase(this::leerDeLaBase);
+        } finally {
+            reconstruccion.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        long inicio = System.nanoTime();
+        int productos = reconstruir();
+        log.info("Índice de nombres construido con {} productos en {} ms", productos, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    // Solo después del commit: un rollback no debe dejar sugerencias de productos que no existen.
+    // Fuera de una transacción (fallbackExecution) se aplica en el momento. Los cambios que no tocan
+    // el nombre (precio, stock) no modifican el índice
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiar(ProductoCambiado cambio) {
+        int pendientes;
+        synchronized (this) {
+            aplicar(estado, cambio);
+            if (cambiosDuranteReconstruccion != null) {
+                cambiosDuranteReconstruccion.add(cambio);
+            }
+            pendientes = pendientes();
+        }
+        if (pendientes > maxPendientes && compactacionEnCurso.compareAndSet(false, true)) {
+            compactador.execute(this::compactar);
+        }
+    }
+
+    public int productosIndexados() {
+        Estado actual = estado;
+        return actual.base.documentos() - actual.descartados.size() + actual.nombres.size();
+    }
+
+    // Cambios aplicados desde que se armó la base vigente
+    int pendientes() {
+        Estado actual = estado;
+        return actual.nombres.size() + actual.descartados.size();
+    }
+
+    // Aproximado: arreglos de la base más unos 100 bytes por entrada pendiente
+    public long bytesEstimados() {
+        Estado actual = estado;
+        return actual.base.bytesEstimados() + 100L * (actual.claves.size() + actual.nombres.size() + actual.descartados.size());
+    }
+
+    @PreDestroy
+    void detener() {
+        compactador.shutdownNow();
+    }
+
+    private void compactar() {
+        try {
+            if (reconstruccion.tryLock()) {
+                try {
+                    reemplazarBase(this::copiarEstado);
+                } finally {
+                    reconstruccion.unlock();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo compactar el índice de nombres", e);
+        } finally {
+            compactacionEnCurso.set(false);
+        }
+    }
+
+    // Arma la base nueva sin bloquear a lectores ni escritores; los cambios que lleguen mientras
+    // tanto se aplican también sobre el estado nuevo (son idempotentes: id y nombre final)
+    private int reemplazarBase(Supplier<TablaSufijos> fuente) {
+        synchronized (this) {
+            cambiosDuranteReconstruccion = new ArrayList<>();
+        }
+        TablaSufijos base;
+        try {
+            base = fuente.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                cambiosDuranteReconstruccion = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            Estado nuevo = new Estado(base);
+            cambiosDuranteReconstruccion.forEach(c -> aplicar(nuevo, c));
+            cambiosDuranteReconstruccion = null;
+            estado = nuevo;
+            return productosIndexados();
+        }
+    }
+
+    private TablaSufijos leerDeLaBase() {
+        Acumulador acumulador = new Acumulador();
+        lectura.executeWithoutResult(status -> {
+            try (Stream<IdYNombre> filas = repository.streamNombres()) {
+                filas.forEach(f -> acumulador.agregar(f.id(), f.nombre()));
+            }
+        });
+        return acumulador.construir();
+    }
+
+    private TablaSufijos copiarEstado() {
+        Acumulador acumulador = new Acumulador();
+        synchronized (this) {
+            Estado actual = estado;
+            for (int d = 0; d < actual.base.documentos(); d++) {
+                long id = actual.base.id(d);
+                if (!actual.descartados.contains(id)) {
+                    acumulador.agregar(id, actual.base.nombre(d));
+                }
+            }
+            actual.nombres.forEach(acumulador::agregar);
+        }
+        return acumulador.construir();
+    }
+
+    // Llamado con el monitor tomado: los escritores se serializan, los lectores no esperan
+    private static void aplicar(Estado estado, ProductoCambiado cambio) {
+        if (!cambio.esEliminacion() && (cambio.nombre() == null || cambio.nombre().equals(nombreActual(estado, cambio.id())))) {
+            return;
+        }
+        String anterior = estado.nombres.remove(cambio.id());
+        if (anterior != null) {
+            for (String clave : claves(cambio.id(), anterior)) {
+                estado.claves.remove(clave);
+            }
+        }
+        if (estado.base.contiene(cambio.id())) {
+            estado.descartados.add(cambio.id());
+        }
+        if (!cambio.esEliminacion()) {
+            for (String clave : claves(cambio.id(), cambio.nombre())) {
+                estado.claves.put(clave, cambio.id());
+            }
+            estado.nombres.put(cambio.id(), cambio.nombre());
+        }
+    }
+
+    private static String nombreActual(Estado estado, Long id) {
+        String pendiente = estado.nombres.get(id);
+        if (pendiente != null || estado.descartados.contains(id)) {
+            return pendiente;
+        }
+        int documento = estado.base.documentoDe(id);
+        return documento < 0 ? null : estado.base.nombre(documento);
+    }
+
+    // Misma forma que las entradas de TablaSufijos: un sufijo por cada comienzo de palabra
+    private static List<String> claves(Long id, String nombre) {
+        String normalizado = TablaSufijos.normalizar(nombre);
+        List<String> claves = new ArrayList<>();
+        for (int i = 0; i < normalizado.length(); i++) {
+            if (i == 0 || normalizado.charAt(i - 1) == ' ') {
+                claves.add(normalizado.substring(i) + SEPARADOR + id);
+            }
+        }
+        return claves;
+    }
+
+    private static final class Estado {
+        final TablaSufijos base;
+        // "sufijo\0id" -> id de los productos creados o renombrados desde que se armó la base
+        final ConcurrentSkipListMap<String, Long> claves = new ConcurrentSkipListMap<>();
+        final Map<Long, String> nombres = new ConcurrentHashMap<>();
+        // Ids cuyas entradas en la base ya no valen (renombrados o eliminados)
+        final Set<Long> descartados = ConcurrentHashMap.newKeySet();
+
+        Estado(TablaSufijos base) {
+            this.base = base;
+        }
+    }
+
+    private record Candidato(String clave, long id, String nombre) {
+    }
+
+    private static final class Acumulador {
+        private long[] ids = new long[1024];
+        private final List<String> nombres = new ArrayList<>();
+
+        void agregar(long id, String nombre) {
+            if (nombres.size() == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[nombres.size()] = id;
+            nombres.add(nombre);
+        }
+
+        TablaSufijos construir() {
+            return TablaSufijos.construir(Arrays.copyOf(ids, nombres.size()), nombres);
+        }
+    }
+}
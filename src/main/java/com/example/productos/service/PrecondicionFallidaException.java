@@ -0,0 +1,8 @@
+package com.example.productos.service;
+
+// La versión indicada por el cliente (If-Match) no coincide con la versión actual del producto
+public class PrecondicionFallidaException extends RuntimeException {
+    public PrecondicionFallidaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.productos.service;
+
+import java.math.BigDecimal;
+
+// Elemento de una carga masiva: se crea o se actualiza según exista un producto con el mismo nombre
+public record ProductoBulkItem(String nombre, BigDecimal precio, Integer stock) {
+}
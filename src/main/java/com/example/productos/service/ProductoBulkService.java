@@ -0,0 +1,148 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@Profile("!reactivo")
+@Timed("productos.servicio")
+public class ProductoBulkService {
+
+    private final ProductoRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final EscrituraDiferida escrituraDiferida;
+    private final CacheProductos cache;
+    private final int tamanoLote;
+
+    public ProductoBulkService(ProductoRepository repository, EntityManager entityManager,
+                               PlatformTransactionManager transactionManager, ApplicationEventPublisher eventos,
+                               EscrituraDiferida escrituraDiferida, CacheProductos cache,
+                               @Value("${productos.bulk.tamano-lote:500}") int tamanoLote) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("productos.bulk.tamano-lote debe ser mayor que cero");
+        }
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.escrituraDiferida = escrituraDiferida;
+        this.cache = cache;
+        this.tamanoLote = tamanoLote;
+    }
+
+    // Consume los elementos de a "tamanoLote": cada lote es una transacción que se
+    // escribe con inserts/updates en batch JDBC, así el iterador puede venir de un stream.
+    // Las cachés se invalidan al confirmar cada lote (CacheProductos.invalidarAlConfirmar), no al final: si el
+    // stream falla a mitad de camino, los lotes ya confirmados no quedan tapados por entradas viejas
+    public List<ResultadoBulk> procesar(Iterator<ProductoBulkItem> items) {
+        List<ResultadoBulk> resultados = new ArrayList<>();
+        List<ProductoBulkItem> lote = new ArrayList<>(tamanoLote);
+        while (items.hasNext()) {
+            lote.add(items.next());
+            if (lote.size() == tamanoLote) {
+                resultados.addAll(procesarLote(lote, resultados.size()));
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            resultados.addAll(procesarLote(lote, resultados.size()));
+        }
+        return resultados;
+    }
+
+    private List<ResultadoBulk> procesarLote(List<ProductoBulkItem> lote, int primerIndice) {
+        try {
+            return transactionTemplate.execute(status -> upsert(lote, primerIndice));
+        } catch (DataAccessException e) {
+            // Un error de base de datos revierte el lote completo
+            String mensaje = "Lote revertido: " + e.getMostSpecificCause().getMessage();
+            List<ResultadoBulk> fallidos = new ArrayList<>(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                fallidos.add(ResultadoBulk.error(primerIndice + i, lote.get(i).nombre(), mensaje));
+            }
+            return fallidos;
+        }
+    }
+
+    private List<ResultadoBulk> upsert(List<ProductoBulkItem> lote, int primerIndice) {
+        Set<String> nombres = new HashSet<>();
+        for (ProductoBulkItem item : lote) {
+            if (item.nombre() != null) {
+                nombres.add(item.nombre());
+            }
+        }
+        // Una sola consulta por lote para resolver qué nombres ya existen
+        Map<String, Producto> existentes = new HashMap<>();
+        for (Producto p : repository.findByNombreIn(nombres)) {
+            existentes.put(p.getNombre(), p);
+        }
+        // Las altas no pueden estar en la caché por id; por nombre sí (un nombre que se buscó y no existía)
+        cache.invalidarAlConfirmar(existentes.values().stream().map(Producto::getId).toList());
+
+        List<ResultadoBulk> resultados = new ArrayList<>(lote.size());
+        // Nombre -> primer estado en el lote, en orden de aparición: un alta repetida sigue siendo un alta
+        Map<String, ResultadoBulk.Estado> cambios = new LinkedHashMap<>();
+        for (int i = 0; i < lote.size(); i++) {
+            ProductoBulkItem item = lote.get(i);
+            int indice = primerIndice + i;
+            try {
+                validar(item);
+            } catch (IllegalArgumentException e) {
+                resultados.add(ResultadoBulk.error(indice, item.nombre(), e.getMessage()));
+                continue;
+            }
+            Producto producto = existentes.get(item.nombre());
+            ResultadoBulk.Estado estado;
+            if (producto == null) {
+                producto = new Producto(item.nombre(), item.precio(), item.stock());
+                entityManager.persist(producto);
+                existentes.put(item.nombre(), producto);
+                estado = ResultadoBulk.Estado.CREADO;
+            } else {
+                // El elemento reemplaza precio y stock: lo pendiente de la escritura diferida ya no aplica
+                escrituraDiferida.retirar(producto.getId());
+                producto.setPrecio(item.precio());
+                producto.setStock(item.stock());
+                estado = ResultadoBulk.Estado.ACTUALIZADO;
+            }
+            cambios.putIfAbsent(item.nombre(), estado);
+            resultados.add(new ResultadoBulk(indice, producto.getId(), item.nombre(), estado, null));
+        }
+        entityManager.flush();
+        // Después del flush, para que los eventos lleven la versión que quedó en la base
+        cambios.forEach((nombre, estado) -> {
+            Producto producto = existentes.get(nombre);
+            eventos.publishEvent(estado == ResultadoBulk.Estado.CREADO
+                    ? ProductoCambiado.creado(producto)
+                    : ProductoCambiado.actualizado(producto));
+        });
+        entityManager.clear();
+        return resultados;
+    }
+
+    static void validar(ProductoBulkItem item) {
+        ProductoService.validarNombre(item.nombre());
+        ProductoService.validarPrecio(item.precio());
+        ProductoService.validarStock(item.stock());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.Producto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+// Evento de dominio con el estado del producto después del cambio. Los ajustes de stock son un
+// UPDATE directo sin leer la fila: informan el delta y no el stock resultante
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductoCambiado(Tipo tipo, Long id, String nombre, BigDecimal precio, Integer stock, Long version,
+                               Integer delta) {
+
+    public enum Tipo { CREADO, ACTUALIZADO, ELIMINADO, STOCK_AJUSTADO }
+
+    public static ProductoCambiado creado(Producto p) {
+        return new ProductoCambiado(Tipo.CREADO, p.getId(), p.getNombre(), p.getPrecio(), p.getStock(), p.getVersion(), null);
+    }
+
+    public static ProductoCambiado actualizado(Producto p) {
+        return new ProductoCambiado(Tipo.ACTUALIZADO, p.getId(), p.getNombre(), p.getPrecio(), p.getStock(), p.getVersion(), null);
+    }
+
+    public static ProductoCambiado eliminado(Long id) {
+        return new ProductoCambiado(Tipo.ELIMINADO, id, null, null, null, null, null);
+    }
+
+    public static ProductoCambiado stockAjustado(Long id, int delta) {
+        return new ProductoCambiado(Tipo.STOCK_AJUSTADO, id, null, null, null, null, delta);
+    }
+
+    public boolean esEliminacion() {
+        return tipo == Tipo.ELIMINADO;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoReactivoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Mismas reglas que ProductoService y ProductoBulkService sobre R2DBC (perfil "reactivo").
+// Los errores de validación viajan por el Mono/Flux en lugar de lanzarse al invocar
+@Service
+@Profile("reactivo")
+@Transactional
+public class ProductoReactivoService {
+
+    private final ProductoReactivoRepository repository;
+    private final TransactionalOperator porLote;
+    private final int tamanoLote;
+
+    public ProductoReactivoService(ProductoReactivoRepository repository, ReactiveTransactionManager transactionManager,
+                                   @Value("${productos.bulk.tamano-lote:500}") int tamanoLote) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("productos.bulk.tamano-lote debe ser mayor que cero");
+        }
+        this.repository = repository;
+        this.porLote = TransactionalOperator.create(transactionManager);
+        this.tamanoLote = tamanoLote;
+    }
+
+    @Transactional(readOnly = true)
+    public Mono<List<Producto>> listarPagina(long despuesDe, int limite) {
+        if (limite < 1 || limite > ProductoService.LIMITE_MAXIMO) {
+            return Mono.error(new IllegalArgumentException("El limite debe estar entre 1 y " + ProductoService.LIMITE_MAXIMO));
+        }
+        return repository.findByIdGreaterThanOrderByIdAsc(despuesDe, limite).collectList();
+    }
+
+    @Transactional(readOnly = true)
+    public Flux<Producto> recorrer(long despuesDe) {
+        return repository.streamByIdGreaterThan(despuesDe);
+    }
+
+    public Mono<Producto> crear(String nombre, BigDecimal precio, Integer stock) {
+        return Mono.fromRunnable(() -> {
+                    ProductoService.validarNombre(nombre);
+                    ProductoService.validarPrecio(precio);
+                    ProductoService.validarStock(stock);
+                })
+                .then(Mono.defer(() -> repository.insertar(nombre, precio, stock)));
+    }
+
+    @Transactional(readOnly = true)
+    public Mono<Producto> obtenerPorId(Long id) {
+        return repository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Producto no encontrado: " + id)));
+    }
+
+    public Mono<Void> eliminar(Long id, Long versionEsperada) {
+        if (versionEsperada == null) {
+            return repository.eliminarPorId(id)
+                    .flatMap(filas -> filas == 0 ? Mono.error(new NotFoundException("Producto no encontrado: " + id)) : Mono.empty());
+        }
+        return repository.eliminarPorIdYVersion(id, versionEsperada)
+                .flatMap(filas -> filas > 0 ? Mono.empty() : fallaDeEliminacion(id, versionEsperada));
+    }
+
+    public Mono<Producto> actualizar(Long id, String nombre, BigDecimal precio, Integer stock, Long versionEsperada) {
+        return Mono.fromRunnable(() -> {
+                    ProductoService.validarNombre(nombre);
+                    ProductoService.validarPrecio(precio);
+                    ProductoService.validarStock(stock);
+                })
+                .then(obtenerPorId(id))
+                .flatMap(existente -> {
+                    ProductoService.verificarVersion(existente, versionEsperada);
+                    existente.setNombre(nombre);
+                    existente.setPrecio(precio);
+                    existente.setStock(stock);
+                    return guardar(existente);
+                });
+    }
+
+    public Mono<Producto> actualizarParcial(Long id, String nombre, BigDecimal precio, Integer stock, Long versionEsperada) {
+        return Mono.fromRunnable(() -> {
+                    if (nombre != null) {
+                        ProductoService.validarNombre(nombre);
+                    }
+                    if (precio != null) {
+                        ProductoService.validarPrecio(precio);
+                    }
+                    if (stock != null) {
+                        ProductoService.validarStock(stock);
+                    }
+                })
+                .then(obtenerPorId(id))
+                .flatMap(existente -> {
+                    ProductoService.verificarVersion(existente, versionEsperada);
+                    if (nombre != null) {
+                        existente.setNombre(nombre);
+                    }
+                    if (precio != null) {
+                        existente.setPrecio(precio);
+                    }
+                    if (stock != null) {
+                        existente.setStock(stock);
+                    }
+                    return guardar(existente);
+                });
+    }
+
+    public Mono<Void> ajustarStock(Long id, int delta) {
+        return repository.ajustarStock(id, delta)
+                .flatMap(filas -> filas > 0 ? Mono.empty() : fallaDeAjuste(id, delta));
+    }
+
+    // Todo o nada y en orden de id, igual que ProductoService.ajustarStock(List)
+    public Mono<Void> ajustarStock(List<AjusteStock> ajustes) {
+        for (AjusteStock ajuste : ajustes) {
+            if (ajuste == null || ajuste.id() == null || ajuste.delta() == null) {
+                return Mono.error(new IllegalArgumentException("Cada ajuste necesita id y delta"));
+            }
+        }
+        List<AjusteStock> ordenados = new ArrayList<>(ajustes);
+        ordenados.sort(Comparator.comparing(AjusteStock::id));
+        return Flux.fromIterable(ordenados)
+                .concatMap(ajuste -> ajustarStock(ajuste.id(), ajuste.delta()))
+                .then();
+    }
+
+    // Carga masiva: un lote de "tamanoLote" elementos por transacción, procesados en orden.
+    // Un error de base de datos revierte el lote completo, como en ProductoBulkService
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<ResultadoBulk> procesar(Flux<ProductoBulkItem> items) {
+        AtomicInteger siguienteIndice = new AtomicInteger();
+        return items.buffer(tamanoLote)
+                .concatMap(lote -> {
+                    int primerIndice = siguienteIndice.getAndAdd(lote.size());
+                    return porLote.transactional(upsert(lote, primerIndice))
+                            .onErrorResume(DataAccessException.class, e -> Flux.fromIterable(revertido(lote, primerIndice, e)));
+                });
+    }
+
+    private Flux<ResultadoBulk> upsert(List<ProductoBulkItem> lote, int primerIndice) {
+        Set<String> nombres = new HashSet<>();
+        for (ProductoBulkItem item : lote) {
+            if (item.nombre() != null) {
+                nombres.add(item.nombre());
+            }
+        }
+        // Una sola consulta por lote para resolver qué nombres ya existen
+        return repository.findByNombreIn(nombres)
+                .collectMap(Producto::getNombre, p -> p, HashMap::new)
+                .flatMapMany(existentes -> Flux.range(0, lote.size())
+                        .concatMap(i -> upsert(lote.get(i), primerIndice + i, existentes)))
+                // Se acumula el lote completo para que un rollback no deje resultados ya emitidos
+                .collectList()
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    private Mono<ResultadoBulk> upsert(ProductoBulkItem item, int indice, Map<String, Producto> existentes) {
+        try {
+            ProductoBulkService.validar(item);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResultadoBulk.error(indice, item.nombre(), e.getMessage()));
+        }
+        Producto producto = existentes.get(item.nombre());
+        if (producto == null) {
+            return repository.insertar(item.nombre(), item.precio(), item.stock())
+                    .doOnNext(creado -> existentes.put(creado.getNombre(), creado))
+                    .map(creado -> new ResultadoBulk(indice, creado.getId(), item.nombre(), ResultadoBulk.Estado.CREADO, null));
+        }
+        producto.setPrecio(item.precio());
+        producto.setStock(item.stock());
+        return guardar(producto)
+                .map(actualizado -> new ResultadoBulk(indice, actualizado.getId(), item.nombre(), ResultadoBulk.Estado.ACTUALIZADO, null));
+    }
+
+    private static List<ResultadoBulk> revertido(List<ProductoBulkItem> lote, int primerIndice, DataAccessException e) {
+        String mensaje = "Lote revertido: " + e.getMostSpecificCause().getMessage();
+        List<ResultadoBulk> fallidos = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            fallidos.add(ResultadoBulk.error(primerIndice + i, lote.get(i).nombre(), mensaje));
+        }
+        return fallidos;
+    }
+
+    // El UPDATE compara la versión leída; si otra transacción escribió entre medio no afecta filas
+    private Mono<Producto> guardar(Producto producto) {
+        return repository.actualizar(producto).flatMap(filas -> {
+            if (filas == 0) {
+                return Mono.error(new OptimisticLockingFailureException(
+                        "El producto " + producto.getId() + " fue modificado por otra transacción"));
+            }
+            producto.setVersion(producto.getVersion() + 1);
+            return Mono.just(producto);
+        });
+    }
+
+    private Mono<Void> fallaDeEliminacion(Long id, Long versionEsperada) {
+        return repository.existsById(id).flatMap(existe -> Mono.error(existe
+                ? new PrecondicionFallidaException("La versión del producto " + id + " no es " + versionEsperada)
+                : new NotFoundException("Producto no encontrado: " + id)));
+    }
+
+    // Mismos casos que ProductoService.fallaDeAjuste
+    private Mono<Void> fallaDeAjuste(Long id, int delta) {
+        return repository.existsById(id).flatMap(existe -> Mono.error(!existe
+                ? new NotFoundException("Producto no encontrado: " + id)
+                : delta > 0
+                ? ProductoService.excedeStockMaximo(id, delta)
+                : new StockInsuficienteException("Stock insuficiente para el producto " + id)));
+    }
+
+}
@@ -1,82 +1,527 @@
 package com.example.productos.service;
 
+import com.example.productos.config.CacheConfig;
 import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoProyecciones;
 import com.example.productos.repository.ProductoRepository;
+import com.example.productos.repository.ProductoSpecs;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
+@Profile("!reactivo")
+@Timed("productos.servicio")
 @Transactional
 public class ProductoService {
 
+    public static final int LIMITE_MAXIMO = 1000;
+    public static final Set<String> PROPIEDADES_ORDENABLES = Set.of("id", "nombre", "precio", "stock");
+
     private final ProductoRepository repository;
+    private final EntityManager entityManager;
+    private final CacheProductos cache;
+    private final ApplicationEventPublisher eventos;
+    private final EscrituraDiferida escrituraDiferida;
+    private final VueloUnico<Long, Producto> lecturasPorId;
+    private final VueloUnico<String, Producto> lecturasPorNombre;
+    private final int maxIdsMget;
+    private final int tamanoConsultaMget;
 
-    public ProductoService(ProductoRepository repository) {
+    public ProductoService(ProductoRepository repository, EntityManager entityManager, CacheProductos cache,
+                           ApplicationEventPublisher eventos, EscrituraDiferida escrituraDiferida,
+                           MeterRegistry registry,
+                           @Value("${productos.lecturas.espera:2s}") Duration esperaLecturas,
+                           @Value("${productos.mget.max-ids:1000}") int maxIdsMget,
+                           @Value("${productos.mget.tamano-consulta:500}") int tamanoConsultaMget) {
+        if (maxIdsMget < 1 || tamanoConsultaMget < 1) {
+            throw new IllegalArgumentException("productos.mget.max-ids y tamano-consulta deben ser mayores que cero");
+        }
         this.repository = repository;
+        this.entityManager = entityManager;
+        this.cache = cache;
+        this.eventos = eventos;
+        this.escrituraDiferida = escrituraDiferida;
+        this.lecturasPorId = new VueloUnico<>("porId", esperaLecturas, registry);
+        this.lecturasPorNombre = new VueloUnico<>("porNombre", esperaLecturas, registry);
+        this.maxIdsMget = maxIdsMget;
+        this.tamanoConsultaMget = tamanoConsultaMget;
     }
 
+    // Las lecturas van en transacciones de solo lectura: Hibernate no hace flush ni guarda snapshots
+    // para dirty checking, la conexión se marca readOnly y, con réplica configurada, se atienden ahí
+    @Transactional(readOnly = true)
     public List<Producto> listar() {
         return repository.findAll();
     }
 
-    public Producto crear(String nombre, BigDecimal precio, Integer stock) {
-        if (precio.compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("El precio no puede ser negativo");
+    // Devuelve como máximo "limite" productos con id mayor que "despuesDe", ordenados por id
+    @Transactional(readOnly = true)
+    public List<Producto> listarPagina(long despuesDe, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El limite debe estar entre 1 y " + LIMITE_MAXIMO);
         }
-        if (stock < 0) {
-            throw new IllegalArgumentException("El stock no puede ser negativo");
+        return repository.findByIdGreaterThanOrderByIdAsc(despuesDe, Limit.of(limite));
+    }
+
+    // Como listarPagina pero solo con los campos pedidos (más el id, que es el cursor), leídos como
+    // tuplas: sin entidades administradas, snapshots para dirty checking ni columnas que no se usan
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> listarCampos(Collection<String> campos, long despuesDe, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El limite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        LinkedHashSet<String> seleccion = new LinkedHashSet<>();
+        seleccion.add("id");
+        for (String campo : campos) {
+            if (campo.isBlank()) {
+                continue;
+            }
+            if (!ProductoProyecciones.CAMPOS.contains(campo.trim())) {
+                throw new IllegalArgumentException("Campo desconocido: " + campo.trim());
+            }
+            seleccion.add(campo.trim());
+        }
+        return repository.listarCampos(seleccion, despuesDe, limite);
+    }
+
+    // Búsqueda por criterios con paginación keyset sobre el orden pedido (Spring Data agrega el id
+    // como desempate). La ventana trae limite + 1 filas para saber si hay más, sin un COUNT aparte
+    @Transactional(readOnly = true)
+    public Window<Producto> buscar(FiltroProductos filtro, Sort orden, int limite, KeysetScrollPosition posicion) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El limite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        if (filtro.precioMin() != null && filtro.precioMax() != null && filtro.precioMin().compareTo(filtro.precioMax()) > 0) {
+            throw new IllegalArgumentException("precioMin no puede ser mayor que precioMax");
         }
-        Producto p = new Producto(nombre, precio, stock);
-        return repository.save(p);
+        if (filtro.stockMin() != null && filtro.stockMax() != null && filtro.stockMin() > filtro.stockMax()) {
+            throw new IllegalArgumentException("stockMin no puede ser mayor que stockMax");
+        }
+        for (Sort.Order o : orden) {
+            if (!PROPIEDADES_ORDENABLES.contains(o.getProperty())) {
+                throw new IllegalArgumentException("No se puede ordenar por " + o.getProperty());
+            }
+        }
+        Specification<Producto> criterios = Specification.allOf(
+                ProductoSpecs.nombreEmpiezaCon(filtro.nombre()),
+                ProductoSpecs.nombreContiene(filtro.contiene()),
+                ProductoSpecs.precioEntre(filtro.precioMin(), filtro.precioMax()),
+                ProductoSpecs.stockEntre(filtro.stockMin(), filtro.stockMax()));
+        return repository.findBy(criterios, q -> q.sortBy(orden).limit(limite).scroll(posicion));
+    }
+
+    // Entrega cada producto al consumidor a medida que se lee y lo separa del contexto
+    // de persistencia para que la memoria no crezca con el tamaño de la tabla
+    @Transactional(readOnly = true)
+    public void recorrer(long despuesDe, Consumer<Producto> consumidor) {
+        try (Stream<Producto> productos = repository.streamByIdGreaterThan(despuesDe)) {
+            productos.forEach(p -> {
+                consumidor.accept(p);
+                entityManager.detach(p);
+            });
+        }
+    }
+
+    public Producto crear(String nombre, BigDecimal precio, Integer stock) {
+        validarNombre(nombre);
+        validarPrecio(precio);
+        validarStock(stock);
+        Producto p = repository.save(new Producto(nombre, precio, stock));
+        eventos.publishEvent(ProductoCambiado.creado(p));
+        return p;
     }
 
+    // La fila de la base con lo que la escritura diferida todavía no escribió superpuesto después de
+    // buscarla: la caché guarda solo la fila, así un acierto no esconde un PATCH pendiente y lo
+    // superpuesto no queda ahí cuando se escribe. Las peticiones simultáneas del mismo id que no la
+    // encuentran en la caché comparten una sola consulta (ver filaPorId)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Producto obtenerPorId(Long id) {
-        return repository.findById(id).orElseThrow(() -> new NotFoundException("Producto no encontrado: " + id));
+        return escrituraDiferida.leer(() -> filaPorId(id));
+    }
+
+    // Búsqueda exacta por nombre (distingue mayúsculas), con la caché productosPorNombre y la misma
+    // consulta compartida entre peticiones simultáneas que obtenerPorId. Solo se cachean los
+    // aciertos: crear un producto no necesita invalidarla
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Producto obtenerPorNombre(String nombre) {
+        validarNombre(nombre);
+        return escrituraDiferida.leer(() -> filaPorNombre(nombre));
+    }
+
+    // Varios productos por id, en el orden pedido (con repetidos) y con los inexistentes marcados.
+    // Lo que está en la caché productos no se consulta; el resto se lee con un SELECT ... IN por cada
+    // productos.mget.tamano-consulta ids distintos y queda en la caché para las lecturas siguientes
+    // (salvo que una escritura lo haya superado desde antes de la consulta, como en obtenerPorId).
+    // Lo pendiente de la escritura diferida se superpone a todo, venga de la caché o de la base
+    @Transactional(readOnly = true)
+    public List<ResultadoMget> obtenerVarios(List<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("Los ids son obligatorios");
+        }
+        if (ids.size() > maxIdsMget) {
+            throw new IllegalArgumentException("Se pueden pedir como máximo " + maxIdsMget + " ids");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Los ids no pueden ser nulos");
+        }
+        Set<Long> distintos = new LinkedHashSet<>(ids);
+        Map<Long, Producto> encontrados = new HashMap<>();
+        for (Producto producto : escrituraDiferida.leerTodos(() -> filas(distintos))) {
+            encontrados.put(producto.getId(), producto);
+        }
+        return ids.stream().map(id -> ResultadoMget.de(id, encontrados.get(id))).toList();
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true)
+    })
     public void eliminar(Long id) {
-        if (!repository.existsById(id)) {
+        eliminar(id, null);
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true)
+    })
+    public void eliminar(Long id, Long versionEsperada) {
+        eliminar(id, versionEsperada, null);
+    }
+
+    // Una sola sentencia: el DELETE informa si la fila existía (y si tenía la versión esperada).
+    // Solo cuando no borra nada se consulta la existencia, para distinguir 404 de 412. La revisión
+    // esperada es la de lo pendiente de la escritura diferida, si el ETag la llevaba (ver verificarPendiente)
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true)
+    })
+    public void eliminar(Long id, Long versionEsperada, Long revisionEsperada) {
+        Optional<EscrituraDiferida.Pendiente> pendiente = escrituraDiferida.retirar(id);
+        if (versionEsperada != null) {
+            verificarPendiente(id, versionEsperada, revisionEsperada, pendiente);
+        }
+        cache.avanzarAlConfirmar(id);
+        if (versionEsperada == null) {
+            if (repository.eliminarPorId(id) == 0) {
+                throw new NotFoundException("Producto no encontrado: " + id);
+            }
+            eventos.publishEvent(ProductoCambiado.eliminado(id));
+            return;
+        }
+        if (repository.eliminarPorIdYVersion(id, versionEsperada) == 0) {
+            if (repository.existsById(id)) {
+                throw new PrecondicionFallidaException("La versión del producto " + id + " no es " + versionEsperada);
+            }
             throw new NotFoundException("Producto no encontrado: " + id);
         }
-        repository.deleteById(id);
+        eventos.publishEvent(ProductoCambiado.eliminado(id));
     }
 
     // Se agrega nuevo Método para actualizar un producto completo
+    @Caching(put = @CachePut(cacheNames = CacheConfig.PRODUCTOS, key = "#result.id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true))
     public Producto actualizar(Producto producto) {
-        if (producto.getPrecio().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("El precio no puede ser negativo");
-        }
-        if (producto.getStock() < 0) {
-            throw new IllegalArgumentException("El stock no puede ser negativo");
-        }
-        if (!repository.existsById(producto.getId())) {
-            throw new NotFoundException("Producto no encontrado: " + producto.getId());
-        }
-        return repository.save(producto);
+        return actualizar(producto.getId(), producto.getNombre(), producto.getPrecio(), producto.getStock(), null);
+    }
+
+    @Caching(put = @CachePut(cacheNames = CacheConfig.PRODUCTOS, key = "#id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true))
+    public Producto actualizar(Long id, String nombre, BigDecimal precio, Integer stock, Long versionEsperada) {
+        return actualizar(id, nombre, precio, stock, versionEsperada, null);
+    }
+
+    // Reemplaza todos los campos; valida antes de tocar la entidad para no dejarla a medio modificar.
+    // Una carga (que puede resolverse en la caché de segundo nivel) y un flush con el UPDATE, que
+    // además comprueba la versión en el WHERE por si otra transacción escribió entre medio
+    @Caching(put = @CachePut(cacheNames = CacheConfig.PRODUCTOS, key = "#id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true))
+    public Producto actualizar(Long id, String nombre, BigDecimal precio, Integer stock, Long versionEsperada,
+                               Long revisionEsperada) {
+        validarNombre(nombre);
+        validarPrecio(precio);
+        validarStock(stock);
+        Producto existente = cargarParaEscribir(id, versionEsperada, revisionEsperada);
+        cache.avanzarAlConfirmar(id);
+        existente.setNombre(nombre);
+        existente.setPrecio(precio);
+        existente.setStock(stock);
+        repository.flush();
+        eventos.publishEvent(ProductoCambiado.actualizado(existente));
+        return existente;
     }
 
     // Se agrega nuevo Método para actualizar un producto parcialmente
+    @Caching(put = @CachePut(cacheNames = CacheConfig.PRODUCTOS, key = "#id", unless = "#result.revisionPendiente != null"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true))
     public Producto actualizarParcial(Long id, String nombre, BigDecimal precio, Integer stock) {
-        Producto existente = obtenerPorId(id);
+        return actualizarParcial(id, nombre, precio, stock, null);
+    }
+
+    @Caching(put = @CachePut(cacheNames = CacheConfig.PRODUCTOS, key = "#id", unless = "#result.revisionPendiente != null"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true))
+    public Producto actualizarParcial(Long id, String nombre, BigDecimal precio, Integer stock, Long versionEsperada) {
+        return actualizarParcial(id, nombre, precio, stock, versionEsperada, null);
+    }
+
+    // Con escritura diferida, un cambio solo de precio y/o stock sin If-Match queda en memoria y se
+    // responde con el producto como quedará; la versión cambia recién cuando se escribe, el ETag ya
+    // (lleva la revisión de lo pendiente). Como en obtenerPorId, ese estado no va a la caché
+    @Caching(put = @CachePut(cacheNames = CacheConfig.PRODUCTOS, key = "#id", unless = "#result.revisionPendiente != null"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true))
+    public Producto actualizarParcial(Long id, String nombre, BigDecimal precio, Integer stock, Long versionEsperada,
+                                      Long revisionEsperada) {
+        if (nombre != null) {
+            validarNombre(nombre);
+        }
+        if (precio != null) {
+            validarPrecio(precio);
+        }
+        if (stock != null) {
+            validarStock(stock);
+        }
+        if (escrituraDiferida.habilitada() && nombre == null && versionEsperada == null
+                && (precio != null || stock != null)) {
+            return escrituraDiferida.registrar(id, () -> cargar(id), precio, stock);
+        }
+        Producto existente = cargarParaEscribir(id, versionEsperada, revisionEsperada);
+        cache.avanzarAlConfirmar(id);
 
         if (nombre != null) {
             existente.setNombre(nombre);
         }
         if (precio != null) {
-            if (precio.compareTo(BigDecimal.ZERO) < 0) {
-                throw new IllegalArgumentException("El precio no puede ser negativo");
-            }
             existente.setPrecio(precio);
         }
         if (stock != null) {
-            if (stock < 0) {
-                throw new IllegalArgumentException("El stock no puede ser negativo");
-            }
             existente.setStock(stock);
         }
-        return repository.save(existente);
+        repository.flush();
+        eventos.publishEvent(ProductoCambiado.actualizado(existente));
+        return existente;
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTOS_POR_NOMBRE, allEntries = true)
+    })
+    public void ajustarStock(Long id, int delta) {
+        aplicarPendiente(id);
+        cache.avanzarAlConfirmar(id);
+        if (repository.ajustarStock(id, delta) == 0) {
+            throw fallaDeAjuste(id, delta);
+        }
+        eventos.publishEvent(ProductoCambiado.stockAjustado(id, delta));
+    }
+
+    // Todo o nada: si algún producto no existe o no tiene stock suficiente se revierte el lote.
+    // Las filas se actualizan en orden de id para que dos lotes concurrentes no se bloqueen mutuamente
+    public void ajustarStock(List<AjusteStock> ajustes) {
+        // Se valida antes de ordenar: un elemento o un id nulo es un error de la petición, no un NPE
+        for (AjusteStock ajuste : ajustes) {
+            if (ajuste == null || ajuste.id() == null || ajuste.delta() == null) {
+                throw new IllegalArgumentException("Cada ajuste necesita id y delta");
+            }
+        }
+        List<AjusteStock> ordenados = new ArrayList<>(ajustes);
+        ordenados.sort(Comparator.comparing(AjusteStock::id));
+        for (AjusteStock ajuste : ordenados) {
+            aplicarPendiente(ajuste.id());
+            if (repository.ajustarStock(ajuste.id(), ajuste.delta()) == 0) {
+                throw fallaDeAjuste(ajuste.id(), ajuste.delta());
+            }
+            eventos.publishEvent(ProductoCambiado.stockAjustado(ajuste.id(), ajuste.delta()));
+        }
+        cache.invalidarAlConfirmar(ordenados.stream().map(AjusteStock::id).toList());
+    }
+
+    // Dentro de una transacción del llamador la lectura puede ver cambios que esa transacción todavía
+    // no confirmó: no se comparte con otros hilos. La generación es la de la caché, anotada antes de
+    // la consulta: quien llega después de una escritura confirmada no se suma a una que empezó antes
+    private static <K> Producto compartida(VueloUnico<K, Producto> vuelo, K clave, long generacion,
+                                           Supplier<Producto> carga) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return carga.get();
+        }
+        return vuelo.ejecutar(clave, generacion, carga);
+    }
+
+    // La fila de la caché o de una consulta compartida por las peticiones simultáneas del mismo id (hasta
+    // productos.lecturas.espera); sin transacción propia, así las que esperan no retienen una conexión.
+    // La consulta corre en la transacción de solo lectura del repositorio y quien la hizo guarda la fila
+    // si ninguna escritura la superó mientras tanto (ver CacheProductos)
+    private Producto filaPorId(Long id) {
+        Producto enCache = cache.porId(id);
+        if (enCache != null) {
+            return enCache;
+        }
+        long generacion = cache.generacion(id);
+        return compartida(lecturasPorId, id, generacion, () -> {
+            Producto fila = cargar(id);
+            cache.guardar(id, generacion, fila);
+            return fila;
+        });
+    }
+
+    private Producto filaPorNombre(String nombre) {
+        Producto enCache = cache.porNombre(nombre);
+        if (enCache != null) {
+            return enCache;
+        }
+        long generacion = cache.generacionNombres();
+        return compartida(lecturasPorNombre, nombre, generacion, () -> {
+            Producto fila = repository.findByNombre(nombre)
+                    .orElseThrow(() -> new NotFoundException("Producto no encontrado: " + nombre));
+            cache.guardarPorNombre(nombre, generacion, fila);
+            return fila;
+        });
+    }
+
+    private List<Producto> filas(Collection<Long> ids) {
+        List<Producto> filas = new ArrayList<>(ids.size());
+        Map<Long, Long> faltantes = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Producto enCache = cache.porId(id);
+            if (enCache != null) {
+                filas.add(enCache);
+            } else {
+                faltantes.put(id, cache.generacion(id));
+            }
+        }
+        List<Long> porLeer = new ArrayList<>(faltantes.keySet());
+        for (int desde = 0; desde < porLeer.size(); desde += tamanoConsultaMget) {
+            List<Long> tramo = porLeer.subList(desde, Math.min(desde + tamanoConsultaMget, porLeer.size()));
+            for (Producto fila : repository.findAllById(tramo)) {
+                filas.add(fila);
+                cache.guardar(fila.getId(), faltantes.get(fila.getId()), fila);
+            }
+        }
+        return filas;
+    }
+
+    private Producto cargar(Long id) {
+        return repository.findById(id).orElseThrow(() -> new NotFoundException("Producto no encontrado: " + id));
+    }
+
+    // La entidad administrada con lo pendiente de la escritura diferida ya aplicado: lo que
+    // cambie después esta escritura queda encima y lo pendiente no vuelve a escribirse (el rollback lo devuelve)
+    private Producto cargarParaEscribir(Long id, Long versionEsperada, Long revisionEsperada) {
+        Optional<EscrituraDiferida.Pendiente> pendiente = escrituraDiferida.retirar(id);
+        Producto producto = cargar(id);
+        verificarVersion(producto, versionEsperada);
+        if (versionEsperada != null) {
+            verificarPendiente(id, versionEsperada, revisionEsperada, pendiente);
+        }
+        pendiente.ifPresent(p -> p.aplicarA(producto));
+        return producto;
+    }
+
+    // Un If-Match con la versión sola describe la fila sin nada pendiente; uno con revisión
+    // ("versión.revisión", el ETag de una lectura con cambios diferidos), la fila con exactamente lo
+    // pendiente hasta esa revisión. Si llegó otro PATCH o ya se escribió, el estado ya no es ese
+    private static void verificarPendiente(Long id, Long versionEsperada, Long revisionEsperada,
+                                           Optional<EscrituraDiferida.Pendiente> pendiente) {
+        Long revision = pendiente.map(EscrituraDiferida.Pendiente::revision).orElse(null);
+        if (revisionEsperada == null && revision != null) {
+            throw cambiosPendientes(id, versionEsperada);
+        }
+        if (revisionEsperada != null && !revisionEsperada.equals(revision)) {
+            throw new PrecondicionFallidaException("El estado del producto " + id + " ya no es "
+                    + versionEsperada + "." + revisionEsperada);
+        }
+    }
+
+    // Antes de un UPDATE directo del stock, que de otro modo quedaría pisado por el valor pendiente
+    private void aplicarPendiente(Long id) {
+        escrituraDiferida.retirar(id).ifPresent(pendiente -> {
+            repository.findById(id).ifPresent(pendiente::aplicarA);
+            repository.flush();
+        });
+    }
+
+    private static PrecondicionFallidaException cambiosPendientes(Long id, Long versionEsperada) {
+        return new PrecondicionFallidaException(
+                "El producto " + id + " tiene cambios posteriores a la versión " + versionEsperada);
+    }
+
+    // El UPDATE no tocó la fila: no existe, un delta negativo no alcanza o uno positivo desbordaría el stock
+    private RuntimeException fallaDeAjuste(Long id, int delta) {
+        if (!repository.existsById(id)) {
+            return new NotFoundException("Producto no encontrado: " + id);
+        }
+        if (delta > 0) {
+            return excedeStockMaximo(id, delta);
+        }
+        return new StockInsuficienteException("Stock insuficiente para el producto " + id);
+    }
+
+    static void verificarVersion(Producto producto, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(producto.getVersion())) {
+            throw new PrecondicionFallidaException(
+                    "La versión del producto " + producto.getId() + " es " + producto.getVersion() + ", no " + versionEsperada);
+        }
+    }
+
+    // Un error de la petición (400): el stock resultante no entraría en un int
+    static IllegalArgumentException excedeStockMaximo(Long id, int delta) {
+        return new IllegalArgumentException("El delta " + delta + " excede el stock máximo del producto " + id);
+    }
+
+    // Reglas de negocio compartidas con la carga masiva (ProductoBulkService)
+    static void validarNombre(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            throw new IllegalArgumentException("El nombre es obligatorio");
+        }
+    }
+
+    static void validarPrecio(BigDecimal precio) {
+        if (precio == null) {
+            throw new IllegalArgumentException("El precio es obligatorio");
+        }
+        if (precio.compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("El precio no puede ser negativo");
+        }
+    }
+
+    static void validarStock(Integer stock) {
+        if (stock == null) {
+            throw new IllegalArgumentException("El stock es obligatorio");
+        }
+        if (stock < 0) {
+            throw new IllegalArgumentException("El stock no puede ser negativo");
+        }
     }
 }
@@ -0,0 +1,82 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.EventoSalida;
+import com.example.productos.repository.EventoSalidaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Escribe cada ProductoCambiado en el outbox (evento_salida) dentro de la transacción que lo produjo:
+// se confirma o se revierte junto con el cambio. Lo publica después DespachadorSalida
+@Component
+@Profile("!reactivo")
+public class RegistroSalida {
+
+    private final EventoSalidaRepository repository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public RegistroSalida(EventoSalidaRepository repository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // Junta los eventos de la transacción y los escribe todos juntos antes del commit (Lote). Sin
+    // transacción no hay nada que acompañar: se ignoran, como en un @TransactionalEventListener
+    @EventListener
+    public void registrar(ProductoCambiado cambio) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        lote().eventos.add(new EventoSalida(cambio.id(), cambio.tipo().name(), serializar(cambio), Instant.now()));
+    }
+
+    // El lote vive entre las sincronizaciones de la transacción, así una REQUIRES_NEW tiene el suyo
+    private Lote lote() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof Lote lote && lote.registro == this) {
+                return lote;
+            }
+        }
+        Lote lote = new Lote(this);
+        TransactionSynchronizationManager.registerSynchronization(lote);
+        return lote;
+    }
+
+    private String serializar(ProductoCambiado cambio) {
+        try {
+            return objectMapper.writeValueAsString(cambio);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar " + cambio, e);
+        }
+    }
+
+    private static final class Lote implements TransactionSynchronization {
+
+        private final RegistroSalida registro;
+        private final List<EventoSalida> eventos = new ArrayList<>();
+
+        private Lote(RegistroSalida registro) {
+            this.registro = registro;
+        }
+
+        // Primero el flush de los cambios: el UPDATE de cada producto toma el lock de su fila antes
+        // de pedir los ids. Después todos los INSERT en un batch JDBC
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            registro.entityManager.flush();
+            registro.repository.saveAll(eventos);
+            registro.entityManager.flush();
+        }
+    }
+}
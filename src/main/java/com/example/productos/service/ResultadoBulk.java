@@ -0,0 +1,14 @@
+package com.example.productos.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Resultado de un elemento de la carga masiva; "indice" es su posición en el cuerpo de la petición
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ResultadoBulk(int indice, Long id, String nombre, Estado estado, String error) {
+
+    public enum Estado { CREADO, ACTUALIZADO, ERROR }
+
+    static ResultadoBulk error(int indice, String nombre, String error) {
+        return new ResultadoBulk(indice, null, nombre, Estado.ERROR, error);
+    }
+}
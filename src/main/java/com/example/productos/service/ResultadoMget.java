@@ -0,0 +1,13 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.Producto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Un elemento de la lectura de varios productos por id, en el orden pedido; sin "producto" si no existe
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ResultadoMget(Long id, boolean encontrado, Producto producto) {
+
+    static ResultadoMget de(Long id, Producto producto) {
+        return new ResultadoMget(id, producto != null, producto);
+    }
+}
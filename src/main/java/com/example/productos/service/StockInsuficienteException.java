@@ -0,0 +1,7 @@
+package com.example.productos.service;
+
+public class StockInsuficienteException extends RuntimeException {
+    public StockInsuficienteException(String message) {
+        super(message);
+    }
+}
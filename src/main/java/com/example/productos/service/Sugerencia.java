@@ -0,0 +1,4 @@
+package com.example.productos.service;
+
+public record Sugerencia(Long id, String nombre) {
+}
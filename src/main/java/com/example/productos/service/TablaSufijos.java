@@ -0,0 +1,237 @@
+package com.example.productos.service;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+
+// Índice inmutable de sugerencias: una entrada por cada comienzo de palabra de cada nombre normalizado
+// ("router wifi" y "wifi"), ordenadas para que todo prefijo sea un rango contiguo por búsqueda binaria.
+// Todo vive en arreglos primitivos: los textos se guardan una sola vez y cada entrada ocupa un long
+final class TablaSufijos {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    static final TablaSufijos VACIA = construir(new long[0], List.of());
+
+    private final long[] ids;          // documento -> id del producto
+    private final byte[] texto;        // nombres normalizados en UTF-8, cada uno terminado en 0
+    private final byte[] nombres;      // nombres originales en UTF-8
+    private final int[] inicioNombre;  // documento -> inicio en "nombres"; tiene un elemento extra al final
+    private final long[] entradas;     // (documento << 32 | posición en "texto"), ordenadas por el sufijo
+
+    private TablaSufijos(long[] ids, byte[] texto, byte[] nombres, int[] inicioNombre, long[] entradas) {
+        this.ids = ids;
+        this.texto = texto;
+        this.nombres = nombres;
+        this.inicioNombre = inicioNombre;
+        this.entradas = entradas;
+    }
+
+    // Los documentos quedan ordenados por id para poder ubicar un producto con búsqueda binaria
+    static TablaSufijos construir(long[] idsOriginales, List<String> nombresOriginales) {
+        int documentos = idsOriginales.length;
+        Integer[] orden = new Integer[documentos];
+        Arrays.setAll(orden, i -> i);
+        Arrays.sort(orden, (a, b) -> Long.compare(idsOriginales[a], idsOriginales[b]));
+        long[] ids = new long[documentos];
+        byte[][] normalizados = new byte[documentos][];
+        byte[][] originales = new byte[documentos][];
+        int largoTexto = 0;
+        int largoNombres = 0;
+        int cantidadEntradas = 0;
+        for (int d = 0; d < documentos; d++) {
+            String nombre = nombresOriginales.get(orden[d]);
+            ids[d] = idsOriginales[orden[d]];
+            normalizados[d] = normalizar(nombre).getBytes(StandardCharsets.UTF_8);
+            originales[d] = nombre.getBytes(StandardCharsets.UTF_8);
+            largoTexto += normalizados[d].length + 1;
+            largoNombres += originales[d].length;
+            cantidadEntradas += comienzosDePalabra(normalizados[d]);
+        }
+
+        byte[] texto = new byte[largoTexto];
+        byte[] nombres = new byte[largoNombres];
+        int[] inicioNombre = new int[documentos + 1];
+        long[] entradas = new long[cantidadEntradas];
+        int t = 0;
+        int n = 0;
+        int e = 0;
+        for (int d = 0; d < documentos; d++) {
+            byte[] normalizado = normalizados[d];
+            for (int i = 0; i < normalizado.length; i++) {
+                if (i == 0 || normalizado[i - 1] == ' ') {
+                    entradas[e++] = ((long) d << 32) | (t + i);
+                }
+            }
+            System.arraycopy(normalizado, 0, texto, t, normalizado.length);
+            t += normalizado.length + 1;
+            inicioNombre[d] = n;
+            System.arraycopy(originales[d], 0, nombres, n, originales[d].length);
+            n += originales[d].length;
+        }
+        inicioNombre[documentos] = n;
+
+        TablaSufijos tabla = new TablaSufijos(ids, texto, nombres, inicioNombre, entradas);
+        tabla.ordenarEntradas();
+        return tabla;
+    }
+
+    // Minúsculas, sin tildes y con un único espacio entre palabras: "Lámpara  LED" -> "lampara led"
+    static String normalizar(String nombre) {
+        String sinMarcas = MARCAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(sinMarcas.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    int documentos() {
+        return ids.length;
+    }
+
+    boolean contiene(long id) {
+        return documentoDe(id) >= 0;
+    }
+
+    // Documento del producto o -1 si no está en la tabla
+    int documentoDe(long id) {
+        int documento = Arrays.binarySearch(ids, id);
+        return documento < 0 ? -1 : documento;
+    }
+
+    long id(int documento) {
+        return ids[documento];
+    }
+
+    String nombre(int documento) {
+        return new String(nombres, inicioNombre[documento], inicioNombre[documento + 1] - inicioNombre[documento],
+                StandardCharsets.UTF_8);
+    }
+
+    // Recorre en orden las entradas que empiezan con "prefijo" (ya normalizado) hasta que el visitante
+    // devuelva false. El visitante recibe (documento << 32 | posición) de cada entrada
+    void recorrer(byte[] prefijo, LongPredicate visitante) {
+        int desde = primeraEntradaNoMenor(prefijo);
+        for (int i = desde; i < entradas.length && empiezaCon(posicion(entradas[i]), prefijo); i++) {
+            if (!visitante.test(entradas[i])) {
+                return;
+            }
+        }
+    }
+
+    // Sufijo de la entrada como String, para mezclarlo en orden con las entradas pendientes
+    String sufijo(long entrada) {
+        int desde = posicion(entrada);
+        int hasta = desde;
+        while (texto[hasta] != 0) {
+            hasta++;
+        }
+        return new String(texto, desde, hasta - desde, StandardCharsets.UTF_8);
+    }
+
+    static int documento(long entrada) {
+        return (int) (entrada >>> 32);
+    }
+
+    long bytesEstimados() {
+        return 8L * ids.length + texto.length + nombres.length + 4L * inicioNombre.length + 8L * entradas.length;
+    }
+
+    private static int posicion(long entrada) {
+        return (int) entrada;
+    }
+
+    private static int comienzosDePalabra(byte[] normalizado) {
+        int cantidad = 0;
+        for (int i = 0; i < normalizado.length; i++) {
+            if (i == 0 || normalizado[i - 1] == ' ') {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    private int primeraEntradaNoMenor(byte[] prefijo) {
+        int bajo = 0;
+        int alto = entradas.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (comparar(posicion(entradas[medio]), prefijo) < 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private boolean empiezaCon(int posicion, byte[] prefijo) {
+        for (int i = 0; i < prefijo.length; i++) {
+            if (texto[posicion + i] != prefijo[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Compara el sufijo que empieza en "posicion" con "otro"; el terminador 0 ordena antes que cualquier byte
+    private int comparar(int posicion, byte[] otro) {
+        for (int i = 0; i < otro.length; i++) {
+            int a = texto[posicion + i] & 0xff;
+            int b = otro[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+            if (a == 0) {
+                return 0;
+            }
+        }
+        return texto[posicion + otro.length] == 0 ? 0 : 1;
+    }
+
+    private int compararEntradas(long x, long y) {
+        int a = posicion(x);
+        int b = posicion(y);
+        while (true) {
+            int ca = texto[a++] & 0xff;
+            int cb = texto[b++] & 0xff;
+            if (ca != cb) {
+                return ca - cb;
+            }
+            if (ca == 0) {
+                return Long.compare(ids[documento(x)], ids[documento(y)]);
+            }
+        }
+    }
+
+    // Ordenamiento por mezcla sobre long[] para no crear un objeto por entrada
+    private void ordenarEntradas() {
+        long[] auxiliar = new long[entradas.length];
+        for (int ancho = 1; ancho < entradas.length; ancho *= 2) {
+            for (int izquierda = 0; izquierda < entradas.length - ancho; izquierda += 2 * ancho) {
+                int medio = izquierda + ancho;
+                int derecha = Math.min(izquierda + 2 * ancho, entradas.length);
+                if (compararEntradas(entradas[medio - 1], entradas[medio]) <= 0) {
+                    continue;
+                }
+                System.arraycopy(entradas, izquierda, auxiliar, izquierda, derecha - izquierda);
+                int i = izquierda;
+                int j = medio;
+                for (int k = izquierda; k < derecha; k++) {
+                    if (i < medio && (j >= derecha || compararEntradas(auxiliar[i], auxiliar[j]) <= 0)) {
+                        entradas[k] = auxiliar[i++];
+                    } else {
+                        entradas[k] = auxiliar[j++];
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TablaSufijos[documentos=" + ids.length + ", entradas=" + entradas.length + "]";
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.productos.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Lecturas concurrentes de una misma clave comparten una sola consulta: la primera la ejecuta en su
+// hilo y las que llegan mientras tanto esperan su resultado (o su excepción) hasta "espera". Nada
+// queda guardado al terminar; para eso está la caché. Solo se comparte entre lecturas de la misma
+// generación (ver CacheProductos): la que llega después del commit de una escritura no se suma a una
+// consulta que empezó antes, que puede devolver lo anterior (p. ej. un GET tras el 204 de un DELETE)
+final class VueloUnico<K, V> {
+
+    private record Clave<K>(K valor, long generacion) {
+    }
+
+    private final String consulta;
+    private final Duration espera;
+    private final Map<Clave<K>, CompletableFuture<V>> enCurso = new ConcurrentHashMap<>();
+    private final Counter compartidas;
+    private final Counter agotadas;
+
+    VueloUnico(String consulta, Duration espera, MeterRegistry registry) {
+        this.consulta = consulta;
+        this.espera = espera;
+        this.compartidas = registry.counter("productos.lecturas.compartidas", "consulta", consulta);
+        this.agotadas = registry.counter("productos.lecturas.esperas.agotadas", "consulta", consulta);
+    }
+
+    V ejecutar(K clave, long generacion, Supplier<V> carga) {
+        Clave<K> vuelo = new Clave<>(clave, generacion);
+        CompletableFuture<V> propio = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(vuelo, propio);
+        if (existente == null) {
+            try {
+                V valor = carga.get();
+                propio.complete(valor);
+                return valor;
+            } catch (Throwable e) {
+                propio.completeExceptionally(e);
+                throw e;
+            } finally {
+                enCurso.remove(vuelo, propio);
+            }
+        }
+        compartidas.increment();
+        try {
+            return existente.get(espera.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // La misma excepción que recibió quien hizo la consulta (p. ej. NotFoundException)
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            agotadas.increment();
+            throw new EsperaAgotadaException("La consulta " + consulta + " de " + clave + " no terminó en " + espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EsperaAgotadaException("Se interrumpió la espera de la consulta " + consulta + " de " + clave);
+        }
+    }
+}
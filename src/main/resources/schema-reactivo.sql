@@ -0,0 +1,10 @@
+DROP TABLE IF EXISTS producto;
+DROP SEQUENCE IF EXISTS producto_seq;
+CREATE SEQUENCE producto_seq START WITH 1 INCREMENT BY 1;
+CREATE TABLE producto (
+    id BIGINT DEFAULT NEXT VALUE FOR producto_seq PRIMARY KEY,
+    nombre VARCHAR(255) NOT NULL UNIQUE,
+    precio NUMERIC(12, 2) NOT NULL,
+    stock INTEGER NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0
+);
@@ -0,0 +1,71 @@
+package com.example.productos.carga;
+
+import com.example.productos.Application;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Prueba de carga opcional: mvn test -Dcarga=true -Dtest=AdmisionCargaTest
+// El listado paginado con 10 veces más clientes que el límite máximo de concurrencia de
+// lecturas, sin y con el control de admisión. Con el control el exceso recibe 503 enseguida y las
+// peticiones admitidas mantienen un p99 acotado; sin él todas esperan en Tomcat y en el pool
+@EnabledIfSystemProperty(named = "carga", matches = "true")
+class AdmisionCargaTest {
+
+    private static final int LIMITE = 20;
+    private static final int CONCURRENCIA = Integer.getInteger("carga.concurrencia", 10 * LIMITE);
+    private static final Duration DURACION = Duration.ofSeconds(Long.getLong("carga.segundos", 15));
+    private static final int FILAS = 20_000;
+
+    @Test
+    void conControlDeAdmisionElP99DeLasAdmitidasQuedaAcotado() throws Exception {
+        GeneradorCarga.Resultado sinControl = medir(false);
+        GeneradorCarga.Resultado conControl = medir(true);
+
+        System.out.println("sin control: " + sinControl);
+        System.out.println("con control: " + conControl);
+        assertThat(sinControl.rechazadas()).isZero();
+        assertThat(conControl.rechazadas()).isPositive();
+        assertThat(conControl.p99Admitidas()).isLessThan(sinControl.p99Admitidas());
+    }
+
+    private GeneradorCarga.Resultado medir(boolean control) throws InterruptedException {
+        // Tasa por cliente muy alta: acá se mide solo el límite de concurrencia
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(Application.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:admision-carga-" + control + ";DB_CLOSE_DELAY=-1;MODE=LEGACY",
+                        "--productos.salida.despachador.habilitado=false",
+                        "--productos.admision.habilitada=" + control,
+                        "--productos.admision.lecturas.por-segundo=1000000",
+                        "--productos.admision.lecturas.rafaga=1000000",
+                        "--productos.admision.lecturas.limite-inicial=" + LIMITE,
+                        "--productos.admision.lecturas.limite-maximo=" + LIMITE)) {
+            poblar(contexto.getBean(JdbcTemplate.class));
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            String base = "http://localhost:" + puerto + "/productos?limit=100&after=";
+            GeneradorCarga generador = new GeneradorCarga();
+            // Calentamiento del JIT antes de medir
+            generador.ejecutar(LIMITE, Duration.ofSeconds(3), n -> GeneradorCarga.get(base + n % FILAS));
+            return generador.ejecutar(CONCURRENCIA, DURACION, n -> GeneradorCarga.get(base + n % FILAS));
+        }
+    }
+
+    private static void poblar(JdbcTemplate jdbc) {
+        List<Object[]> lote = new ArrayList<>(FILAS);
+        for (int i = 0; i < FILAS; i++) {
+            lote.add(new Object[]{"Producto " + i, new BigDecimal("10.00").add(BigDecimal.valueOf(i % 1000)), i % 50});
+        }
+        jdbc.batchUpdate("INSERT INTO producto (id, nombre, precio, stock, version) "
+                + "VALUES (NEXT VALUE FOR producto_seq, ?, ?, ?, 0)", lote);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.productos.carga;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+// Generador de carga en lazo cerrado: "concurrencia" clientes lanzan peticiones durante "duracion"
+// y se registran las latencias para calcular percentiles y rendimiento. Los rechazos por sobrecarga
+// (429 y 503) cuentan como errores y además aparte; p99Admitidas mide solo las respuestas sin error
+class GeneradorCarga {
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    Resultado ejecutar(int concurrencia, Duration duracion, IntFunction<HttpRequest> peticion) throws InterruptedException {
+        long[] latencias = new long[1 << 22];
+        boolean[] admitidas = new boolean[latencias.length];
+        AtomicInteger registradas = new AtomicInteger();
+        AtomicInteger errores = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        Semaphore cupos = new Semaphore(concurrencia);
+        long fin = System.nanoTime() + duracion.toNanos();
+        long inicio = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            int n = 0;
+            while (System.nanoTime() < fin) {
+                cupos.acquire();
+                HttpRequest request = peticion.apply(n++);
+                executor.submit(() -> {
+                    long t0 = System.nanoTime();
+                    boolean admitida = false;
+                    try {
+                        HttpResponse<Void> respuesta = cliente.send(request, HttpResponse.BodyHandlers.discarding());
+                        int estado = respuesta.statusCode();
+                        if (estado >= 400) {
+                            errores.incrementAndGet();
+                        } else {
+                            admitida = true;
+                        }
+                        if (estado == 429 || estado == 503) {
+                            rechazadas.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errores.incrementAndGet();
+                    } finally {
+                        int i = registradas.getAndIncrement();
+                        if (i < latencias.length) {
+                            latencias[i] = System.nanoTime() - t0;
+                            admitidas[i] = admitida;
+                        }
+                        cupos.release();
+                    }
+                });
+            }
+        }
+        long transcurrido = System.nanoTime() - inicio;
+        int total = Math.min(registradas.get(), latencias.length);
+        long[] ordenadas = Arrays.copyOf(latencias, total);
+        Arrays.sort(ordenadas);
+        long[] deAdmitidas = IntStream.range(0, total).filter(i -> admitidas[i]).mapToLong(i -> latencias[i]).sorted().toArray();
+        return new Resultado(total, errores.get(), rechazadas.get(), total * 1e9 / transcurrido,
+                percentil(ordenadas, 0.50), percentil(ordenadas, 0.99), percentil(ordenadas, 0.999),
+                percentil(deAdmitidas, 0.99));
+    }
+
+    static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().timeout(Duration.ofSeconds(30)).build();
+    }
+
+    static HttpRequest post(String url, String json) {
+        return conCuerpo("POST", url, json);
+    }
+
+    static HttpRequest put(String url, String json) {
+        return conCuerpo("PUT", url, json);
+    }
+
+    static HttpRequest patch(String url, String json) {
+        return conCuerpo("PATCH", url, json);
+    }
+
+    static HttpRequest delete(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).DELETE().timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private static HttpRequest conCuerpo(String metodo, String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method(metodo, HttpRequest.BodyPublishers.ofString(json))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private static Duration percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return Duration.ZERO;
+        }
+        int i = (int) Math.ceil(p * ordenadas.length) - 1;
+        return Duration.ofNanos(ordenadas[Math.max(0, i)]);
+    }
+
+    record Resultado(int peticiones, int errores, int rechazadas, double porSegundo, Duration p50, Duration p99,
+                     Duration p999, Duration p99Admitidas) {
+
+        @Override
+        public String toString() {
+            return String.format("%d peticiones, %d errores (%d rechazadas), %.0f req/s, p50=%.2f ms, p99=%.2f ms, "
+                            + "p99.9=%.2f ms, p99 sin error=%.2f ms",
+                    peticiones, errores, rechazadas, porSegundo, ms(p50), ms(p99), ms(p999), ms(p99Admitidas));
+        }
+
+        private static double ms(Duration d) {
+            return d.toNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
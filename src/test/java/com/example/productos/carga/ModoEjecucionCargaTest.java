@@ -0,0 +1,46 @@
+package com.example.productos.carga;
+
+import com.example.productos.Application;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Prueba de carga opcional: mvn test -Dcarga=true -Dtest=ModoEjecucionCargaTest
+// Arranca la aplicación con hilos de plataforma y con hilos virtuales y compara p99 y rendimiento
+// con la misma concurrencia sobre un endpoint que usa la base de datos
+@EnabledIfSystemProperty(named = "carga", matches = "true")
+class ModoEjecucionCargaTest {
+
+    private static final int CONCURRENCIA = Integer.getInteger("carga.concurrencia", 400);
+    private static final Duration DURACION = Duration.ofSeconds(Long.getLong("carga.segundos", 15));
+
+    @Test
+    void compararHilosDePlataformaYVirtuales() throws Exception {
+        GeneradorCarga.Resultado plataforma = medir();
+        GeneradorCarga.Resultado virtual = medir("virtual");
+
+        System.out.println("plataforma: " + plataforma);
+        System.out.println("virtual:    " + virtual);
+        assertThat(plataforma.peticiones()).isPositive();
+        assertThat(virtual.peticiones()).isPositive();
+    }
+
+    private GeneradorCarga.Resultado medir(String... perfiles) throws InterruptedException {
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(Application.class)
+                .profiles(perfiles)
+                .run("--server.port=0")) {
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            String base = "http://localhost:" + puerto + "/productos";
+            GeneradorCarga generador = new GeneradorCarga();
+            // Calentamiento del JIT y de las cachés antes de medir
+            generador.ejecutar(CONCURRENCIA, Duration.ofSeconds(3), n -> GeneradorCarga.get(base + "?after=0&limit=10"));
+            return generador.ejecutar(CONCURRENCIA, DURACION, n -> GeneradorCarga.get(base + "?after=" + (n % 5) + "&limit=10"));
+        }
+    }
+}
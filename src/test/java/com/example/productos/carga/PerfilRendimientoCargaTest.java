@@ -0,0 +1,82 @@
+package com.example.productos.carga;
+
+import com.example.productos.Application;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Prueba de carga opcional: mvn test -Dcarga=true -Dtest=PerfilRendimientoCargaTest
+// La misma mezcla CRUD sobre /productos con la configuración por defecto y con el perfil "performance".
+// Cada 10 peticiones: 4 GET por id, 2 páginas del listado, 1 PATCH, 1 PUT, 1 POST y 1 DELETE. Los DELETE
+// van contra productos reservados para eso, cada uno una sola vez
+@EnabledIfSystemProperty(named = "carga", matches = "true")
+class PerfilRendimientoCargaTest {
+
+    private static final int CONCURRENCIA = Integer.getInteger("carga.concurrencia", 64);
+    private static final Duration DURACION = Duration.ofSeconds(Long.getLong("carga.segundos", 15));
+    private static final int FILAS = 10_000;
+    private static final int BORRABLES = 50_000;
+
+    @Test
+    void compararConfiguracionPorDefectoYPerfilPerformance() throws Exception {
+        GeneradorCarga.Resultado porDefecto = medir();
+        GeneradorCarga.Resultado performance = medir("performance");
+
+        System.out.println("por defecto: " + porDefecto);
+        System.out.println("performance: " + performance);
+        assertThat(porDefecto.peticiones()).isPositive();
+        assertThat(performance.peticiones()).isPositive();
+    }
+
+    private GeneradorCarga.Resultado medir(String... perfiles) throws InterruptedException {
+        String nombre = perfiles.length == 0 ? "defecto" : String.join("-", perfiles);
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(Application.class)
+                .profiles(perfiles)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:carga-" + nombre + ";DB_CLOSE_DELAY=-1;MODE=LEGACY",
+                        "--productos.salida.despachador.habilitado=false")) {
+            long[] ids = poblar(contexto.getBean(JdbcTemplate.class));
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            String base = "http://localhost:" + puerto + "/productos";
+            GeneradorCarga generador = new GeneradorCarga();
+            // Calentamiento del JIT y de las cachés antes de medir, solo con lecturas
+            generador.ejecutar(CONCURRENCIA, Duration.ofSeconds(3), n -> GeneradorCarga.get(base + "/" + ids[n % FILAS]));
+            return generador.ejecutar(CONCURRENCIA, DURACION, n -> mezcla(base, ids, n));
+        }
+    }
+
+    private static HttpRequest mezcla(String base, long[] ids, int n) {
+        long id = ids[(int) ((n * 7919L) % FILAS)];
+        return switch (n % 10) {
+            case 0, 1, 2, 3 -> GeneradorCarga.get(base + "/" + id);
+            case 4, 5 -> GeneradorCarga.get(base + "?after=" + id + "&limit=20");
+            case 6 -> GeneradorCarga.patch(base + "/" + id, "{\"stock\": " + n % 100 + "}");
+            case 7 -> GeneradorCarga.put(base + "/" + id,
+                    "{\"nombre\": \"Carga " + id + "\", \"precio\": 12.50, \"stock\": " + n % 100 + "}");
+            case 8 -> GeneradorCarga.post(base, "{\"nombre\": \"Nuevo " + n + "\", \"precio\": 9.90, \"stock\": 1}");
+            default -> GeneradorCarga.delete(base + "/" + ids[FILAS + (n / 10) % BORRABLES]);
+        };
+    }
+
+    private static long[] poblar(JdbcTemplate jdbc) {
+        List<Object[]> lote = new ArrayList<>(FILAS + BORRABLES);
+        for (int i = 0; i < FILAS + BORRABLES; i++) {
+            lote.add(new Object[]{"Producto " + i, new BigDecimal("10.00").add(BigDecimal.valueOf(i % 1000)), 50});
+        }
+        jdbc.batchUpdate("INSERT INTO producto (id, nombre, precio, stock, version) "
+                + "VALUES (NEXT VALUE FOR producto_seq, ?, ?, ?, 0)", lote);
+        return jdbc.queryForList("SELECT id FROM producto ORDER BY id", Long.class).stream()
+                .mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.productos.carga;
+
+import com.example.productos.Application;
+import com.example.productos.repository.EventoSalidaRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Prueba de carga opcional: mvn test -Dcarga=true -Dtest=SalidaCargaTest
+// Mide POST /productos con el despachador del outbox apagado y encendido (misma concurrencia): el
+// despachador lee y borra en otras transacciones, así que la latencia de escritura no debería cambiar.
+// Con el despachador encendido informa además cuánto tarda en vaciar el outbox después de la carga
+@EnabledIfSystemProperty(named = "carga", matches = "true")
+class SalidaCargaTest {
+
+    private static final int CONCURRENCIA = Integer.getInteger("carga.concurrencia", 32);
+    private static final Duration DURACION = Duration.ofSeconds(Long.getLong("carga.segundos", 15));
+
+    @Test
+    void elDespachadorNoAfectaLaLatenciaDeEscritura() throws Exception {
+        GeneradorCarga.Resultado sinDespachador = medir(false);
+        GeneradorCarga.Resultado conDespachador = medir(true);
+
+        System.out.println("sin despachador: " + sinDespachador);
+        System.out.println("con despachador: " + conDespachador);
+        assertThat(sinDespachador.errores()).isZero();
+        assertThat(conDespachador.errores()).isZero();
+    }
+
+    private GeneradorCarga.Resultado medir(boolean despachador) throws InterruptedException {
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(Application.class)
+                .run("--server.port=0",
+                        "--productos.salida.despachador.habilitado=" + despachador,
+                        "--logging.level.productos.salida=WARN")) {
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            String base = "http://localhost:" + puerto + "/productos";
+            String corrida = Long.toString(System.nanoTime(), 36);
+            GeneradorCarga generador = new GeneradorCarga();
+            // Calentamiento del JIT antes de medir
+            generador.ejecutar(CONCURRENCIA, Duration.ofSeconds(3), n -> crear(base, "calentamiento " + corrida + " " + n));
+            GeneradorCarga.Resultado resultado = generador.ejecutar(CONCURRENCIA, DURACION,
+                    n -> crear(base, "carga " + corrida + " " + n));
+
+            EventoSalidaRepository salida = contexto.getBean(EventoSalidaRepository.class);
+            if (despachador) {
+                long inicio = System.nanoTime();
+                while (salida.count() > 0) {
+                    Thread.sleep(50);
+                }
+                System.out.printf("outbox vacío %.0f ms después de terminar la carga%n", (System.nanoTime() - inicio) / 1e6);
+            } else {
+                System.out.println("eventos pendientes en el outbox: " + salida.count());
+            }
+            return resultado;
+        }
+    }
+
+    private static HttpRequest crear(String base, String nombre) {
+        return GeneradorCarga.post(base, "{\"nombre\": \"" + nombre + "\", \"precio\": 10.00, \"stock\": 1}");
+    }
+}
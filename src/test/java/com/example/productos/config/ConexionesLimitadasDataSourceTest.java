@@ -0,0 +1,36 @@
+package com.example.productos.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConexionesLimitadasDataSourceTest {
+
+    private final ConexionesLimitadasDataSource dataSource = new ConexionesLimitadasDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:limitadas;DB_CLOSE_DELAY=-1", "sa", ""), 2, Duration.ofMillis(50));
+
+    @Test
+    void sinPermisosFallaTrasLaEsperaMaxima() throws Exception {
+        try (Connection a = dataSource.getConnection(); Connection b = dataSource.getConnection()) {
+            assertThat(dataSource.permisosDisponibles()).isZero();
+            assertThatThrownBy(dataSource::getConnection)
+                    .isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessageContaining("50 ms");
+        }
+        assertThat(dataSource.permisosDisponibles()).isEqualTo(2);
+    }
+
+    @Test
+    void cerrarDosVecesLiberaUnSoloPermiso() throws Exception {
+        Connection conexion = dataSource.getConnection();
+        conexion.close();
+        conexion.close();
+        assertThat(dataSource.permisosDisponibles()).isEqualTo(2);
+    }
+}
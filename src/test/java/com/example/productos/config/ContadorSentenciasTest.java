@@ -0,0 +1,107 @@
+package com.example.productos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContadorSentenciasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<QueryInfo> consulta = List.of(new QueryInfo("select 1"));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cuentaLasSentenciasDeCadaPeticion() {
+        ContadorSentencias contador = contador(false);
+        contador.iniciarPeticion("obtener");
+        contador.beforeQuery(new ExecutionInfo(), consulta);
+        contador.beforeQuery(new ExecutionInfo(), consulta);
+        contador.terminarPeticion();
+
+        assertThat(contador.sentenciasUltimaPeticion()).isEqualTo(2);
+        assertThat(registry.get("productos.sql.sentencias").tag("operacion", "obtener").summary().totalAmount())
+                .isEqualTo(2);
+        // Sin modo estricto, exceder el presupuesto solo se informa
+        assertThat(registry.get("productos.sql.presupuesto.excedido").tag("operacion", "obtener").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void enModoEstrictoLaSentenciaQueExcedeElPresupuestoFalla() {
+        ContadorSentencias contador = contador(true);
+        contador.iniciarPeticion("obtener");
+        contador.beforeQuery(new ExecutionInfo(), consulta);
+
+        assertThatThrownBy(() -> contador.beforeQuery(new ExecutionInfo(), consulta))
+                .isInstanceOf(PresupuestoSentenciasExcedidoException.class)
+                .hasMessageContaining("obtener")
+                .hasMessageContaining("select 1");
+        contador.terminarPeticion();
+    }
+
+    @Test
+    void sinPresupuestoOFueraDeUnaPeticionNoFalla() {
+        ContadorSentencias contador = contador(true);
+        contador.beforeQuery(new ExecutionInfo(), consulta);
+        contador.iniciarPeticion("_bulk");
+        for (int i = 0; i < 10; i++) {
+            contador.beforeQuery(new ExecutionInfo(), consulta);
+        }
+        contador.terminarPeticion();
+        assertThat(contador.sentenciasUltimaPeticion()).isEqualTo(10);
+    }
+
+    @Test
+    void publicaLasSentenciasDeCadaTransaccionAlTerminar() {
+        ContadorSentencias contador = contador(false);
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 3; i++) {
+            contador.beforeQuery(new ExecutionInfo(), consulta);
+        }
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationUtils.invokeAfterCompletion(sincronizaciones, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(registry.get("productos.sql.sentencias.transaccion").tag("resultado", "commit").summary().totalAmount())
+                .isEqualTo(3);
+        assertThat(TransactionSynchronizationManager.getResource(contador)).isNull();
+    }
+
+    @Test
+    void registraLasConsultasLentas() {
+        ContadorSentencias contador = contador(false);
+        ExecutionInfo rapida = new ExecutionInfo();
+        rapida.setElapsedTime(5);
+        ExecutionInfo lenta = new ExecutionInfo();
+        lenta.setElapsedTime(250);
+
+        contador.afterQuery(rapida, consulta);
+        contador.afterQuery(lenta, consulta);
+        assertThat(registry.get("productos.sql.lentas").counter().count()).isEqualTo(1);
+    }
+
+    private ContadorSentencias contador(boolean estricto) {
+        SentenciasProperties propiedades = new SentenciasProperties(Duration.ofMillis(200), estricto, Map.of("obtener", 1));
+        return new ContadorSentencias(propiedades,
+                new StaticListableBeanFactory(Map.of("registry", registry)).getBeanProvider(MeterRegistry.class));
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.productos.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ControlAdmisionTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+    private static final String PROXY = "127.0.0.1";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void pasadaLaRafagaElClienteRecibe429ConRetryAfter() throws Exception {
+        ControlAdmision filtro = filtro(2, 10);
+
+        assertThat(pedir(filtro, "GET", "a").getStatus()).isEqualTo(200);
+        assertThat(pedir(filtro, "GET", "a").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rechazada = pedir(filtro, "GET", "a");
+
+        assertThat(rechazada.getStatus()).isEqualTo(429);
+        assertThat(rechazada.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(pedir(filtro, "GET", "b").getStatus()).isEqualTo(200);
+        assertThat(registry.get("productos.admision.rechazadas").tag("motivo", "tasa").tag("tipo", "lectura")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void lecturasYEscriturasTienenPresupuestosSeparados() throws Exception {
+        ControlAdmision filtro = filtro(1, 10);
+
+        assertThat(pedir(filtro, "GET", "a").getStatus()).isEqualTo(200);
+        assertThat(pedir(filtro, "GET", "a").getStatus()).isEqualTo(429);
+        assertThat(pedir(filtro, "POST", "a").getStatus()).isEqualTo(200);
+        assertThat(pedir(filtro, "PATCH", "a").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void elMultiGetPorPostCuentaComoLectura() throws Exception {
+        ControlAdmision filtro = filtro(1, 10);
+
+        assertThat(pedir(filtro, "POST", "a").getStatus()).isEqualTo(200);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/productos/_mget");
+        request.addHeader("X-Client-Id", "a");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(pedir(filtro, "GET", "a").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void pasadoElLimiteDeConcurrenciaSeRechazaCon503() throws Exception {
+        ControlAdmision filtro = filtro(100, 1);
+        MockHttpServletResponse[] anidada = new MockHttpServletResponse[1];
+
+        // Mientras la primera sigue en curso llega otra lectura
+        MockHttpServletResponse primera = pedir(filtro, "GET", "a",
+                (request, response) -> anidada[0] = pedir(filtro, "GET", "b"));
+
+        assertThat(primera.getStatus()).isEqualTo(200);
+        assertThat(anidada[0].getStatus()).isEqualTo(503);
+        assertThat(anidada[0].getHeader("Retry-After")).isEqualTo("1");
+        assertThat(pedir(filtro, "POST", "b").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void sinProxyConfiableLaCabeceraNoCambiaDeCliente() throws Exception {
+        ControlAdmision filtro = filtro(1, 10);
+
+        assertThat(pedirDesde(filtro, "10.0.0.1", "a").getStatus()).isEqualTo(200);
+        // Cambiar la cabecera no le da un cubo nuevo: cuenta la IP
+        assertThat(pedirDesde(filtro, "10.0.0.1", "b").getStatus()).isEqualTo(429);
+        assertThat(pedirDesde(filtro, "10.0.0.2", "a").getStatus()).isEqualTo(200);
+        // Desde el proxy la cabecera sí vale, y no se confunde con la IP del mismo texto
+        assertThat(pedirDesde(filtro, PROXY, "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void elUsuarioAutenticadoEsElCliente() throws Exception {
+        ControlAdmision filtro = filtro(1, 10);
+        MockHttpServletRequest primera = new MockHttpServletRequest("GET", "/productos");
+        primera.setUserPrincipal(() -> "ana");
+        filtro.doFilter(primera, new MockHttpServletResponse(), new MockFilterChain());
+
+        MockHttpServletRequest otraIp = new MockHttpServletRequest("GET", "/productos");
+        otraIp.setRemoteAddr("10.0.0.9");
+        otraIp.setUserPrincipal(() -> "ana");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(otraIp, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void elFlujoDeCambiosNoPasaPorElControl() throws Exception {
+        ControlAdmision filtro = filtro(1, 10);
+        pedir(filtro, "GET", "a");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/productos/changes");
+        request.addHeader("X-Client-Id", "a");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void elCuboSeRellenaConElTiempo() {
+        CuboTokens cubo = new CuboTokens(2, 2, 0);
+
+        assertThat(cubo.tomar(0)).isZero();
+        assertThat(cubo.tomar(0)).isZero();
+        assertThat(cubo.tomar(0)).isEqualTo(SEGUNDO / 2);
+        assertThat(cubo.tomar(SEGUNDO / 2)).isZero();
+        // Nunca junta más que la ráfaga
+        assertThat(cubo.tomar(10 * SEGUNDO)).isZero();
+        assertThat(cubo.tomar(10 * SEGUNDO)).isZero();
+        assertThat(cubo.tomar(10 * SEGUNDO)).isPositive();
+    }
+
+    @Test
+    void elLimiteSubeConRespuestasRapidasYBajaConLentasO503() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(4, 2, 6, TimeUnit.MILLISECONDS.toNanos(100));
+
+        for (int i = 0; i < 10; i++) {
+            ocupar(limite, limite.limite());
+            liberarTodas(limite, TimeUnit.MILLISECONDS.toNanos(10), false);
+        }
+        assertThat(limite.limite()).isEqualTo(6);
+
+        ocupar(limite, 1);
+        limite.liberar(TimeUnit.MILLISECONDS.toNanos(500), false);
+        assertThat(limite.limite()).isEqualTo(5);
+        ocupar(limite, 1);
+        limite.liberar(TimeUnit.MILLISECONDS.toNanos(10), true);
+        assertThat(limite.limite()).isEqualTo(4);
+
+        for (int i = 0; i < 20; i++) {
+            ocupar(limite, 1);
+            limite.liberar(SEGUNDO, false);
+        }
+        assertThat(limite.limite()).isEqualTo(2);
+        assertThat(limite.enCurso()).isZero();
+    }
+
+    @Test
+    void conPocaOcupacionElLimiteNoCrece() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(10, 1, 100, SEGUNDO);
+
+        for (int i = 0; i < 50; i++) {
+            ocupar(limite, 1);
+            limite.liberar(1, false);
+        }
+
+        assertThat(limite.limite()).isEqualTo(10);
+    }
+
+    private static void ocupar(LimiteAdaptativo limite, int cuantas) {
+        for (int i = 0; i < cuantas; i++) {
+            assertThat(limite.adquirir()).isTrue();
+        }
+    }
+
+    private static void liberarTodas(LimiteAdaptativo limite, long nanos, boolean saturado) {
+        while (limite.enCurso() > 0) {
+            limite.liberar(nanos, saturado);
+        }
+    }
+
+    private ControlAdmision filtro(int rafaga, int limiteInicial) {
+        AdmisionProperties.Presupuesto presupuesto = new AdmisionProperties.Presupuesto(
+                1, rafaga, limiteInicial, 1, limiteInicial, Duration.ofSeconds(10));
+        // Las peticiones de prueba salen de 127.0.0.1: detrás de ese "proxy" la cabecera identifica al cliente
+        return new ControlAdmision(new AdmisionProperties(true, "X-Client-Id", List.of(PROXY), 100, presupuesto, presupuesto),
+                registry);
+    }
+
+    private static MockHttpServletResponse pedir(ControlAdmision filtro, String metodo, String cliente)
+            throws IOException, ServletException {
+        return pedir(filtro, metodo, cliente, (request, response) -> { });
+    }
+
+    private static MockHttpServletResponse pedirDesde(ControlAdmision filtro, String ip, String cliente)
+            throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/productos");
+        request.setRemoteAddr(ip);
+        request.addHeader("X-Client-Id", cliente);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletResponse pedir(ControlAdmision filtro, String metodo, String cliente,
+                                                 FilterChain destino) throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, "/productos");
+        request.addHeader("X-Client-Id", cliente);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, destino);
+        return response;
+    }
+}
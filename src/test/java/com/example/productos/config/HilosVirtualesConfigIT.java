@@ -0,0 +1,59 @@
+package com.example.productos.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.embedded.TomcatVirtualThreadsWebServerFactoryCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// El despachador del outbox se apaga: cada pasada toma una conexión y los permisos libres bajarían
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "productos.salida.despachador.habilitado=false")
+@ActiveProfiles("virtual")
+class HilosVirtualesConfigIT {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private TestRestTemplate rest;
+    @Autowired
+    private ApplicationContext contexto;
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void elPerfilVirtualLimitaLasConexionesAlTamanoDelPool() {
+        assertThat(dataSource).isInstanceOf(ConexionesLimitadasDataSource.class);
+        assertThat(((ConexionesLimitadasDataSource) dataSource).permisosDisponibles()).isEqualTo(20);
+    }
+
+    @Test
+    void publicaLaSaturacionDelLimitadorComoGauges() {
+        assertThat(registry.get("productos.conexiones.disponibles").gauge().value()).isEqualTo(20);
+        assertThat(registry.get("productos.conexiones.en.espera").gauge().value()).isZero();
+        // Hikari sigue publicando sus gauges aunque el DataSource esté envuelto
+        assertThat(registry.find("hikaricp.connections.max").gauge()).isNotNull();
+    }
+
+    @Test
+    void tomcatSeConfiguraConHilosVirtuales() {
+        assertThat(contexto.getBeanProvider(TomcatVirtualThreadsWebServerFactoryCustomizer.class).getIfAvailable())
+                .isNotNull();
+    }
+
+    @Test
+    void lasPeticionesFuncionanEnModoVirtual() {
+        ResponseEntity<String> respuesta = rest.getForEntity("/productos?after=0&limit=5", String.class);
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(respuesta.getBody()).contains("Proyector");
+    }
+}
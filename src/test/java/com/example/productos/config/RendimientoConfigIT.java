@@ -0,0 +1,78 @@
+package com.example.productos.config;
+
+import com.example.productos.Application;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Base propia: la caché de sentencias de H2 se fija al abrir la base con la primera conexión
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rendimiento;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+        "productos.rendimiento.pool.tamano=7",
+        "productos.salida.despachador.habilitado=false"
+})
+@ActiveProfiles("performance")
+class RendimientoConfigIT {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Test
+    void elPoolTomaLosAjustesDelPerfil() {
+        HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+
+        assertThat(hikari.getMaximumPoolSize()).isEqualTo(7);
+        assertThat(hikari.getMinimumIdle()).isEqualTo(7);
+        assertThat(hikari.getConnectionTimeout()).isEqualTo(2000);
+        assertThat(hikari.getLeakDetectionThreshold()).isEqualTo(10_000);
+        assertThat(jdbc.queryForObject("SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS "
+                + "WHERE SETTING_NAME = 'QUERY_CACHE_SIZE'", String.class)).isEqualTo("256");
+    }
+
+    @Test
+    void hibernateTomaLosAjustesDelPerfil() {
+        assertThat(emf.getProperties())
+                .containsEntry("hibernate.jdbc.batch_size", 50)
+                .containsEntry("hibernate.jdbc.fetch_size", 100)
+                .containsEntry("hibernate.order_updates", true)
+                .containsEntry("hibernate.jdbc.batch_versioned_data", true);
+    }
+
+    @Test
+    void unValorFueraDeRangoImpideArrancar() {
+        assertThatThrownBy(() -> arrancar("--productos.rendimiento.pool.tamano=0"))
+                .hasStackTraceContaining("productos.rendimiento.pool.tamano");
+        assertThatThrownBy(() -> arrancar("--productos.rendimiento.pool.deteccion-fugas=500ms"))
+                .hasStackTraceContaining("deteccion-fugas debe ser 0 o de al menos 2 s");
+        assertThatThrownBy(() -> arrancar("--productos.rendimiento.pool.tamano=4",
+                "--productos.rendimiento.pool.minimo-ocioso=5"))
+                .hasStackTraceContaining("minimo-ocioso no puede superar el tamaño del pool");
+    }
+
+    private static void arrancar(String... argumentos) {
+        new SpringApplicationBuilder(Application.class)
+                .profiles("performance")
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:rendimiento-invalido;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+                        "productos.salida.despachador.habilitado=false")
+                .run(argumentos)
+                .close();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.productos.config;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.service.NotFoundException;
+import com.example.productos.service.ProductoService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Dos bases H2 separadas y sin replicación entre ellas: lo que se lee de cada una prueba qué pool atendió.
+// La réplica se prepara a mano antes de levantar el contexto (Hibernate solo crea el esquema en la primaria)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaConfigIT.PRIMARIA,
+        "productos.replica.url=" + ReplicaConfigIT.REPLICA,
+        "spring.cache.type=none",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "productos.salida.despachador.habilitado=false"
+})
+class ReplicaConfigIT {
+
+    static final String PRIMARIA = "jdbc:h2:mem:rutas-primaria;DB_CLOSE_DELAY=-1;MODE=LEGACY";
+    static final String REPLICA = "jdbc:h2:mem:rutas-replica;DB_CLOSE_DELAY=-1;MODE=LEGACY";
+    private static final long SOLO_EN_REPLICA = 990_001L;
+
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private MeterRegistry registry;
+
+    @BeforeAll
+    static void prepararReplica() throws SQLException {
+        try (Connection c = DriverManager.getConnection(REPLICA, "sa", "");
+             Statement s = c.createStatement()) {
+            s.execute("CREATE TABLE producto (id BIGINT PRIMARY KEY, nombre VARCHAR(255) NOT NULL UNIQUE, "
+                    + "precio NUMERIC(12,2) NOT NULL, stock INTEGER NOT NULL, version BIGINT)");
+            s.execute("INSERT INTO producto VALUES (" + SOLO_EN_REPLICA + ", 'Solo en la réplica', 10.00, 1, 0)");
+        }
+    }
+
+    @AfterAll
+    static void borrarReplica() throws SQLException {
+        try (Connection c = DriverManager.getConnection(REPLICA, "sa", "");
+             Statement s = c.createStatement()) {
+            s.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void elDataSourceEsElEnrutadorDetrasDeUnProxyLazy() throws SQLException {
+        assertThat(dataSource.unwrap(LazyConnectionDataSourceProxy.class).getTargetDataSource())
+                .isInstanceOf(ReplicaConfig.EnrutadorLecturas.class);
+    }
+
+    @Test
+    void lasLecturasVanALaReplica() {
+        double antes = usos(ReplicaConfig.REPLICA);
+
+        assertThat(service.obtenerPorId(SOLO_EN_REPLICA).getNombre()).isEqualTo("Solo en la réplica");
+        assertThat(service.listar()).extracting(Producto::getId).containsExactly(SOLO_EN_REPLICA);
+
+        assertThat(usos(ReplicaConfig.REPLICA)).isEqualTo(antes + 2);
+    }
+
+    @Test
+    void lasEscriturasVanALaPrimaria() throws SQLException {
+        double antesPrimaria = usos(ReplicaConfig.PRIMARIA);
+        double antesReplica = usos(ReplicaConfig.REPLICA);
+
+        Producto creado = service.crear("Solo en la primaria", new BigDecimal("5.00"), 2);
+
+        assertThat(usos(ReplicaConfig.PRIMARIA)).isGreaterThan(antesPrimaria);
+        assertThat(usos(ReplicaConfig.REPLICA)).isEqualTo(antesReplica);
+        assertThat(existeEn(PRIMARIA, creado.getId())).isTrue();
+        assertThat(existeEn(REPLICA, creado.getId())).isFalse();
+        // Sin replicación la lectura siguiente no lo encuentra: se atendió en la réplica
+        assertThatThrownBy(() -> service.obtenerPorId(creado.getId())).isInstanceOf(NotFoundException.class);
+    }
+
+    // Conexiones entregadas por el pool (Hikari registra su tiempo de uso al devolverlas)
+    private double usos(String pool) {
+        return registry.get("hikaricp.connections.usage").tag("pool", pool).timer().count();
+    }
+
+    private static boolean existeEn(String url, long id) throws SQLException {
+        try (Connection c = DriverManager.getConnection(url, "sa", "");
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM producto WHERE id = " + id)) {
+            rs.next();
+            return rs.getInt(1) == 1;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.productos.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// El filtro de admisión registrado por AdmisionConfig, con una ráfaga chica para agotarla enseguida.
+// MockMvc pide desde 127.0.0.1, declarado como proxy para que X-Client-Id distinga a los clientes
+@SpringBootTest(properties = {
+        "productos.admision.habilitada=true",
+        "productos.admision.proxies-confiables=127.0.0.1",
+        "productos.admision.lecturas.por-segundo=1",
+        "productos.admision.lecturas.rafaga=3",
+        "productos.salida.despachador.habilitado=false"
+})
+@AutoConfigureMockMvc
+class AdmisionIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void pasadaLaTasaDelClienteLaApiResponde429YElActuatorSigueDisponible() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/productos").param("limit", "1").header("X-Client-Id", "carrito"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/productos").param("limit", "1").header("X-Client-Id", "carrito"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+        mockMvc.perform(get("/productos").param("limit", "1").header("X-Client-Id", "checkout"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.productos.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Con servidor real: las suscripciones son conexiones HTTP abiertas y los cambios llegan después del commit
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CambiosIT {
+
+    private static final int SUSCRIPTORES = 64;
+
+    @LocalServerPort
+    private int puerto;
+    @Autowired
+    private TestRestTemplate rest;
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final List<Suscriptor> suscriptores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        suscriptores.forEach(Suscriptor::cerrar);
+    }
+
+    @Test
+    void muchosSuscriptoresRecibenTodosLosCambiosEnOrden() throws Exception {
+        for (int i = 0; i < SUSCRIPTORES; i++) {
+            suscriptores.add(suscribir(null));
+        }
+        for (Suscriptor s : suscriptores) {
+            assertThat(s.conectado.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        List<String> esperados = escribir();
+
+        for (Suscriptor s : suscriptores) {
+            s.esperar(esperados.size());
+            assertThat(s.eventos()).containsExactlyElementsOf(esperados);
+            assertThat(s.ids).isSorted().doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void alReconectarConLastEventIdRecibeLoQueFaltaba() throws Exception {
+        Suscriptor primero = suscribir(null);
+        suscriptores.add(primero);
+        assertThat(primero.conectado.await(10, TimeUnit.SECONDS)).isTrue();
+        List<String> esperados = escribir();
+        primero.esperar(esperados.size());
+        primero.cerrar();
+
+        // Se "perdió" la conexión después del primer cambio: reanuda desde su id
+        Suscriptor reconectado = suscribir(primero.ids.get(0));
+        suscriptores.add(reconectado);
+        reconectado.esperar(esperados.size() - 1);
+        assertThat(reconectado.eventos()).containsExactlyElementsOf(esperados.subList(1, esperados.size()));
+    }
+
+    @Test
+    void unLastEventIdInvalidoEsUnaPeticionIncorrecta() throws Exception {
+        HttpResponse<String> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url("/productos/changes")))
+                        .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                        .header("Last-Event-ID", "abc")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(respuesta.statusCode()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    // Crea, modifica, ajusta stock y elimina un producto; devuelve los eventos esperados como "TIPO:id"
+    private List<String> escribir() {
+        ResponseEntity<String> creado = rest.postForEntity("/productos",
+                json("{\"nombre\": \"Bicicleta Urbana\", \"precio\": 300.00, \"stock\": 5}"), String.class);
+        assertThat(creado.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        long id = ((Number) JsonPath.read(creado.getBody(), "$.id")).longValue();
+
+        assertThat(rest.exchange("/productos/" + id, HttpMethod.PUT,
+                json("{\"nombre\": \"Bicicleta Urbana\", \"precio\": 280.00, \"stock\": 5}"), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rest.postForEntity("/productos/" + id + "/stock:adjust", json("{\"delta\": -2}"), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        rest.delete("/productos/" + id);
+
+        return List.of("CREADO:" + id, "ACTUALIZADO:" + id, "STOCK_AJUSTADO:" + id, "ELIMINADO:" + id);
+    }
+
+    private Suscriptor suscribir(Long ultimoId) throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(url("/productos/changes")))
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE);
+        if (ultimoId != null) {
+            peticion.header("Last-Event-ID", ultimoId.toString());
+        }
+        HttpResponse<Stream<String>> respuesta = cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(respuesta.statusCode()).isEqualTo(HttpStatus.OK.value());
+        Suscriptor suscriptor = new Suscriptor(respuesta.body());
+        Thread.ofVirtual().start(suscriptor::leer);
+        return suscriptor;
+    }
+
+    private String url(String ruta) {
+        return "http://localhost:" + puerto + ruta;
+    }
+
+    private static HttpEntity<String> json(String cuerpo) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(cuerpo, headers);
+    }
+
+    private static final class Suscriptor {
+        final Stream<String> lineas;
+        final CountDownLatch conectado = new CountDownLatch(1);
+        final List<Long> ids = new CopyOnWriteArrayList<>();
+        final List<String> datos = new CopyOnWriteArrayList<>();
+
+        Suscriptor(Stream<String> lineas) {
+            this.lineas = lineas;
+        }
+
+        void leer() {
+            try {
+                lineas.forEach(linea -> {
+                    if (linea.startsWith(":conectado")) {
+                        conectado.countDown();
+                    } else if (linea.startsWith("id:")) {
+                        ids.add(Long.parseLong(linea.substring(3).trim()));
+                    } else if (linea.startsWith("data:")) {
+                        datos.add(linea.substring(5));
+                    }
+                });
+            } catch (RuntimeException e) {
+                // La conexión se cerró desde el test
+            }
+        }
+
+        List<String> eventos() {
+            return datos.stream()
+                    .map(d -> JsonPath.read(d, "$.tipo") + ":" + JsonPath.read(d, "$.id"))
+                    .toList();
+        }
+
+        void esperar(int cantidad) throws InterruptedException {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (datos.size() < cantidad && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            assertThat(datos).hasSizeGreaterThanOrEqualTo(cantidad);
+        }
+
+        void cerrar() {
+            lineas.close();
+        }
+    }
+}
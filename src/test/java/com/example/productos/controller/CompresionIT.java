@@ -0,0 +1,110 @@
+package com.example.productos.controller;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.service.ProductoService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Con servidor real: la compresión la hace Tomcat (server.compression.*), MockMvc no la ve.
+// HttpClient no descomprime solo, así que se puede comprobar el encabezado y el cuerpo gzip
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CompresionIT {
+
+    // Suficientes para pasar el mínimo de 2 KB de server.compression.min-response-size
+    private static final int PRODUCTOS = 60;
+
+    @LocalServerPort
+    private int puerto;
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+    private final List<Long> creados = new ArrayList<>();
+    private long desde;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PRODUCTOS; i++) {
+            creados.add(service.crear("Compresión " + i, new BigDecimal("19.90"), i).getId());
+        }
+        desde = creados.get(0) - 1;
+    }
+
+    @AfterEach
+    void tearDown() {
+        creados.forEach(service::eliminar);
+    }
+
+    @Test
+    void laPaginaJsonSeComprimeSiElClienteAceptaGzip() throws Exception {
+        HttpResponse<InputStream> respuesta = pedir("/productos?limit=" + PRODUCTOS + "&after=" + desde,
+                "application/json", "gzip");
+
+        assertThat(respuesta.statusCode()).isEqualTo(200);
+        assertThat(respuesta.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(respuesta.headers().allValues("Vary")).anyMatch(v -> v.equalsIgnoreCase("Accept-Encoding"));
+        try (InputStream cuerpo = new GZIPInputStream(respuesta.body())) {
+            Producto[] pagina = objectMapper.readValue(cuerpo, Producto[].class);
+            assertThat(pagina).extracting(Producto::getId).containsExactlyElementsOf(creados);
+        }
+    }
+
+    @Test
+    void sinAcceptEncodingLaRespuestaVaSinComprimir() throws Exception {
+        HttpResponse<InputStream> respuesta = pedir("/productos?limit=" + PRODUCTOS + "&after=" + desde,
+                "application/json", null);
+
+        assertThat(respuesta.headers().firstValue("Content-Encoding")).isEmpty();
+        try (InputStream cuerpo = respuesta.body()) {
+            assertThat(objectMapper.readValue(cuerpo, Producto[].class)).hasSize(PRODUCTOS);
+        }
+    }
+
+    @Test
+    void lasExportacionesSeComprimenMientrasSeEscriben() throws Exception {
+        HttpResponse<InputStream> ndjson = pedir("/productos?after=" + desde, "application/x-ndjson", "gzip");
+        HttpResponse<InputStream> cbor = pedir("/productos?after=" + desde, "application/cbor-seq", "gzip");
+
+        assertThat(ndjson.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(cbor.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        try (InputStream cuerpo = new GZIPInputStream(ndjson.body())) {
+            assertThat(new String(cuerpo.readAllBytes()).lines()).hasSize(PRODUCTOS);
+        }
+        try (MappingIterator<Producto> productos = new CBORMapper().readerFor(Producto.class)
+                .readValues(new GZIPInputStream(cbor.body()))) {
+            assertThat(productos.readAll()).extracting(Producto::getId).containsExactlyElementsOf(creados);
+        }
+    }
+
+    private HttpResponse<InputStream> pedir(String ruta, String accept, String acceptEncoding)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta))
+                .header("Accept", accept);
+        if (acceptEncoding != null) {
+            peticion.header("Accept-Encoding", acceptEncoding);
+        }
+        return cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+}
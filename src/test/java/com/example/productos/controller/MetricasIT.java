@@ -0,0 +1,90 @@
+package com.example.productos.controller;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import com.example.productos.service.ProductoService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Sin @AutoConfigureObservability las pruebas usan un registro vacío y no publican /actuator/prometheus
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricasIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private ProductoRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        repository.findByNombre("Métricas").ifPresent(repository::delete);
+    }
+
+    @Test
+    void registraLatenciaPorEndpointYPorMetodoDeServicio() throws Exception {
+        Long id = repository.save(new Producto("Métricas", new BigDecimal("1.00"), 1)).getId();
+        mockMvc.perform(get("/productos/{id}", id)).andExpect(status().isOk());
+
+        assertThat(registry.get("http.server.requests").tag("uri", "/productos/{id}").tag("status", "200")
+                .timer().count()).isPositive();
+        assertThat(registry.get("productos.servicio").tag("class", ProductoService.class.getName()).tag("method", "obtenerPorId")
+                .timer().count()).isPositive();
+        assertThat(registry.get("spring.data.repository.invocations").tag("repository", "ProductoRepository")
+                .timer().count()).isPositive();
+    }
+
+    @Test
+    void cuentaLosErroresPorTipoYOperacion() throws Exception {
+        double noEncontradosAntes = contador("no_encontrado", "obtener");
+        double invalidosAntes = contador("argumento_invalido", "crear");
+
+        mockMvc.perform(get("/productos/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+        mockMvc.perform(post("/productos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"precio\": 1.00, \"stock\": 1}"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(contador("no_encontrado", "obtener")).isEqualTo(noEncontradosAntes + 1);
+        assertThat(contador("argumento_invalido", "crear")).isEqualTo(invalidosAntes + 1);
+        assertThat(registry.get("productos.servicio").tag("method", "obtenerPorId").tag("exception", "NotFoundException")
+                .timer().count()).isPositive();
+    }
+
+    @Test
+    void expondeHistogramasYElPoolEnFormatoPrometheus() throws Exception {
+        mockMvc.perform(get("/productos")).andExpect(status().isOk());
+
+        String cuerpo = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(cuerpo)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("productos_servicio_seconds_bucket{")
+                .contains("spring_data_repository_invocations_seconds_bucket{")
+                .contains("hikaricp_connections_pending{")
+                .contains("hikaricp_connections_active{");
+    }
+
+    private double contador(String tipo, String operacion) {
+        var contador = registry.find("productos.errores").tag("tipo", tipo).tag("operacion", operacion).counter();
+        return contador == null ? 0 : contador.count();
+    }
+}
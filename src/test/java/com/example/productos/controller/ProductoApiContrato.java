@@ -0,0 +1,286 @@
+package com.example.productos.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Escenarios de ProductoControllerIT sobre HTTP real, compartidos por la variante servlet
+// (ProductoApiServletIT) y la reactiva (ProductoApiReactivoIT). Sin rollback: cada prueba
+// crea sus propios productos con nombres únicos y los elimina al terminar
+abstract class ProductoApiContrato {
+
+    @Autowired
+    protected WebTestClient client;
+
+    private final List<Long> creados = new ArrayList<>();
+    private String sufijo;
+
+    @BeforeEach
+    void setUp() {
+        sufijo = " " + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        creados.forEach(id -> client.delete().uri("/productos/{id}", id).exchange());
+    }
+
+    @Test
+    void listarPaginadoRespetaLimiteYEnlazaSiguientePagina() {
+        long primero = crear("Laptop", 2500, 2).get("id").asLong();
+        crear("Monitor", 150, 4);
+
+        client.get().uri("/productos?after={after}&limit=1", primero - 1).exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectHeader().valueEquals(HttpHeaders.LINK, "</productos?after=" + primero + "&limit=1>; rel=\"next\"")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(primero);
+
+        client.get().uri("/productos?after={after}&limit=1", primero).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].nombre").isEqualTo("Monitor" + sufijo);
+    }
+
+    @Test
+    void listarConLimiteFueraDeRangoDevuelve400() {
+        client.get().uri("/productos?limit=0").exchange().expectStatus().isBadRequest();
+        client.get().uri("/productos?limit=5000").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void listarDevuelve304MientrasLaPaginaNoCambie() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+        String etag = client.get().uri("/productos?after={after}&limit=1", id - 1).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+
+        client.get().uri("/productos?after={after}&limit=1", id - 1).header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void listarNdjsonEmiteUnaLineaPorProducto() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+        crear("Monitor", 150, 4);
+
+        String cuerpo = client.get().uri("/productos?after={after}", id - 1).accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        String[] lineas = cuerpo.strip().split("\n");
+        assertThat(lineas).hasSize(2);
+        assertThat(lineas[0]).contains("\"nombre\":\"Laptop" + sufijo + "\"");
+        assertThat(lineas[1]).contains("\"nombre\":\"Monitor" + sufijo + "\"");
+    }
+
+    @Test
+    void crearProductoDevuelve201ConETag() {
+        client.post().uri("/productos")
+                .bodyValue(Map.of("nombre", "Laptop" + sufijo, "precio", 2500, "stock", 2))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody(JsonNode.class).value(creado -> creados.add(creado.get("id").asLong()));
+    }
+
+    @Test
+    void crearProductoConPrecioNegativoDevuelve400() {
+        client.post().uri("/productos")
+                .bodyValue(Map.of("nombre", "Laptop" + sufijo, "precio", -1, "stock", 2))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("El precio no puede ser negativo");
+    }
+
+    @Test
+    void cuerpoMalformadoDevuelve400() {
+        client.post().uri("/productos").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"nombre\":\"Raro%s\",\"precio\":10,\"stock\":2.5}".formatted(sufijo))
+                .exchange().expectStatus().isBadRequest();
+        client.post().uri("/productos").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"precio\":10,\"stock\":1}")
+                .exchange().expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("El nombre es obligatorio");
+    }
+
+    @Test
+    void actualizarParcialConCampoNullDevuelve400() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.patch().uri("/productos/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"precio\":null}")
+                .exchange().expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("El campo precio no puede ser null");
+    }
+
+    @Test
+    void obtenerDevuelveETagY304ConIfNoneMatch() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.get().uri("/productos/{id}", id).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody().jsonPath("$.nombre").isEqualTo("Laptop" + sufijo);
+        client.get().uri("/productos/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"0\"").exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void obtenerProductoInexistenteDevuelve404() {
+        client.get().uri("/productos/{id}", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void actualizarConIfMatchVigenteIncrementaLaVersion() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.put().uri("/productos/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(Map.of("nombre", "Laptop Pro" + sufijo, "precio", 3000, "stock", 5))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.nombre").isEqualTo("Laptop Pro" + sufijo)
+                .jsonPath("$.stock").isEqualTo(5);
+    }
+
+    @Test
+    void escriturasConIfMatchObsoletoDevuelven412() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.put().uri("/productos/{id}", id).header(HttpHeaders.IF_MATCH, "\"7\"")
+                .bodyValue(Map.of("nombre", "Laptop" + sufijo, "precio", 3000, "stock", 5))
+                .exchange().expectStatus().isEqualTo(412);
+        client.patch().uri("/productos/{id}", id).header(HttpHeaders.IF_MATCH, "\"7\"")
+                .bodyValue(Map.of("stock", 1))
+                .exchange().expectStatus().isEqualTo(412);
+        client.delete().uri("/productos/{id}", id).header(HttpHeaders.IF_MATCH, "\"7\"")
+                .exchange().expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    void actualizarParcialSoloCambiaLosCamposEnviados() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.patch().uri("/productos/{id}", id)
+                .bodyValue(Map.of("stock", 9))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.nombre").isEqualTo("Laptop" + sufijo)
+                .jsonPath("$.precio").isEqualTo(2500.0)
+                .jsonPath("$.stock").isEqualTo(9);
+    }
+
+    @Test
+    void actualizarProductoNoExistenteDevuelve404() {
+        client.put().uri("/productos/{id}", Long.MAX_VALUE)
+                .bodyValue(Map.of("nombre", "Laptop" + sufijo, "precio", 3000, "stock", 5))
+                .exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void eliminarProductoDevuelve204YLuego404() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.delete().uri("/productos/{id}", id).exchange().expectStatus().isNoContent();
+        client.delete().uri("/productos/{id}", id).exchange().expectStatus().isNotFound();
+        client.get().uri("/productos/{id}", id).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void ajustarStockDescuentaYRechazaStockInsuficiente() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.post().uri("/productos/{id}/stock:adjust", id).bodyValue(Map.of("delta", -2))
+                .exchange().expectStatus().isNoContent();
+        client.post().uri("/productos/{id}/stock:adjust", id).bodyValue(Map.of("delta", -1))
+                .exchange().expectStatus().isEqualTo(409);
+        client.get().uri("/productos/{id}", id).exchange()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody().jsonPath("$.stock").isEqualTo(0);
+    }
+
+    @Test
+    void ajustarStockDeProductoInexistenteDevuelve404() {
+        client.post().uri("/productos/{id}/stock:adjust", Long.MAX_VALUE).bodyValue(Map.of("delta", 1))
+                .exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void ajustarStockQueDesbordariaElStockDevuelve400() {
+        long id = crear("Laptop", 2500, 2).get("id").asLong();
+
+        client.post().uri("/productos/{id}/stock:adjust", id).bodyValue(Map.of("delta", Integer.MAX_VALUE))
+                .exchange().expectStatus().isBadRequest();
+        client.post().uri("/productos/stock:adjust")
+                .bodyValue(List.of(Map.of("id", id, "delta", -1), Map.of("id", id, "delta", Integer.MAX_VALUE)))
+                .exchange().expectStatus().isBadRequest();
+        client.get().uri("/productos/{id}", id).exchange().expectBody().jsonPath("$.stock").isEqualTo(2);
+    }
+
+    @Test
+    void ajustarStockEnLoteEsTodoONada() {
+        long a = crear("Laptop", 2500, 2).get("id").asLong();
+        long b = crear("Monitor", 150, 1).get("id").asLong();
+
+        client.post().uri("/productos/stock:adjust")
+                .bodyValue(List.of(Map.of("id", a, "delta", -1), Map.of("id", b, "delta", -2)))
+                .exchange().expectStatus().isEqualTo(409);
+        client.get().uri("/productos/{id}", a).exchange().expectBody().jsonPath("$.stock").isEqualTo(2);
+
+        client.post().uri("/productos/stock:adjust")
+                .bodyValue(List.of(Map.of("id", a, "delta", -1), Map.of("id", b, "delta", -1)))
+                .exchange().expectStatus().isNoContent();
+        client.get().uri("/productos/{id}", b).exchange().expectBody().jsonPath("$.stock").isEqualTo(0);
+    }
+
+    @Test
+    void cargaMasivaNdjsonCreaActualizaYReportaErroresPorElemento() {
+        crear("Laptop", 2500, 2);
+        String cuerpo = """
+                {"nombre":"Laptop%1$s","precio":2400,"stock":3}
+                {"nombre":"Teclado%1$s","precio":45,"stock":10}
+                {"nombre":"Mouse%1$s","precio":-1,"stock":10}
+                """.formatted(sufijo);
+
+        JsonNode resultados = client.post().uri("/productos/_bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(cuerpo)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+
+        assertThat(resultados).hasSize(3);
+        assertThat(resultados.get(0).get("estado").asText()).isEqualTo("ACTUALIZADO");
+        assertThat(resultados.get(1).get("estado").asText()).isEqualTo("CREADO");
+        assertThat(resultados.get(2).get("estado").asText()).isEqualTo("ERROR");
+        assertThat(resultados.get(2).get("error").asText()).isEqualTo("El precio no puede ser negativo");
+        creados.add(resultados.get(1).get("id").asLong());
+    }
+
+    private JsonNode crear(String nombre, int precio, int stock) {
+        JsonNode creado = client.post().uri("/productos")
+                .bodyValue(Map.of("nombre", nombre + sufijo, "precio", precio, "stock", stock))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+        creados.add(creado.get("id").asLong());
+        return creado;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.productos.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactivo")
+class ProductoApiReactivoIT extends ProductoApiContrato {
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Test
+    void seSirveConNettySinJpaNiServlet() {
+        assertThat(contexto.getBeanNamesForType(NettyReactiveWebServerFactory.class)).hasSize(1);
+        assertThat(contexto.containsBean("entityManagerFactory")).isFalse();
+        assertThat(contexto.getBeanNamesForType(ProductoController.class)).isEmpty();
+    }
+}
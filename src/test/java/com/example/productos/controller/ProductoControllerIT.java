@@ -2,7 +2,10 @@ package com.example.productos.controller;
 
 import com.example.productos.domain.Producto;
 import com.example.productos.repository.ProductoRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,7 +22,8 @@ import java.util.HashMap;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.assertj.core.api.Assertions.assertThat;
-@SpringBootTest
+// En modo estricto toda petición que supere su presupuesto de sentencias (productos.sql.presupuestos) falla
+@SpringBootTest(properties = "productos.sql.estricto=true")
 @AutoConfigureMockMvc
 @Transactional
 // Se modifica la clase para que sea Publica y se pueda acceder a ella en los test
@@ -39,6 +43,8 @@ public class ProductoControllerIT {
         repository.deleteAll();
         Producto p = new Producto("Laptop", new BigDecimal("2500.00"), 2);
         existingId = repository.save(p).getId();
+        // Los INSERT/DELETE pendientes se ejecutan acá y no se cuentan en la primera petición de la prueba
+        repository.flush();
     }
 
     @Test
@@ -48,6 +54,235 @@ public class ProductoControllerIT {
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
     }
 
+    @Test
+    void listarPaginadoRespetaLimiteYEnlazaSiguientePagina() throws Exception {
+        repository.saveAndFlush(new Producto("Monitor", new BigDecimal("150.00"), 4));
+
+        mockMvc.perform(get("/productos").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(existingId))
+                .andExpect(header().string("Link", "</productos?after=" + existingId + "&limit=1>; rel=\"next\""));
+
+        mockMvc.perform(get("/productos").param("after", existingId.toString()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nombre").value("Monitor"));
+    }
+
+    @Test
+    void listarUltimaPaginaNoDevuelveLink() throws Exception {
+        mockMvc.perform(get("/productos").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void listarConLimiteFueraDeRangoDevuelve400() throws Exception {
+        mockMvc.perform(get("/productos").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/productos").param("limit", "5000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listarConFieldsDevuelveSoloLosCamposPedidosMasElId() throws Exception {
+        repository.saveAndFlush(new Producto("Monitor", new BigDecimal("150.00"), 4));
+
+        mockMvc.perform(get("/productos").param("fields", "precio").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(existingId))
+                .andExpect(jsonPath("$[0].precio").value(2500.00))
+                .andExpect(jsonPath("$[0].nombre").doesNotExist())
+                .andExpect(jsonPath("$[0].version").doesNotExist())
+                .andExpect(header().string("Link",
+                        "</productos?fields=id,precio&after=" + existingId + "&limit=1>; rel=\"next\""));
+
+        mockMvc.perform(get("/productos").param("fields", "nombre,stock").param("after", existingId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nombre").value("Monitor"))
+                .andExpect(jsonPath("$[0].stock").value(4))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void listarConFieldsDesconocidoDevuelve400() throws Exception {
+        mockMvc.perform(get("/productos").param("fields", "id,costo"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Campo desconocido: costo"));
+    }
+
+    @Test
+    void buscarFiltraPorPrefijoYRangoDePrecio() throws Exception {
+        repository.saveAndFlush(new Producto("Laptop Gamer", new BigDecimal("4000.00"), 1));
+        repository.saveAndFlush(new Producto("Laptop Basica", new BigDecimal("900.00"), 7));
+        repository.saveAndFlush(new Producto("Mouse", new BigDecimal("20.00"), 30));
+
+        mockMvc.perform(get("/productos/search").param("nombre", "Laptop").param("precioMin", "1000")
+                        .param("sort", "precio,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].nombre").value("Laptop Gamer"))
+                .andExpect(jsonPath("$[1].nombre").value("Laptop"))
+                .andExpect(header().doesNotExist("Link"));
+
+        mockMvc.perform(get("/productos/search").param("contiene", "MOUS").param("stockMin", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].nombre").value("Mouse"));
+    }
+
+    @Test
+    void buscarPaginaConCursorSiguiendoElLink() throws Exception {
+        repository.saveAndFlush(new Producto("Laptop Gamer", new BigDecimal("2500.00"), 1));
+        repository.saveAndFlush(new Producto("Laptop Basica", new BigDecimal("900.00"), 7));
+
+        String link = mockMvc.perform(get(java.net.URI.create("/productos/search?nombre=Laptop%20&sort=precio,desc&limit=1")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nombre").value("Laptop Gamer"))
+                .andReturn().getResponse().getHeader("Link");
+        assertThat(link).startsWith("</productos/search?nombre=Laptop%20&sort=precio,desc&limit=1&cursor=")
+                .endsWith(">; rel=\"next\"");
+
+        String siguiente = link.substring(1, link.indexOf('>'));
+        mockMvc.perform(get(java.net.URI.create(siguiente)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].nombre").value("Laptop Basica"))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void buscarConParametrosInvalidosDevuelve400() throws Exception {
+        mockMvc.perform(get("/productos/search").param("sort", "version"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/productos/search").param("precioMin", "10").param("precioMax", "5"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/productos/search").param("cursor", "no-es-un-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Cursor inválido"));
+    }
+
+    @Test
+    void buscarConCursorDeOtroOrdenOEditadoDevuelve400() throws Exception {
+        repository.saveAndFlush(new Producto("Laptop Gamer", new BigDecimal("2500.00"), 1));
+        String link = mockMvc.perform(get("/productos/search").param("sort", "precio,desc").param("limit", "1"))
+                .andReturn().getResponse().getHeader("Link");
+        String cursor = link.substring(link.indexOf("cursor=") + "cursor=".length(), link.indexOf('>'));
+
+        mockMvc.perform(get("/productos/search").param("sort", "stock").param("limit", "1").param("cursor", cursor))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Cursor inválido"));
+        String sinId = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString("{\"precio\":10}".getBytes());
+        mockMvc.perform(get("/productos/search").param("sort", "precio,desc").param("cursor", sinId))
+                .andExpect(status().isBadRequest());
+        String idNulo = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString("{\"id\":null}".getBytes());
+        mockMvc.perform(get("/productos/search").param("cursor", idNulo))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listarNdjsonEmiteUnaLineaPorProducto() throws Exception {
+        repository.saveAndFlush(new Producto("Monitor", new BigDecimal("150.00"), 4));
+
+        String cuerpo = mockMvc.perform(get("/productos").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lineas = cuerpo.split("\n");
+        assertThat(lineas).hasSize(2);
+        assertThat(objectMapper.readValue(lineas[0], Producto.class).getNombre()).isEqualTo("Laptop");
+        assertThat(objectMapper.readValue(lineas[1], Producto.class).getNombre()).isEqualTo("Monitor");
+    }
+
+    @Test
+    void listarCborSeqEmiteUnProductoTrasOtro() throws Exception {
+        repository.saveAndFlush(new Producto("Monitor", new BigDecimal("150.00"), 4));
+
+        byte[] cuerpo = mockMvc.perform(get("/productos").accept(ProductoController.APPLICATION_CBOR_SEQ_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProductoController.APPLICATION_CBOR_SEQ_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (MappingIterator<Producto> productos = new CBORMapper().readerFor(Producto.class).readValues(cuerpo)) {
+            assertThat(productos.readAll()).extracting(Producto::getNombre).containsExactly("Laptop", "Monitor");
+        }
+    }
+
+    @Test
+    void listarPaginadoEnSmileOCbor() throws Exception {
+        byte[] smile = mockMvc.perform(get("/productos").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] cbor = mockMvc.perform(get("/productos").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Producto[] desdeSmile = new SmileMapper().readValue(smile, Producto[].class);
+        Producto[] desdeCbor = new CBORMapper().readValue(cbor, Producto[].class);
+        assertThat(desdeSmile).singleElement().satisfies(p -> {
+            assertThat(p.getId()).isEqualTo(existingId);
+            assertThat(p.getPrecio()).isEqualByComparingTo("2500.00");
+        });
+        assertThat(desdeCbor).singleElement().extracting(Producto::getNombre).isEqualTo("Laptop");
+    }
+
+    @Test
+    void cargaMasivaJsonCreaActualizaYReportaErroresPorElemento() throws Exception {
+        String body = """
+                [
+                  {"nombre": "Laptop", "precio": 2300.00, "stock": 5},
+                  {"nombre": "Tablet", "precio": 450.50, "stock": 7},
+                  {"nombre": "Defectuoso", "precio": -1, "stock": 1}
+                ]
+                """;
+        mockMvc.perform(post("/productos/_bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].estado").value("ACTUALIZADO"))
+                .andExpect(jsonPath("$[0].id").value(existingId))
+                .andExpect(jsonPath("$[1].estado").value("CREADO"))
+                .andExpect(jsonPath("$[1].id").exists())
+                .andExpect(jsonPath("$[2].estado").value("ERROR"))
+                .andExpect(jsonPath("$[2].error").value("El precio no puede ser negativo"));
+
+        assertThat(repository.findByNombre("Laptop").get().getStock()).isEqualTo(5);
+        assertThat(repository.findByNombre("Tablet").get().getPrecio()).isEqualByComparingTo("450.50");
+        assertThat(repository.findByNombre("Defectuoso")).isEmpty();
+    }
+
+    @Test
+    void cargaMasivaNdjson() throws Exception {
+        String body = """
+                {"nombre": "Teclado", "precio": 49.99, "stock": 10}
+                {"nombre": "Mouse", "precio": 19.99, "stock": 20}
+                """;
+        mockMvc.perform(post("/productos/_bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].indice").value(0))
+                .andExpect(jsonPath("$[0].estado").value("CREADO"))
+                .andExpect(jsonPath("$[1].indice").value(1))
+                .andExpect(jsonPath("$[1].nombre").value("Mouse"));
+
+        assertThat(repository.findByNombre("Mouse")).isPresent();
+    }
+
+    @Test
+    void cargaMasivaConJsonMalformadoDevuelve400() throws Exception {
+        mockMvc.perform(post("/productos/_bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"nombre\": \"Roto\", \"precio\": }]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void crearProductoDevuelve201() throws Exception {
         var body = objectMapper.writeValueAsString(new java.util.HashMap<String, Object>() {{
@@ -80,6 +315,207 @@ public class ProductoControllerIT {
                 .andExpect(jsonPath("$.stock").value(8));
     }
 
+    @Test
+    void obtenerDespuesDeActualizarNoDevuelvePrecioObsoleto() throws Exception {
+        mockMvc.perform(get("/productos/{id}", existingId))
+                .andExpect(jsonPath("$.precio").value(2500.00));
+
+        mockMvc.perform(patch("/productos/{id}", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"precio\": 2100.00}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/productos/{id}", existingId))
+                .andExpect(jsonPath("$.precio").value(2100.00));
+
+        mockMvc.perform(put("/productos/{id}", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Laptop\", \"precio\": -5, \"stock\": 2}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/productos/{id}", existingId))
+                .andExpect(jsonPath("$.precio").value(2100.00));
+
+        mockMvc.perform(delete("/productos/{id}", existingId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/productos/{id}", existingId))
+                .andExpect(status().isNotFound());
+    }
+
+    // Pruebas de ETag / If-None-Match / If-Match
+    @Test
+    void obtenerDevuelveETagY304ConIfNoneMatch() throws Exception {
+        String etag = mockMvc.perform(get("/productos/{id}", existingId))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/productos/{id}", existingId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void listarDevuelve304MientrasLaPaginaNoCambie() throws Exception {
+        String etag = mockMvc.perform(get("/productos"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotBlank();
+
+        mockMvc.perform(get("/productos").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/productos/{id}", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stock\": 9}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/productos").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void actualizarConIfMatchVigenteIncrementaLaVersion() throws Exception {
+        mockMvc.perform(put("/productos/{id}", existingId)
+                .header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Laptop\", \"precio\": 2400.00, \"stock\": 2}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void escriturasConIfMatchObsoletoDevuelven412() throws Exception {
+        mockMvc.perform(patch("/productos/{id}", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stock\": 1}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/productos/{id}", existingId)
+                .header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Laptop\", \"precio\": 1.00, \"stock\": 2}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/productos/{id}", existingId)
+                .header("If-Match", "W/\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"precio\": 1.00}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/productos/{id}", existingId).header("If-Match", "\"0\""))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(repository.findById(existingId).get().getPrecio()).isEqualByComparingTo("2500.00");
+    }
+
+    @Test
+    void eliminarConIfMatchVigenteDevuelve204() throws Exception {
+        mockMvc.perform(delete("/productos/{id}", existingId).header("If-Match", "\"0\""))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/productos/{id}", existingId).header("If-Match", "\"0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    // Pruebas del ajuste atómico de stock
+    @Test
+    void ajustarStockDescuentaYRechazaStockInsuficiente() throws Exception {
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": -2}"))
+                .andExpect(status().isNoContent());
+        assertThat(repository.findById(existingId).get().getStock()).isZero();
+
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": -1}"))
+                .andExpect(status().isConflict());
+        assertThat(repository.findById(existingId).get().getStock()).isZero();
+    }
+
+    @Test
+    void ajustarStockDeProductoInexistenteDevuelve404() throws Exception {
+        mockMvc.perform(post("/productos/99999/stock:adjust")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": 1}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void ajustarStockSinDeltaDevuelve400() throws Exception {
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": \"mucho\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void ajustarStockQueDesbordariaElStockDevuelve400() throws Exception {
+        Long otroId = repository.saveAndFlush(new Producto("Monitor", new BigDecimal("150.00"), 4)).getId();
+
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": " + Integer.MAX_VALUE + "}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/productos/stock:adjust")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": " + otroId + ", \"delta\": -1}, {\"id\": " + existingId + ", \"delta\": "
+                        + Integer.MAX_VALUE + "}]"))
+                .andExpect(status().isBadRequest());
+        assertThat(repository.findById(existingId).get().getStock()).isEqualTo(2);
+        assertThat(repository.findById(otroId).get().getStock()).isEqualTo(4);
+
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": " + (Integer.MAX_VALUE - 2) + "}"))
+                .andExpect(status().isNoContent());
+        assertThat(repository.findById(existingId).get().getStock()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void ajustarStockSinDeltaODeltaNoEnteroDevuelve400() throws Exception {
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": 2.5}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/productos/{id}/stock:adjust", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": 3000000000}"))
+                .andExpect(status().isBadRequest());
+        assertThat(repository.findById(existingId).get().getStock()).isEqualTo(2);
+    }
+
+    @Test
+    void ajustarStockEnLoteEsTodoONada() throws Exception {
+        Long otroId = repository.saveAndFlush(new Producto("Monitor", new BigDecimal("150.00"), 4)).getId();
+
+        mockMvc.perform(post("/productos/stock:adjust")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": " + otroId + ", \"delta\": -1}, {\"id\": " + existingId + ", \"delta\": -5}]"))
+                .andExpect(status().isConflict());
+        assertThat(repository.findById(otroId).get().getStock()).isEqualTo(4);
+
+        mockMvc.perform(post("/productos/stock:adjust")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": " + otroId + ", \"delta\": -1}, {\"id\": " + existingId + ", \"delta\": 3}]"))
+                .andExpect(status().isNoContent());
+        assertThat(repository.findById(otroId).get().getStock()).isEqualTo(3);
+        assertThat(repository.findById(existingId).get().getStock()).isEqualTo(5);
+    }
+
+    @Test
+    void ajustarStockEnLoteConElementoOIdNuloDevuelve400() throws Exception {
+        mockMvc.perform(post("/productos/stock:adjust")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": " + existingId + ", \"delta\": -1}, {\"delta\": 2}]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/productos/stock:adjust")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": " + existingId + ", \"delta\": -1}, null]"))
+                .andExpect(status().isBadRequest());
+        assertThat(repository.findById(existingId).get().getStock()).isEqualTo(2);
+    }
+
     @Test
     void actualizarProductoNoExistente() throws Exception {
         Map<String, Object> body = new HashMap<>();
@@ -129,6 +565,56 @@ public class ProductoControllerIT {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void obtenerPorNombreExactoDevuelveElProductoConETag() throws Exception {
+        mockMvc.perform(get("/productos/by-name/{nombre}", "Laptop"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(existingId))
+                .andExpect(header().string("ETag", "\"0\""));
+
+        mockMvc.perform(get("/productos/by-name/{nombre}", "laptop"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void obtenerVariosPorQueryOPorMgetDevuelveCadaIdEnOrden() throws Exception {
+        Long monitor = repository.saveAndFlush(new Producto("Monitor", new BigDecimal("150.00"), 4)).getId();
+
+        mockMvc.perform(get("/productos").param("ids", monitor + ",9999," + existingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(monitor))
+                .andExpect(jsonPath("$[0].encontrado").value(true))
+                .andExpect(jsonPath("$[0].producto.nombre").value("Monitor"))
+                .andExpect(jsonPath("$[1].id").value(9999))
+                .andExpect(jsonPath("$[1].encontrado").value(false))
+                .andExpect(jsonPath("$[1].producto").doesNotExist())
+                .andExpect(jsonPath("$[2].producto.nombre").value("Laptop"));
+
+        mockMvc.perform(post("/productos/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [" + existingId + ", " + monitor + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].producto.nombre").value("Laptop"))
+                .andExpect(jsonPath("$[1].producto.nombre").value("Monitor"));
+    }
+
+    @Test
+    void obtenerVariosConDemasiadosIdsDevuelve400() throws Exception {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 1; i <= 1001; i++) {
+            ids.append(i == 1 ? "" : ", ").append(i);
+        }
+        mockMvc.perform(post("/productos/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [" + ids + "]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/productos/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
     // Se agregan nuevos test para validar las nuevas reglas de negocio y completar la cobertura al 100%
     @Test
     void crearProductoConPrecioNegativoDevuelve400() throws Exception {
@@ -204,6 +690,61 @@ public class ProductoControllerIT {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void crearProductoSinNombreDevuelve400() throws Exception {
+        mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"precio\": 10.00, \"stock\": 5}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("El nombre es obligatorio"));
+    }
+
+    @Test
+    void crearProductoSinPrecioDevuelve400() throws Exception {
+        mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"SinPrecio\", \"stock\": 5}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("El precio es obligatorio"));
+    }
+
+    @Test
+    void crearProductoConTiposInvalidosDevuelve400() throws Exception {
+        mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Raro\", \"precio\": \"abc\", \"stock\": 5}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(org.hamcrest.Matchers.startsWith("Cuerpo JSON inválido")));
+        mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Raro\", \"precio\": 10, \"stock\": 2.5}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Raro\", "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void crearProductoConservaElPrecioExacto() throws Exception {
+        mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Exacto\", \"precio\": 9999999999.99, \"stock\": 1}"))
+                .andExpect(status().isCreated());
+        assertThat(repository.findByNombre("Exacto")).get()
+                .extracting(Producto::getPrecio).isEqualTo(new BigDecimal("9999999999.99"));
+    }
+
+    @Test
+    void actualizarParcialConCampoNullDevuelve400() throws Exception {
+        mockMvc.perform(patch("/productos/{id}", existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stock\": null}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("El campo stock no puede ser null"));
+        assertThat(repository.findById(existingId)).get().extracting(Producto::getStock).isEqualTo(2);
+    }
+
     @Test
     void eliminarProductoDevuelve204() throws Exception {
         mockMvc.perform(delete("/productos/{id}", existingId))
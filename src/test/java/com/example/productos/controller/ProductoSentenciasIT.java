@@ -0,0 +1,178 @@
+package com.example.productos.controller;
+
+import com.example.productos.config.CacheConfig;
+import com.example.productos.config.ContadorSentencias;
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Fija cuántas sentencias SQL ejecuta cada endpoint con las cachés frías (peor caso).
+// Sin @Transactional para que cada petición confirme y emita sus sentencias reales. Cada cantidad se
+// compara también con lo que contó ContadorSentencias y con el presupuesto de la operación. Cada
+// escritura suma el INSERT de su evento en el outbox y, cada 50 eventos, la reserva de un bloque de
+// evento_salida_seq; el despachador se apaga para no sumar sus consultas
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "productos.sql.estricto=true",
+        "productos.salida.despachador.habilitado=false"
+})
+@AutoConfigureMockMvc
+class ProductoSentenciasIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ProductoRepository repository;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private ContadorSentencias contador;
+
+    private static final List<String> NOMBRES_BULK = IntStream.range(0, 20).mapToObj(i -> "Sentencias Bulk " + i).toList();
+
+    private Statistics stats;
+    private Long id;
+
+    @BeforeEach
+    void setUp() {
+        id = repository.save(new Producto("Sentencias", new BigDecimal("10.00"), 5)).getId();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        emf.getCache().evictAll();
+        cacheManager.getCache(CacheConfig.PRODUCTOS).clear();
+        cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE).clear();
+        stats.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.findByNombre("Sentencias").ifPresent(repository::delete);
+        repository.findByNombre("Sentencias 2").ifPresent(repository::delete);
+        repository.deleteAll(repository.findByNombreIn(NOMBRES_BULK));
+    }
+
+    @Test
+    void obtenerEjecutaUnSelect() throws Exception {
+        mockMvc.perform(get("/productos/{id}", id)).andExpect(status().isOk());
+        assertSentencias("obtener", 1);
+    }
+
+    @Test
+    void obtenerPorNombreEjecutaUnSelect() throws Exception {
+        mockMvc.perform(get("/productos/by-name/{nombre}", "Sentencias")).andExpect(status().isOk());
+        assertSentencias("obtenerPorNombre", 1);
+    }
+
+    @Test
+    void actualizarEjecutaUnSelectUnUpdateYElInsertDelOutbox() throws Exception {
+        mockMvc.perform(put("/productos/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Sentencias\", \"precio\": 11.00, \"stock\": 5}"))
+                .andExpect(status().isOk());
+        assertSentenciasEscritura("actualizar", 3);
+    }
+
+    @Test
+    void actualizarParcialEjecutaUnSelectUnUpdateYElInsertDelOutbox() throws Exception {
+        mockMvc.perform(patch("/productos/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stock\": 4}"))
+                .andExpect(status().isOk());
+        assertSentenciasEscritura("actualizarParcial", 3);
+    }
+
+    @Test
+    void eliminarEjecutaUnDeleteYElInsertDelOutbox() throws Exception {
+        mockMvc.perform(delete("/productos/{id}", id)).andExpect(status().isNoContent());
+        assertSentenciasEscritura("eliminar", 2);
+    }
+
+    @Test
+    void eliminarInexistenteEjecutaUnSoloDelete() throws Exception {
+        mockMvc.perform(delete("/productos/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+        assertSentencias("eliminar", 1);
+    }
+
+    @Test
+    void crearEjecutaUnInsertYElDelOutbox() throws Exception {
+        mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Sentencias 2\", \"precio\": 1.00, \"stock\": 1}"))
+                .andExpect(status().isCreated());
+        // Como mucho una sentencia más por secuencia (producto_seq y evento_salida_seq) para reservar bloque
+        assertThat(stats.getPrepareStatementCount()).isBetween(2L, 4L);
+        assertThat((long) contador.sentenciasUltimaPeticion()).isEqualTo(stats.getPrepareStatementCount());
+        assertThat(contador.sentenciasUltimaPeticion()).isLessThanOrEqualTo(contador.presupuesto("crear"));
+    }
+
+    // Los productos y sus eventos del outbox van cada uno en un batch JDBC: el SELECT de los nombres,
+    // un INSERT por tabla y como mucho una reserva de bloque por secuencia, sin importar cuántos sean
+    @Test
+    void bulkEscribeProductosYEventosEnBatch() throws Exception {
+        String body = NOMBRES_BULK.stream()
+                .map(nombre -> "{\"nombre\": \"" + nombre + "\", \"precio\": 1.00, \"stock\": 1}")
+                .collect(Collectors.joining(",", "[", "]"));
+        mockMvc.perform(post("/productos/_bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+        assertThat(stats.getPrepareStatementCount()).isBetween(3L, 5L);
+    }
+
+    // Un solo SELECT ... IN para los que no están en la caché; la segunda vez se resuelve entera ahí
+    @Test
+    void obtenerVariosEjecutaUnSelectParaLoQueNoEstaEnCache() throws Exception {
+        Long otro = repository.save(new Producto("Sentencias 2", new BigDecimal("20.00"), 1)).getId();
+        mockMvc.perform(get("/productos/{id}", id)).andExpect(status().isOk());
+        stats.clear();
+
+        mockMvc.perform(get("/productos").param("ids", id + "," + otro + "," + Long.MAX_VALUE))
+                .andExpect(status().isOk());
+        assertSentencias("obtenerVarios", 1);
+
+        stats.clear();
+        mockMvc.perform(post("/productos/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [" + otro + ", " + id + "]}"))
+                .andExpect(status().isOk());
+        assertSentencias("obtenerVarios", 0);
+    }
+
+    @Test
+    void sugerirNoEjecutaSentencias() throws Exception {
+        mockMvc.perform(get("/productos/suggest").param("q", "sent")).andExpect(status().isOk());
+        assertSentencias("sugerir", 0);
+    }
+
+    // Más la reserva de un bloque de evento_salida_seq si a esta escritura le tocó hacerla
+    private void assertSentenciasEscritura(String operacion, long esperadas) {
+        assertThat(stats.getPrepareStatementCount()).isBetween(esperadas, esperadas + 1);
+        assertThat((long) contador.sentenciasUltimaPeticion()).isEqualTo(stats.getPrepareStatementCount());
+        assertThat(contador.presupuesto(operacion)).isGreaterThanOrEqualTo((int) esperadas + 1);
+    }
+
+    private void assertSentencias(String operacion, long esperadas) {
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(esperadas);
+        assertThat((long) contador.sentenciasUltimaPeticion()).isEqualTo(esperadas);
+        assertThat(contador.presupuesto(operacion)).isGreaterThanOrEqualTo((int) esperadas);
+    }
+}
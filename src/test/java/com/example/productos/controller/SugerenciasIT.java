@@ -0,0 +1,107 @@
+package com.example.productos.controller;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import com.example.productos.service.IndiceNombres;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Sin @Transactional: el índice solo se actualiza cuando la transacción de cada petición confirma
+@SpringBootTest
+@AutoConfigureMockMvc
+class SugerenciasIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ProductoRepository repository;
+    @Autowired
+    private IndiceNombres indice;
+
+    @AfterEach
+    void tearDown() {
+        repository.findByNombre("Zapatilla Trail").ifPresent(repository::delete);
+        repository.findByNombre("Zapato Náutico").ifPresent(repository::delete);
+        indice.reconstruir();
+    }
+
+    @Test
+    void crearRenombrarYEliminarSeReflejanEnLasSugerencias() throws Exception {
+        String respuesta = mockMvc.perform(post("/productos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\": \"Zapatilla Trail\", \"precio\": 80.00, \"stock\": 3}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String ubicacion = "/productos/" + JsonPath.read(respuesta, "$.id");
+
+        mockMvc.perform(get("/productos/suggest").param("q", "trail"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].nombre").value("Zapatilla Trail"));
+
+        mockMvc.perform(patch(ubicacion)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\": \"Zapato Náutico\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/productos/suggest").param("q", "trail"))
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/productos/suggest").param("q", "nautico"))
+                .andExpect(jsonPath("$[0].nombre").value("Zapato Náutico"));
+
+        mockMvc.perform(delete(ubicacion)).andExpect(status().isNoContent());
+        mockMvc.perform(get("/productos/suggest").param("q", "zapat"))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void unaEscrituraRevertidaNoAgregaSugerencias() throws Exception {
+        mockMvc.perform(post("/productos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\": \"Zapatilla Trail\", \"precio\": 80.00, \"stock\": 3}"))
+                .andExpect(status().isCreated());
+
+        // El INSERT duplicado falla al confirmar, después de publicado el evento: no debe llegar al índice
+        assertThatThrownBy(() -> mockMvc.perform(post("/productos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nombre\": \"Zapatilla Trail\", \"precio\": 1.00, \"stock\": 1}")))
+                .hasStackTraceContaining("Unique index or primary key violation");
+        mockMvc.perform(get("/productos/suggest").param("q", "zapatilla"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].nombre").value("Zapatilla Trail"));
+    }
+
+    @Test
+    void reconstruirLeeLosProductosCargadosPorFueraDeLaApi() throws Exception {
+        repository.save(new Producto("Zapatilla Trail", new BigDecimal("1.00"), 1));
+        mockMvc.perform(get("/productos/suggest").param("q", "trail"))
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(post("/productos/suggest:rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productos").value((int) repository.count()));
+        mockMvc.perform(get("/productos/suggest").param("q", "trail"))
+                .andExpect(jsonPath("$[0].nombre").value("Zapatilla Trail"));
+    }
+
+    @Test
+    void limiteFueraDeRangoDevuelve400() throws Exception {
+        mockMvc.perform(get("/productos/suggest").param("q", "a").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/productos/suggest").param("q", "a").param("limit", "51"))
+                .andExpect(status().isBadRequest());
+    }
+}
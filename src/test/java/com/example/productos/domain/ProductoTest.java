@@ -24,8 +24,10 @@ class ProductoTest {
         p.setNombre("Teclado");
         p.setPrecio(new BigDecimal("49.99"));
         p.setStock(5);
+        p.setVersion(3L);
 
         assertThat(p.getId()).isEqualTo(1L);
+        assertThat(p.getVersion()).isEqualTo(3L);
         assertThat(p.getNombre()).isEqualTo("Teclado");
         assertThat(p.getPrecio()).isEqualByComparingTo("49.99");
         assertThat(p.getStock()).isEqualTo(5);
@@ -0,0 +1,87 @@
+package com.example.productos.repository;
+
+import com.example.productos.domain.Producto;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Verifica con EXPLAIN de H2 que el SQL que genera cada Specification usa los índices de Producto
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.productos.repository.ProductoBusquedaPlanTest$UltimaSentencia")
+class ProductoBusquedaPlanTest {
+
+    private static final int FILAS = 20_000;
+
+    @Autowired
+    private ProductoRepository repository;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> filas = new ArrayList<>(FILAS);
+        for (int i = 0; i < FILAS; i++) {
+            filas.add(new Object[]{"Producto " + i, BigDecimal.valueOf(i % 5000, 1), i % 1000});
+        }
+        jdbc.batchUpdate("INSERT INTO producto (id, nombre, precio, stock, version) "
+                + "VALUES (NEXT VALUE FOR producto_seq, ?, ?, ?, 0)", filas);
+    }
+
+    @Test
+    void rangoDePrecioUsaElIndiceDePrecio() {
+        String plan = planDe(ProductoSpecs.precioEntre(new BigDecimal("10.0"), new BigDecimal("12.0")),
+                Sort.by("precio"), new BigDecimal("10.0"), new BigDecimal("12.0"));
+        assertThat(plan).containsIgnoringCase("IDX_PRODUCTO_PRECIO").doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    void umbralDeStockUsaElIndiceDeStock() {
+        String plan = planDe(ProductoSpecs.stockEntre(null, 3), Sort.by(Sort.Direction.DESC, "stock"), 3);
+        assertThat(plan).containsIgnoringCase("IDX_PRODUCTO_STOCK").doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    void prefijoDeNombreUsaElIndiceUnico() {
+        String plan = planDe(ProductoSpecs.nombreEmpiezaCon("Producto 1234"), Sort.by("nombre"), "Producto 1234%");
+        assertThat(plan).containsIgnoringCase("NOMBRE >=").doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    void textoContenidoRecorreLaTabla() {
+        String plan = planDe(ProductoSpecs.nombreContiene("1234"), Sort.by("id"), "%1234%");
+        assertThat(plan).containsIgnoringCase("tableScan");
+    }
+
+    // Ejecuta la búsqueda para capturar su SQL y pide a H2 el plan con los mismos parámetros
+    // (los del filtro y, al final, el límite de la ventana)
+    private String planDe(Specification<Producto> criterio, Sort orden, Object... parametros) {
+        repository.findBy(criterio, q -> q.sortBy(orden).limit(10).scroll(ScrollPosition.keyset()));
+        Object[] conLimite = new Object[parametros.length + 1];
+        System.arraycopy(parametros, 0, conLimite, 0, parametros.length);
+        conLimite[parametros.length] = 11;
+        return jdbc.queryForObject("EXPLAIN " + UltimaSentencia.sql, String.class, conLimite);
+    }
+
+    public static class UltimaSentencia implements StatementInspector {
+
+        static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            UltimaSentencia.sql = sql;
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.productos.repository;
+
+import com.example.productos.config.CacheConfig;
+import com.example.productos.domain.Producto;
+import com.example.productos.service.ProductoService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sin @Transactional: la caché de segundo nivel solo se llena al confirmar cada transacción. Las
+// estadísticas son de toda la SessionFactory: el despachador del outbox se apaga, porque cada pasada
+// carga entidades EventoSalida y movería los contadores de las pruebas
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "productos.salida.despachador.habilitado=false"
+})
+class ProductoCacheSegundoNivelIT {
+
+    @Autowired
+    private ProductoRepository repository;
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private TransactionTemplate tx;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Statistics stats;
+    private Long id;
+
+    @BeforeEach
+    void setUp() {
+        id = repository.save(new Producto("Cache L2", new BigDecimal("10.00"), 5)).getId();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        emf.getCache().evictAll();
+        cacheManager.getCache(CacheConfig.PRODUCTOS).clear();
+        cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE).clear();
+        stats.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.findById(id).ifPresent(repository::delete);
+    }
+
+    @Test
+    void findByIdRepetidoSeSirveDesdeLaCacheDeSegundoNivel() {
+        for (int i = 0; i < 4; i++) {
+            tx.executeWithoutResult(s -> repository.findById(id));
+        }
+
+        CacheRegionStatistics region = stats.getDomainDataRegionStatistics("producto");
+        assertThat(region.getMissCount()).isEqualTo(1);
+        assertThat(region.getHitCount()).isEqualTo(3);
+        assertThat(proporcionAciertos(region.getHitCount(), region.getMissCount())).isEqualTo(0.75);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByNombreUsaLaCacheDeConsultas() {
+        for (int i = 0; i < 3; i++) {
+            tx.executeWithoutResult(s -> assertThat(repository.findByNombre("Cache L2")).isPresent());
+        }
+
+        assertThat(stats.getQueryCacheMissCount()).isEqualTo(1);
+        assertThat(stats.getQueryCacheHitCount()).isEqualTo(2);
+        assertThat(proporcionAciertos(stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount()))
+                .isGreaterThan(0.6);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void actualizarNoRecargaLaFilaDesdeLaBaseDeDatos() {
+        tx.executeWithoutResult(s -> repository.findById(id));
+        stats.clear();
+
+        service.actualizar(id, "Cache L2", new BigDecimal("12.00"), 5, null);
+
+        assertThat(stats.getDomainDataRegionStatistics("producto").getHitCount()).isEqualTo(1);
+        assertThat(stats.getEntityLoadCount()).isZero();
+        assertThat(stats.getEntityUpdateCount()).isEqualTo(1);
+    }
+
+    private static double proporcionAciertos(long aciertos, long fallos) {
+        return (double) aciertos / (aciertos + fallos);
+    }
+}
@@ -1,20 +1,31 @@
 package com.example.productos.repository;
 
 import com.example.productos.domain.Producto;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 class ProductoRepositoryTest {
 
     @Autowired
     private ProductoRepository repository;
+    @Autowired
+    private TestEntityManager entityManager;
 
     // Se agregan tests para completar la cobertura al 100% del repositorio ya que no existian
     @Test
@@ -58,4 +69,49 @@ class ProductoRepositoryTest {
         repository.deleteById(Long.MAX_VALUE);
         assertThat(repository.findById(Long.MAX_VALUE)).isEmpty();
     }
+
+    @Test
+    void eliminarPorIdDevuelveFilasAfectadas() {
+        Producto saved = repository.save(new Producto("Parlante", new BigDecimal("39.99"), 3));
+        assertThat(repository.eliminarPorId(saved.getId())).isEqualTo(1);
+        assertThat(repository.findById(saved.getId())).isEmpty();
+        assertThat(repository.eliminarPorId(saved.getId())).isZero();
+    }
+
+    @Test
+    void buscarPorCursorDevuelvePaginaOrdenada() {
+        List<Producto> pagina = repository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3));
+        assertThat(pagina).hasSize(3);
+        assertThat(pagina).extracting(Producto::getId).isSorted();
+
+        List<Producto> siguiente = repository.findByIdGreaterThanOrderByIdAsc(pagina.get(2).getId(), Limit.of(3));
+        assertThat(siguiente).hasSize(3);
+        assertThat(siguiente.get(0).getId()).isGreaterThan(pagina.get(2).getId());
+    }
+
+    @Test
+    void streamRecorreDesdeElCursor() {
+        Long primerId = repository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1)).get(0).getId();
+        try (Stream<Producto> productos = repository.streamByIdGreaterThan(primerId)) {
+            assertThat(productos).extracting(Producto::getId).allMatch(id -> id > primerId);
+        }
+    }
+
+    @Test
+    void listarCamposDevuelveSoloLasColumnasPedidasSinCargarEntidades() {
+        entityManager.clear();
+        List<Map<String, Object>> filas = repository.listarCampos(new LinkedHashSet<>(List.of("id", "precio")), 0, 3);
+
+        assertThat(filas).hasSize(3).allSatisfy(f -> assertThat(f).containsOnlyKeys("id", "precio"));
+        assertThat(filas).extracting(f -> (Long) f.get("id")).isSorted();
+        assertThat(filas.get(0).get("precio")).isInstanceOf(BigDecimal.class);
+        assertThat(entityManager.getEntityManager().unwrap(Session.class)
+                .getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void listarCamposRechazaCamposDesconocidos() {
+        assertThatThrownBy(() -> repository.listarCampos(new LinkedHashSet<>(List.of("id", "p.id from Producto p --")), 0, 3))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
 }
@@ -0,0 +1,75 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sin @Transactional: cada ajuste confirma su propia transacción, como en producción
+@SpringBootTest
+class AjusteStockConcurrenteTest {
+
+    private static final int HILOS = 8;
+    private static final int STOCK_INICIAL = 100;
+    private static final int INTENTOS = 250;
+
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private ProductoRepository repository;
+
+    private Long id;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteById(id);
+    }
+
+    @Test
+    void muchosHilosSobreElMismoProductoNuncaVendenDeMas() throws Exception {
+        id = service.crear("Producto Caliente", new BigDecimal("9.99"), STOCK_INICIAL).getId();
+        AtomicInteger exitos = new AtomicInteger();
+        AtomicInteger rechazos = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < INTENTOS; i++) {
+            tareas.add(executor.submit(() -> {
+                largada.await();
+                try {
+                    service.ajustarStock(id, -1);
+                    exitos.incrementAndGet();
+                } catch (StockInsuficienteException e) {
+                    rechazos.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Producto resultado = repository.findById(id).orElseThrow();
+        assertThat(exitos.get()).isEqualTo(STOCK_INICIAL);
+        assertThat(rechazos.get()).isEqualTo(INTENTOS - STOCK_INICIAL);
+        assertThat(resultado.getStock()).isZero();
+        assertThat(resultado.getVersion()).isEqualTo((long) STOCK_INICIAL);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.productos.service;
+
+import com.example.productos.config.CacheConfig;
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Una lectura que leyó la fila antes del commit de una escritura y recién después intenta guardarla
+// en la caché: ConsultasRetenidas la detiene con la fila ya leída mientras la escritura se confirma.
+// Sin la caché de segundo nivel, para que cada lectura llegue a la base
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cacheproductos;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "productos.salida.despachador.habilitado=false"
+})
+@Import(ConsultasRetenidas.Configuracion.class)
+class CacheProductosTest {
+
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private ProductoRepository repository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private ConsultasRetenidas consultas;
+
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Long> creados = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.PRODUCTOS).clear();
+        cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE).clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        consultas.abrir();
+        hilos.shutdownNow();
+        creados.stream().filter(repository::existsById).forEach(repository::deleteById);
+    }
+
+    @Test
+    void unaLecturaAnteriorAlCommitNoPisaLoQueGuardoLaEscritura() throws Exception {
+        Long id = crear("Carrera Id");
+
+        Future<Producto> lectura = retenida(() -> service.obtenerPorId(id));
+        service.actualizar(id, "Carrera Id", new BigDecimal("20.00"), 1, null);
+        consultas.abrir();
+
+        assertThat(lectura.get(10, TimeUnit.SECONDS).getPrecio()).isEqualByComparingTo("10.00");
+        assertThat(service.obtenerPorId(id).getPrecio()).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void unaLecturaAnteriorAlBorradoNoDejaElProductoEnLaCache() throws Exception {
+        Long id = crear("Carrera Borrado");
+
+        Future<Producto> lectura = retenida(() -> service.obtenerPorId(id));
+        service.eliminar(id);
+        consultas.abrir();
+
+        assertThat(lectura.get(10, TimeUnit.SECONDS).getNombre()).isEqualTo("Carrera Borrado");
+        assertThat(cacheManager.getCache(CacheConfig.PRODUCTOS).get(id)).isNull();
+        assertThatThrownBy(() -> service.obtenerPorId(id)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void unaLecturaPorNombreAnteriorAlCommitNoQuedaEnLaCache() throws Exception {
+        Long id = crear("Carrera Nombre");
+
+        Future<Producto> lectura = retenida(() -> service.obtenerPorNombre("Carrera Nombre"));
+        service.actualizarParcial(id, null, new BigDecimal("20.00"), null);
+        consultas.abrir();
+
+        assertThat(lectura.get(10, TimeUnit.SECONDS).getPrecio()).isEqualByComparingTo("10.00");
+        assertThat(cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE).get("Carrera Nombre")).isNull();
+        assertThat(service.obtenerPorNombre("Carrera Nombre").getPrecio()).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void obtenerVariosAnteriorAlCommitNoPisaLoQueGuardoLaEscritura() throws Exception {
+        Long id = crear("Carrera Varios");
+
+        Future<List<ResultadoMget>> lectura = retenida(() -> service.obtenerVarios(List.of(id)));
+        service.actualizar(id, "Carrera Varios", new BigDecimal("20.00"), 1, null);
+        consultas.abrir();
+
+        assertThat(lectura.get(10, TimeUnit.SECONDS).get(0).producto().getPrecio()).isEqualByComparingTo("10.00");
+        assertThat(service.obtenerPorId(id).getPrecio()).isEqualByComparingTo("20.00");
+    }
+
+    // Lanza la lectura y vuelve cuando ya leyó la fila, antes de que la devuelva
+    private <T> Future<T> retenida(Callable<T> lectura) throws InterruptedException {
+        consultas.cerrarDespues();
+        Future<T> futuro = hilos.submit(lectura);
+        consultas.esperarRetenida();
+        return futuro;
+    }
+
+    private Long crear(String nombre) {
+        Long id = service.crear(nombre, new BigDecimal("10.00"), 1).getId();
+        creados.add(id);
+        return id;
+    }
+}
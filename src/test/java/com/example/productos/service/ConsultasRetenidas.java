@@ -0,0 +1,116 @@
+package com.example.productos.service;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Listener de datasource-proxy que cuenta los SELECT sobre producto y, con la compuerta cerrada,
+// retiene el primero que llega: antes de ejecutarlo (cerrar) o ya ejecutado, con la fila leída
+// (cerrarDespues). Los demás siguen de largo, así otra transacción puede escribir mientras tanto
+class ConsultasRetenidas implements QueryExecutionListener {
+
+    private static final Pattern SELECT_PRODUCTO = Pattern.compile("(?is)^\\s*select\\b.*\\bfrom producto\\b.*");
+
+    final AtomicInteger ejecutadas = new AtomicInteger();
+    private final AtomicBoolean libre = new AtomicBoolean();
+    private volatile boolean despues;
+    private volatile CountDownLatch compuerta = new CountDownLatch(0);
+    private volatile CountDownLatch retenida = new CountDownLatch(0);
+
+    void cerrar() {
+        cerrar(false);
+    }
+
+    void cerrarDespues() {
+        cerrar(true);
+    }
+
+    private void cerrar(boolean despues) {
+        ejecutadas.set(0);
+        this.despues = despues;
+        retenida = new CountDownLatch(1);
+        compuerta = new CountDownLatch(1);
+        libre.set(true);
+    }
+
+    void abrir() {
+        libre.set(false);
+        compuerta.countDown();
+    }
+
+    void esperarRetenida() throws InterruptedException {
+        assertThat(retenida.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (!esSelectDeProducto(queryInfoList)) {
+            return;
+        }
+        ejecutadas.incrementAndGet();
+        if (!despues) {
+            retener();
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (despues && esSelectDeProducto(queryInfoList)) {
+            retener();
+        }
+    }
+
+    private void retener() {
+        if (!libre.compareAndSet(true, false)) {
+            return;
+        }
+        retenida.countDown();
+        try {
+            compuerta.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean esSelectDeProducto(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream().anyMatch(q -> SELECT_PRODUCTO.matcher(q.getQuery()).matches());
+    }
+
+    @TestConfiguration
+    static class Configuracion {
+
+        @Bean
+        ConsultasRetenidas consultasRetenidas() {
+            return new ConsultasRetenidas();
+        }
+
+        // Por fuera del proxy de ContadorSentencias, que se aplica primero
+        @Bean
+        static BeanPostProcessor retenerConsultas(ObjectProvider<ConsultasRetenidas> consultas) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && beanName.equals("dataSource")) {
+                        return ProxyDataSourceBuilder.create(dataSource).listener(consultas.getObject()).build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
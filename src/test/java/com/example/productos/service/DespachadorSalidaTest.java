@@ -0,0 +1,166 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.EventoSalida;
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.EventoSalidaRepository;
+import com.example.productos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sin @Transactional: el outbox solo se escribe cuando la transacción confirma. Base propia para que
+// los despachadores de otros contextos de prueba (misma JVM) no publiquen estos eventos; el de este
+// contexto está apagado y cada prueba fuerza las pasadas con despachar()
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:salida;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+        "productos.salida.despachador.habilitado=false",
+        "productos.salida.lote=50",
+        "productos.salida.paralelismo=4"
+})
+class DespachadorSalidaTest {
+
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private ProductoRepository productos;
+    @Autowired
+    private EventoSalidaRepository salida;
+    @Autowired
+    private DespachadorSalida despachador;
+    @Autowired
+    private DestinoCaptura destino;
+
+    private final List<Long> creados = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        salida.deleteAll();
+        destino.recibidos.clear();
+        destino.fallar.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        creados.forEach(id -> productos.findById(id).ifPresent(productos::delete));
+        salida.deleteAll();
+    }
+
+    @Test
+    void cadaCambioConfirmadoQuedaEnElOutboxYSePublicaEnOrden() {
+        Producto p = crear("Salida Kayak");
+        service.actualizarParcial(p.getId(), null, new BigDecimal("450.00"), null);
+        service.ajustarStock(p.getId(), -1);
+        service.eliminar(p.getId());
+
+        assertThat(salida.findAll()).extracting(EventoSalida::getTipo)
+                .containsExactly("CREADO", "ACTUALIZADO", "STOCK_AJUSTADO", "ELIMINADO");
+
+        assertThat(despachador.despachar()).isEqualTo(4);
+        assertThat(destino.recibidos).extracting(EventoSalida::getTipo)
+                .containsExactly("CREADO", "ACTUALIZADO", "STOCK_AJUSTADO", "ELIMINADO");
+        assertThat(destino.recibidos.get(1).getCarga()).contains("\"precio\":450.00");
+        assertThat(salida.count()).isZero();
+        assertThat(despachador.despachar()).isZero();
+    }
+
+    @Test
+    void unaTransaccionRevertidaNoDejaEventos() {
+        crear("Salida Remo");
+        assertThatThrownBy(() -> service.crear("Salida Remo", new BigDecimal("10.00"), 1))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> service.ajustarStock(creados.get(0), -100))
+                .isInstanceOf(StockInsuficienteException.class);
+
+        assertThat(salida.findAll()).extracting(EventoSalida::getTipo).containsExactly("CREADO");
+    }
+
+    @Test
+    void siElDestinoFallaSeReintentaSinAdelantarLosSiguientesDelMismoProducto() {
+        Producto a = crear("Salida Carpa");
+        Producto b = crear("Salida Linterna");
+        service.ajustarStock(a.getId(), 1);
+        service.ajustarStock(b.getId(), 1);
+
+        destino.fallar.add(a.getId());
+        assertThat(despachador.despachar()).isEqualTo(2);
+        assertThat(destino.recibidos).allMatch(e -> e.getProductoId().equals(b.getId()));
+        assertThat(salida.findAll()).extracting(EventoSalida::getTipo).containsExactly("CREADO", "STOCK_AJUSTADO");
+
+        destino.fallar.clear();
+        assertThat(despachador.despachar()).isEqualTo(2);
+        assertThat(porProducto().get(a.getId())).containsExactly("CREADO", "STOCK_AJUSTADO");
+        assertThat(salida.count()).isZero();
+    }
+
+    @Test
+    void conVariosCarrilesSeRespetaElOrdenDeCadaProducto() {
+        List<Producto> varios = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            varios.add(crear("Salida Orden " + i));
+        }
+        for (int ronda = 0; ronda < 5; ronda++) {
+            for (Producto p : varios) {
+                service.ajustarStock(p.getId(), 1);
+            }
+        }
+
+        int publicados = 0;
+        int enviados;
+        while ((enviados = despachador.despachar()) > 0) {
+            publicados += enviados;
+        }
+
+        assertThat(publicados).isEqualTo(12 * 6);
+        Map<Long, List<Long>> ids = destino.recibidos.stream().collect(Collectors.groupingBy(
+                EventoSalida::getProductoId, Collectors.mapping(EventoSalida::getId, Collectors.toList())));
+        assertThat(ids).hasSize(12).allSatisfy((producto, secuencia) -> assertThat(secuencia).hasSize(6).isSorted());
+    }
+
+    private Producto crear(String nombre) {
+        Producto p = service.crear(nombre, new BigDecimal("500.00"), 10);
+        creados.add(p.getId());
+        return p;
+    }
+
+    private Map<Long, List<String>> porProducto() {
+        return destino.recibidos.stream().collect(Collectors.groupingBy(
+                EventoSalida::getProductoId, Collectors.mapping(EventoSalida::getTipo, Collectors.toList())));
+    }
+
+    static class DestinoCaptura implements DestinoSalida {
+        final List<EventoSalida> recibidos = new CopyOnWriteArrayList<>();
+        final Set<Long> fallar = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void publicar(EventoSalida evento) {
+            if (fallar.contains(evento.getProductoId())) {
+                throw new IllegalStateException("destino caído");
+            }
+            recibidos.add(evento);
+        }
+    }
+
+    @TestConfiguration
+    static class Configuracion {
+        @Bean
+        DestinoCaptura destinoCaptura() {
+            return new DestinoCaptura();
+        }
+    }
+}
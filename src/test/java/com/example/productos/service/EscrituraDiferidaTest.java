@@ -0,0 +1,402 @@
+package com.example.productos.service;
+
+import com.example.productos.Application;
+import com.example.productos.config.CacheConfig;
+import com.example.productos.domain.Producto;
+import com.example.productos.repository.ProductoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sin @Transactional: lo que interesa es cuándo llegan las escrituras a la base. Base propia y sin
+// pasada programada (demora de una hora): cada prueba fuerza la escritura con vaciar()
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:diferida;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "productos.diferida.habilitada=true",
+        "productos.diferida.demora=1h",
+        "productos.diferida.espera=300ms",
+        "productos.salida.despachador.habilitado=false"
+})
+class EscrituraDiferidaTest {
+
+    private static final int PRODUCTOS = 20;
+    private static final int RONDAS = 25;
+
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private ProductoRepository repository;
+    @Autowired
+    private EscrituraDiferida escrituraDiferida;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final List<Long> creados = new ArrayList<>();
+    private Statistics stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        creados.forEach(id -> repository.findById(id).ifPresent(p -> service.eliminar(id)));
+        escrituraDiferida.vaciar();
+    }
+
+    @Test
+    void muchasActualizacionesDelMismoProductoTerminanEnUnUpdatePorProducto() {
+        for (int i = 0; i < PRODUCTOS; i++) {
+            crear("Diferida " + i);
+        }
+        stats.clear();
+
+        for (int ronda = 1; ronda <= RONDAS; ronda++) {
+            for (Long id : creados) {
+                service.actualizarParcial(id, null, precio(ronda), null);
+                service.actualizarParcial(id, null, null, ronda);
+            }
+        }
+
+        assertThat(stats.getEntityUpdateCount()).isZero();
+        assertThat(escrituraDiferida.pendientes()).isEqualTo(PRODUCTOS);
+        for (Long id : creados) {
+            Producto leido = service.obtenerPorId(id);
+            assertThat(leido.getPrecio()).isEqualByComparingTo(precio(RONDAS));
+            assertThat(leido.getStock()).isEqualTo(RONDAS);
+        }
+
+        assertThat(escrituraDiferida.vaciar()).isEqualTo(PRODUCTOS);
+
+        // Los 1.000 PATCH sincrónicos habrían sido 1.000 UPDATE
+        assertThat(stats.getEntityUpdateCount()).isEqualTo(PRODUCTOS);
+        assertThat(escrituraDiferida.pendientes()).isZero();
+        for (Long id : creados) {
+            Producto guardado = repository.findById(id).orElseThrow();
+            assertThat(guardado.getPrecio()).isEqualByComparingTo(precio(RONDAS));
+            assertThat(guardado.getStock()).isEqualTo(RONDAS);
+            assertThat(guardado.getVersion()).isEqualTo(1L);
+            assertThat(service.obtenerPorId(id).getVersion()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void unaEscrituraSincronicaAplicaAntesLoPendiente() {
+        Long id = crear("Diferida Sincrónica");
+        service.actualizarParcial(id, null, new BigDecimal("77.00"), null);
+
+        Producto renombrado = service.actualizarParcial(id, "Diferida Renombrada", null, null);
+
+        assertThat(renombrado.getPrecio()).isEqualByComparingTo("77.00");
+        assertThat(escrituraDiferida.pendientes()).isZero();
+        Producto guardado = repository.findById(id).orElseThrow();
+        assertThat(guardado.getNombre()).isEqualTo("Diferida Renombrada");
+        assertThat(guardado.getPrecio()).isEqualByComparingTo("77.00");
+        assertThat(escrituraDiferida.vaciar()).isZero();
+    }
+
+    @Test
+    void unAjusteDeStockNoQuedaPisadoPorElValorPendiente() {
+        Long id = crear("Diferida Ajuste");
+        service.actualizarParcial(id, null, null, 40);
+
+        service.ajustarStock(id, -5);
+
+        assertThat(escrituraDiferida.vaciar()).isZero();
+        assertThat(repository.findById(id).orElseThrow().getStock()).isEqualTo(35);
+    }
+
+    @Test
+    void siLaEscrituraSincronicaFallaLoPendienteSeConserva() {
+        Long id = crear("Diferida Rollback");
+        service.actualizarParcial(id, null, new BigDecimal("55.00"), null);
+
+        assertThatThrownBy(() -> service.actualizarParcial(id, null, null, 3, 99L))
+                .isInstanceOf(PrecondicionFallidaException.class);
+
+        assertThat(service.obtenerPorId(id).getPrecio()).isEqualByComparingTo("55.00");
+        assertThat(escrituraDiferida.vaciar()).isEqualTo(1);
+        assertThat(repository.findById(id).orElseThrow().getPrecio()).isEqualByComparingTo("55.00");
+    }
+
+    // La versión no cambia hasta escribir, pero cada cambio pendiente sí cambia la revisión (y el ETag)
+    @Test
+    void cadaCambioPendienteCambiaLaRevisionAunqueNoLaVersion() {
+        Long id = crear("Diferida Revisión");
+        Producto primero = service.actualizarParcial(id, null, new BigDecimal("20.00"), null);
+        Producto segundo = service.actualizarParcial(id, null, null, 7);
+
+        assertThat(segundo.getVersion()).isEqualTo(primero.getVersion()).isZero();
+        assertThat(primero.getRevisionPendiente()).isNotNull();
+        assertThat(segundo.getRevisionPendiente()).isGreaterThan(primero.getRevisionPendiente());
+        assertThat(service.obtenerPorId(id).getRevisionPendiente()).isEqualTo(segundo.getRevisionPendiente());
+
+        escrituraDiferida.vaciar();
+        Producto escrito = service.obtenerPorId(id);
+        assertThat(escrito.getVersion()).isEqualTo(1L);
+        assertThat(escrito.getRevisionPendiente()).isNull();
+    }
+
+    // Un If-Match con la versión sola se refiere a la fila sin cambios pendientes
+    @Test
+    void unaCondicionSobreLaVersionSinLoPendienteFallaYLoConserva() {
+        Long id = crear("Diferida Condicional");
+        service.actualizarParcial(id, null, new BigDecimal("30.00"), null);
+
+        assertThatThrownBy(() -> service.actualizar(id, "Diferida Condicional", new BigDecimal("1.00"), 1, 0L))
+                .isInstanceOf(PrecondicionFallidaException.class);
+        assertThatThrownBy(() -> service.eliminar(id, 0L)).isInstanceOf(PrecondicionFallidaException.class);
+
+        assertThat(escrituraDiferida.pendientes()).isEqualTo(1);
+        assertThat(escrituraDiferida.vaciar()).isEqualTo(1);
+        assertThat(service.actualizar(id, "Diferida Condicional", new BigDecimal("1.00"), 1, 1L).getVersion())
+                .isEqualTo(2L);
+    }
+
+    // Un If-Match con el ETag de una lectura con cambios pendientes ("versión.revisión") coincide
+    // mientras no llegue otro PATCH, y la escritura aplica lo pendiente en su transacción
+    @Test
+    void unaCondicionConLaRevisionDeLoPendienteCoincide() {
+        Long id = crear("Diferida Revisión Esperada");
+        Producto primero = service.actualizarParcial(id, null, new BigDecimal("41.00"), null);
+        Producto segundo = service.actualizarParcial(id, null, null, 6);
+
+        assertThatThrownBy(() -> service.actualizarParcial(id, "Diferida Vieja", null, null, 0L,
+                primero.getRevisionPendiente())).isInstanceOf(PrecondicionFallidaException.class);
+        assertThat(escrituraDiferida.pendientes()).isEqualTo(1);
+
+        Producto renombrado = service.actualizarParcial(id, "Diferida Renombrada", null, null, 0L,
+                segundo.getRevisionPendiente());
+
+        assertThat(renombrado.getVersion()).isEqualTo(1L);
+        assertThat(renombrado.getRevisionPendiente()).isNull();
+        assertThat(escrituraDiferida.pendientes()).isZero();
+        Producto guardado = repository.findById(id).orElseThrow();
+        assertThat(guardado.getNombre()).isEqualTo("Diferida Renombrada");
+        assertThat(guardado.getPrecio()).isEqualByComparingTo("41.00");
+        assertThat(guardado.getStock()).isEqualTo(6);
+        // Ya sin nada pendiente, esa revisión no describe el estado del producto
+        assertThatThrownBy(() -> service.eliminar(id, 1L, segundo.getRevisionPendiente()))
+                .isInstanceOf(PrecondicionFallidaException.class);
+    }
+
+    @Test
+    void unBorradoConLaRevisionDeLoPendienteLoDescarta() {
+        Long id = crear("Diferida Borrado Condicional");
+        Producto modificado = service.actualizarParcial(id, null, new BigDecimal("42.00"), null);
+
+        service.eliminar(id, 0L, modificado.getRevisionPendiente());
+
+        assertThat(repository.findById(id)).isEmpty();
+        assertThat(escrituraDiferida.pendientes()).isZero();
+        assertThat(escrituraDiferida.vaciar()).isZero();
+    }
+
+    // La fila bloqueada por otra conexión hace fallar el UPDATE (espera agotada) en el lote y de a uno:
+    // el cambio ya confirmado al cliente vuelve a pendientes y se escribe en la pasada siguiente
+    @Test
+    void loQueNoSePudoEscribirSeReintentaEnLaPasadaSiguiente() throws Exception {
+        Long id = crear("Diferida Reintento");
+        service.actualizarParcial(id, null, new BigDecimal("66.00"), null);
+        double reintentadas = meterRegistry.counter("productos.diferida.reintentadas").count();
+
+        try (Connection c = DriverManager.getConnection("jdbc:h2:mem:diferida;DB_CLOSE_DELAY=-1;MODE=LEGACY", "sa", "");
+             Statement s = c.createStatement()) {
+            c.setAutoCommit(false);
+            s.execute("SET LOCK_TIMEOUT 100");
+            s.executeUpdate("UPDATE producto SET stock = stock WHERE id = " + id);
+
+            assertThat(escrituraDiferida.vaciar()).isZero();
+            c.rollback();
+        }
+
+        assertThat(meterRegistry.counter("productos.diferida.reintentadas").count()).isEqualTo(reintentadas + 1);
+        assertThat(escrituraDiferida.pendientes()).isEqualTo(1);
+        assertThat(service.obtenerPorId(id).getPrecio()).isEqualByComparingTo("66.00");
+        assertThat(escrituraDiferida.vaciar()).isEqualTo(1);
+        assertThat(repository.findById(id).orElseThrow().getPrecio()).isEqualByComparingTo("66.00");
+    }
+
+    // La escritura diferida queda trabada en la fila bloqueada por otra conexión: la escritura sincrónica
+    // no la espera para siempre (podría tener bloqueado lo que esa escritura necesita)
+    @Test
+    void laEsperaDeUnaEscrituraEnVueloTieneTope() throws Exception {
+        Long id = crear("Diferida Espera");
+        service.actualizarParcial(id, null, new BigDecimal("44.00"), null);
+
+        try (Connection c = DriverManager.getConnection("jdbc:h2:mem:diferida;DB_CLOSE_DELAY=-1;MODE=LEGACY", "sa", "");
+             Statement s = c.createStatement();
+             ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            c.setAutoCommit(false);
+            s.executeUpdate("UPDATE producto SET stock = stock WHERE id = " + id);
+            Future<Integer> vaciado = executor.submit(escrituraDiferida::vaciar);
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (escrituraDiferida.pendientes() > 0 && System.nanoTime() < limite) {
+                Thread.sleep(5);
+            }
+
+            long inicio = System.nanoTime();
+            assertThatThrownBy(() -> service.ajustarStock(id, 1)).isInstanceOf(EsperaAgotadaException.class);
+            assertThat(System.nanoTime() - inicio).isLessThan(TimeUnit.SECONDS.toNanos(1));
+
+            c.rollback();
+            vaciado.get(10, TimeUnit.SECONDS);
+        }
+        escrituraDiferida.vaciar();
+        Producto guardado = repository.findById(id).orElseThrow();
+        assertThat(guardado.getPrecio()).isEqualByComparingTo("44.00");
+        assertThat(guardado.getStock()).isZero();
+    }
+
+    // La fila se lee antes de que la escritura diferida confirme y lo superpuesto después: la lectura
+    // se repite en vez de devolver la fila vieja sin lo que se acaba de escribir
+    @Test
+    void unaLecturaQueCruzaUnaConfirmacionSeRepite() {
+        Long id = crear("Diferida Lectura");
+        service.actualizarParcial(id, null, new BigDecimal("88.00"), null);
+        List<Long> versiones = new ArrayList<>();
+
+        Producto leido = escrituraDiferida.leer(() -> {
+            Producto fila = repository.findById(id).orElseThrow();
+            versiones.add(fila.getVersion());
+            escrituraDiferida.vaciar();
+            return fila;
+        });
+
+        assertThat(versiones).containsExactly(0L, 1L);
+        assertThat(leido.getPrecio()).isEqualByComparingTo("88.00");
+        assertThat(leido.getRevisionPendiente()).isNull();
+    }
+
+    // La caché guarda solo la fila de la base: lo superpuesto no queda ahí y, al escribirse, la
+    // entrada se quita
+    @Test
+    void loSuperpuestoNoQuedaEnLaCache() {
+        Long id = crear("Diferida Caché");
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        service.obtenerPorId(id);
+        assertThat(cache.get(id)).isNotNull();
+
+        service.actualizarParcial(id, null, new BigDecimal("21.00"), null);
+        assertThat(service.obtenerPorId(id).getPrecio()).isEqualByComparingTo("21.00");
+        assertThat(cache.get(id, Producto.class).getPrecio()).isEqualByComparingTo("10.00");
+        assertThat(cache.get(id, Producto.class).getRevisionPendiente()).isNull();
+
+        escrituraDiferida.vaciar();
+        assertThat(cache.get(id)).isNull();
+        assertThat(service.obtenerPorId(id).getVersion()).isEqualTo(1L);
+        assertThat(cache.get(id, Producto.class).getPrecio()).isEqualByComparingTo("21.00");
+    }
+
+    // Una entrada de la caché anterior al PATCH (la fila sin él) no lo esconde: lo pendiente se
+    // superpone después de buscar en la caché, por id y en la lectura de varios
+    @Test
+    void unAciertoDeLaCacheIncluyeLoPendiente() {
+        Long id = crear("Diferida Acierto");
+        Producto modificado = service.actualizarParcial(id, null, new BigDecimal("31.00"), 4);
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        cache.put(id, repository.findById(id).orElseThrow());
+
+        Producto leido = service.obtenerPorId(id);
+        assertThat(leido.getPrecio()).isEqualByComparingTo("31.00");
+        assertThat(leido.getStock()).isEqualTo(4);
+        assertThat(leido.getRevisionPendiente()).isEqualTo(modificado.getRevisionPendiente());
+        Producto enLote = service.obtenerVarios(List.of(id)).get(0).producto();
+        assertThat(enLote.getPrecio()).isEqualByComparingTo("31.00");
+        assertThat(enLote.getRevisionPendiente()).isEqualTo(modificado.getRevisionPendiente());
+        assertThat(cache.get(id, Producto.class).getPrecio()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void losCambiosSeCombinanCampoPorCampoSinImportarElOrden() {
+        EscrituraDiferida.Pendiente viejo = EscrituraDiferida.Pendiente.de(new BigDecimal("1.00"), 1, 1);
+        EscrituraDiferida.Pendiente nuevo = EscrituraDiferida.Pendiente.de(null, 2, 2);
+
+        assertThat(viejo.combinar(nuevo)).isEqualTo(nuevo.combinar(viejo));
+        assertThat(nuevo.combinar(viejo).precio()).isEqualByComparingTo("1.00");
+        assertThat(nuevo.combinar(viejo).stock()).isEqualTo(2);
+        assertThat(nuevo.combinar(viejo).revision()).isEqualTo(2);
+    }
+
+    @Test
+    void eliminarDescartaLoPendiente() {
+        Long id = crear("Diferida Eliminada");
+        service.actualizarParcial(id, null, new BigDecimal("12.00"), 1);
+
+        service.eliminar(id);
+
+        assertThat(escrituraDiferida.pendientes()).isZero();
+        assertThat(escrituraDiferida.vaciar()).isZero();
+        assertThatThrownBy(() -> service.obtenerPorId(id)).isInstanceOf(NotFoundException.class);
+    }
+
+    // Cierre ordenado de otro contexto sobre su propia base: lo pendiente llega a la base al cerrar
+    @Test
+    void alCerrarLaAplicacionSeEscribeLoPendiente() throws Exception {
+        String url = "jdbc:h2:mem:diferida-cierre;DB_CLOSE_DELAY=-1;MODE=LEGACY";
+        long id;
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--productos.diferida.habilitada=true",
+                        "--productos.diferida.demora=1h",
+                        "--productos.salida.despachador.habilitado=false")) {
+            ProductoService otro = contexto.getBean(ProductoService.class);
+            id = otro.crear("Diferida Cierre", new BigDecimal("10.00"), 1).getId();
+            otro.actualizarParcial(id, null, new BigDecimal("99.00"), 9);
+            assertThat(contexto.getBean(EscrituraDiferida.class).pendientes()).isEqualTo(1);
+        }
+
+        try (Connection c = DriverManager.getConnection(url, "sa", "");
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT precio, stock FROM producto WHERE id = " + id)) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getBigDecimal(1)).isEqualByComparingTo("99.00");
+            assertThat(rs.getInt(2)).isEqualTo(9);
+            s.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private Long crear(String nombre) {
+        Long id = service.crear(nombre, new BigDecimal("10.00"), 0).getId();
+        creados.add(id);
+        return id;
+    }
+
+    private static BigDecimal precio(int ronda) {
+        return new BigDecimal("10.00").add(BigDecimal.valueOf(ronda));
+    }
+}
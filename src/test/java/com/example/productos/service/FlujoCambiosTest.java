@@ -0,0 +1,297 @@
+package com.example.productos.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sin contexto de Spring: los cambios se publican llamando directamente al listener
+class FlujoCambiosTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FlujoCambios flujo = new FlujoCambios(4, 2, Duration.ofHours(1), registry);
+
+    @AfterEach
+    void tearDown() {
+        flujo.detener();
+    }
+
+    @Test
+    void entregaLosCambiosEnOrdenDesdeLaSecuenciaPedida() throws Exception {
+        publicar(3);
+        Captura captura = new Captura();
+        flujo.suscribir(1, captura);
+        publicar(1);
+
+        captura.esperar(3);
+        assertThat(captura.secuencias).containsExactly(2L, 3L, 4L);
+        assertThat(captura.desbordes).isEmpty();
+    }
+
+    @Test
+    void alReanudarDesdeUnaSecuenciaQueYaNoEstaAvisaElDesbordeYSigueDesdeLaMasAntigua() throws Exception {
+        publicar(6);
+        Captura captura = new Captura();
+        flujo.suscribir(0, captura);
+
+        captura.esperar(4);
+        assertThat(captura.desbordes).containsExactly(3L);
+        assertThat(captura.secuencias).containsExactly(3L, 4L, 5L, 6L);
+        assertThat(registry.counter("productos.cambios.desbordes").count()).isEqualTo(1);
+    }
+
+    @Test
+    void unSuscriptorLentoNoFrenaALosDemasYSeEnteraDeLoQuePerdio() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        Captura lento = new Captura() {
+            @Override
+            public void enviar(FlujoCambios.Cambio cambio) throws IOException {
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.enviar(cambio);
+            }
+        };
+        Captura rapido = new Captura();
+        flujo.suscribir(0, lento);
+        flujo.suscribir(0, rapido);
+
+        // El lento queda bloqueado en su primer envío mientras el anillo (capacidad 4) se sobrescribe;
+        // el rápido va al día porque se espera que reciba cada cambio antes de publicar el siguiente
+        for (int i = 1; i <= 10; i++) {
+            publicar(1);
+            rapido.esperar(i);
+        }
+        assertThat(rapido.secuencias).containsExactlyElementsOf(LongStream.rangeClosed(1, 10).boxed().toList());
+        assertThat(rapido.desbordes).isEmpty();
+
+        liberar.countDown();
+        lento.esperarHasta(10);
+        assertThat(lento.desbordes).isNotEmpty();
+        assertThat(lento.secuencias).hasSizeLessThan(10).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void unErrorAlEnviarCierraLaSuscripcion() throws Exception {
+        Captura rota = new Captura() {
+            @Override
+            public void enviar(FlujoCambios.Cambio cambio) throws IOException {
+                throw new IOException("conexión cerrada por el cliente");
+            }
+        };
+        flujo.suscribir(0, rota);
+        publicar(1);
+
+        assertThat(rota.cerrada.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(flujo.suscriptores()).isZero();
+    }
+
+    @Test
+    void rechazaSuscripcionesPorEncimaDelMaximo() {
+        flujo.suscribir(0, new Captura());
+        flujo.suscribir(0, new Captura());
+
+        assertThatThrownBy(() -> flujo.suscribir(0, new Captura()))
+                .isInstanceOf(DemasiadosSuscriptoresException.class);
+    }
+
+    @Test
+    void suscripcionesSimultaneasNoPasanDelMaximo() throws Exception {
+        AtomicInteger aceptadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                executor.execute(() -> {
+                    try {
+                        largada.await();
+                        flujo.suscribir(0, new Captura());
+                        aceptadas.incrementAndGet();
+                    } catch (DemasiadosSuscriptoresException | InterruptedException e) {
+                        // esperado para todas menos dos
+                    }
+                });
+            }
+            largada.countDown();
+        }
+
+        assertThat(aceptadas.get()).isEqualTo(2);
+        assertThat(flujo.suscriptores()).isEqualTo(2);
+    }
+
+    @Test
+    void alCerrarSeLiberaElLugar() {
+        flujo.suscribir(0, new Captura()).cerrar();
+        flujo.suscribir(0, new Captura());
+        flujo.suscribir(0, new Captura());
+
+        assertThat(flujo.suscriptores()).isEqualTo(2);
+    }
+
+    @Test
+    void losLatidosNuncaSeIntercalanConUnEnvio() throws Exception {
+        FlujoCambios conLatidos = new FlujoCambios(4, 2, Duration.ofMillis(5), registry);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicBoolean enviando = new AtomicBoolean();
+        AtomicBoolean intercalado = new AtomicBoolean();
+        AtomicInteger latidos = new AtomicInteger();
+        Captura captura = new Captura() {
+            @Override
+            public void enviar(FlujoCambios.Cambio cambio) throws IOException {
+                enviando.set(true);
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.enviar(cambio);
+                enviando.set(false);
+            }
+
+            @Override
+            public void latido() {
+                intercalado.compareAndSet(false, enviando.get());
+                latidos.incrementAndGet();
+            }
+        };
+        try {
+            conLatidos.suscribir(0, captura);
+            conLatidos.alCambiar(ProductoCambiado.stockAjustado(1L, 1));
+            // Varios períodos de latido con el envío bloqueado
+            Thread.sleep(100);
+            liberar.countDown();
+            captura.esperar(1);
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (latidos.get() == 0 && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+
+            assertThat(latidos.get()).isPositive();
+            assertThat(intercalado).isFalse();
+        } finally {
+            conLatidos.detener();
+        }
+    }
+
+    @Test
+    void dosEscriturasDelMismoProductoSeNumeranEnElOrdenDeSusCommits() throws Exception {
+        Captura captura = new Captura();
+        flujo.suscribir(0, captura);
+        TransactionSynchronization primera = transaccion(ProductoCambiado.stockAjustado(1L, 1));
+        TransactionSynchronization segunda = transaccion(ProductoCambiado.stockAjustado(1L, 2));
+
+        // La primera reserva con la fila bloqueada y confirma; la segunda, que esperaba ese lock,
+        // confirma y publica antes de que la primera llegue a publicar
+        primera.beforeCompletion();
+        segunda.beforeCompletion();
+        segunda.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(flujo.ultimaSecuencia()).isZero();
+
+        primera.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        captura.esperar(2);
+        assertThat(captura.secuencias).containsExactly(1L, 2L);
+        assertThat(captura.deltas).containsExactly(1, 2);
+    }
+
+    @Test
+    void unaTransaccionRevertidaDespuesDeReservarNoFrenaNiSeEnvia() throws Exception {
+        Captura captura = new Captura();
+        flujo.suscribir(0, captura);
+        TransactionSynchronization revertida = transaccion(ProductoCambiado.stockAjustado(1L, 1));
+        TransactionSynchronization confirmada = transaccion(ProductoCambiado.stockAjustado(2L, 1));
+
+        revertida.beforeCompletion();
+        confirmada.beforeCompletion();
+        confirmada.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        revertida.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        captura.esperar(1);
+        assertThat(captura.secuencias).containsExactly(2L);
+        assertThat(flujo.ultimaSecuencia()).isEqualTo(2);
+        publicar(1);
+        captura.esperarHasta(3);
+        assertThat(captura.secuencias).containsExactly(2L, 3L);
+    }
+
+    // Publica los eventos dentro de una transacción simulada y devuelve su sincronización, para
+    // disparar a mano el antes y el después del commit
+    private TransactionSynchronization transaccion(ProductoCambiado... eventos) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (ProductoCambiado evento : eventos) {
+                flujo.alCambiar(evento);
+            }
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+            return TransactionSynchronizationManager.getSynchronizations().get(0);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void publicar(int cantidad) {
+        long primero = flujo.ultimaSecuencia() + 1;
+        for (long id = primero; id < primero + cantidad; id++) {
+            flujo.alCambiar(ProductoCambiado.stockAjustado(id, 1));
+        }
+    }
+
+    private static class Captura implements FlujoCambios.Destino {
+        final List<Long> secuencias = new CopyOnWriteArrayList<>();
+        final List<Integer> deltas = new CopyOnWriteArrayList<>();
+        final List<Long> desbordes = new CopyOnWriteArrayList<>();
+        final CountDownLatch cerrada = new CountDownLatch(1);
+
+        @Override
+        public void enviar(FlujoCambios.Cambio cambio) throws IOException {
+            deltas.add(cambio.evento().delta());
+            secuencias.add(cambio.secuencia());
+        }
+
+        @Override
+        public void desbordado(long primeraDisponible) {
+            desbordes.add(primeraDisponible);
+        }
+
+        @Override
+        public void latido() {
+        }
+
+        @Override
+        public void cerrar() {
+            cerrada.countDown();
+        }
+
+        void esperar(int cantidad) throws InterruptedException {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (secuencias.size() < cantidad && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            assertThat(secuencias).hasSizeGreaterThanOrEqualTo(cantidad);
+        }
+
+        void esperarHasta(long secuencia) throws InterruptedException {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!secuencias.contains(secuencia) && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            assertThat(secuencias).contains(secuencia);
+        }
+    }
+}
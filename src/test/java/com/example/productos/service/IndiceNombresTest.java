@@ -0,0 +1,87 @@
+package com.example.productos.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sin contexto de Spring ni base de datos: los cambios se aplican llamando directamente al listener
+class IndiceNombresTest {
+
+    private final IndiceNombres indice = new IndiceNombres(null, null, 10_000);
+
+    @Test
+    void sugierePorComienzoDePalabraSinDistinguirMayusculasNiTildes() {
+        indice.alCambiar(cambio(1L, "Lámpara LED"));
+        indice.alCambiar(cambio(2L, "Router WiFi"));
+        indice.alCambiar(cambio(3L, "Ledger contable"));
+
+        assertThat(nombres(indice.sugerir("LAMP", 10))).containsExactly("Lámpara LED");
+        assertThat(nombres(indice.sugerir("led", 10))).containsExactly("Lámpara LED", "Ledger contable");
+        assertThat(nombres(indice.sugerir("router wi", 10))).containsExactly("Router WiFi");
+        assertThat(indice.sugerir("uter", 10)).isEmpty();
+        assertThat(indice.sugerir("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void respetaElLimiteYNoRepiteProductos() {
+        indice.alCambiar(cambio(1L, "Mesa mesa mesa"));
+        for (long id = 2; id <= 20; id++) {
+            indice.alCambiar(cambio(id, "Mesa " + id));
+        }
+        List<Sugerencia> sugerencias = indice.sugerir("mesa", 5);
+        assertThat(sugerencias).hasSize(5).extracting(Sugerencia::id).doesNotHaveDuplicates();
+        assertThatThrownBy(() -> indice.sugerir("mesa", IndiceNombres.LIMITE_MAXIMO + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void renombrarYEliminarActualizanLasSugerencias() {
+        indice.alCambiar(cambio(1L, "Silla"));
+        indice.alCambiar(cambio(1L, "Banqueta"));
+        assertThat(indice.sugerir("sil", 10)).isEmpty();
+        assertThat(indice.sugerir("ban", 10)).containsExactly(new Sugerencia(1L, "Banqueta"));
+
+        indice.alCambiar(ProductoCambiado.eliminado(1L));
+        assertThat(indice.sugerir("ban", 10)).isEmpty();
+        assertThat(indice.productosIndexados()).isZero();
+    }
+
+    @Test
+    void losCambiosQueNoTocanElNombreNoGeneranPendientes() {
+        indice.alCambiar(cambio(1L, "Silla"));
+        int pendientes = indice.pendientes();
+        indice.alCambiar(cambio(1L, "Silla"));
+        indice.alCambiar(ProductoCambiado.stockAjustado(1L, -1));
+        assertThat(indice.pendientes()).isEqualTo(pendientes);
+        assertThat(indice.sugerir("sil", 10)).containsExactly(new Sugerencia(1L, "Silla"));
+    }
+
+    @Test
+    void compactaLosPendientesSinPerderCambios() throws Exception {
+        IndiceNombres chico = new IndiceNombres(null, null, 3);
+        for (long id = 1; id <= 10; id++) {
+            chico.alCambiar(cambio(id, "Producto " + id));
+        }
+        chico.alCambiar(cambio(4L, "Renombrado"));
+        chico.alCambiar(ProductoCambiado.eliminado(5L));
+
+        // La compactación corre en segundo plano y deja como mucho "max-pendientes" cambios sin compactar
+        for (int intento = 0; intento < 100 && chico.pendientes() > 3; intento++) {
+            Thread.sleep(20);
+        }
+        assertThat(chico.productosIndexados()).isEqualTo(9);
+        assertThat(nombres(chico.sugerir("producto", 50))).hasSize(8).doesNotContain("Producto 4", "Producto 5");
+        assertThat(nombres(chico.sugerir("renom", 10))).containsExactly("Renombrado");
+    }
+
+    private static ProductoCambiado cambio(long id, String nombre) {
+        return new ProductoCambiado(ProductoCambiado.Tipo.ACTUALIZADO, id, nombre, null, null, null, null);
+    }
+
+    private static List<String> nombres(List<Sugerencia> sugerencias) {
+        return sugerencias.stream().map(Sugerencia::nombre).toList();
+    }
+}
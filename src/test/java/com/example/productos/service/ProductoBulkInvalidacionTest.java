@@ -0,0 +1,58 @@
+package com.example.productos.service;
+
+import com.example.productos.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sin @Transactional: cada lote confirma su propia transacción y la invalidación corre tras el commit
+@SpringBootTest(properties = {
+        "productos.bulk.tamano-lote=2",
+        "productos.salida.despachador.habilitado=false",
+        "spring.datasource.url=jdbc:h2:mem:bulkinvalidacion;DB_CLOSE_DELAY=-1;MODE=LEGACY"
+})
+class ProductoBulkInvalidacionTest {
+
+    @Autowired
+    private ProductoBulkService bulkService;
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private ProductoRepository repository;
+
+    private Long id;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteById(id);
+        repository.findByNombre("Bulk Nuevo").ifPresent(repository::delete);
+    }
+
+    @Test
+    void unStreamQueFallaDejaInvalidadosLosLotesYaConfirmados() {
+        id = service.crear("Bulk Cacheado", new BigDecimal("10.00"), 1).getId();
+        assertThat(service.obtenerPorId(id).getPrecio()).isEqualByComparingTo("10.00");
+        assertThat(service.obtenerPorNombre("Bulk Cacheado").getStock()).isEqualTo(1);
+
+        Iterator<ProductoBulkItem> items = Stream.<Supplier<ProductoBulkItem>>of(
+                () -> new ProductoBulkItem("Bulk Cacheado", new BigDecimal("20.00"), 5),
+                () -> new ProductoBulkItem("Bulk Nuevo", new BigDecimal("1.00"), 1),
+                () -> { throw new IllegalStateException("JSON cortado"); })
+                .map(Supplier::get).iterator();
+
+        assertThatThrownBy(() -> bulkService.procesar(items)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(service.obtenerPorId(id).getPrecio()).isEqualByComparingTo("20.00");
+        assertThat(service.obtenerPorId(id).getStock()).isEqualTo(5);
+        assertThat(service.obtenerPorNombre("Bulk Cacheado").getStock()).isEqualTo(5);
+    }
+}
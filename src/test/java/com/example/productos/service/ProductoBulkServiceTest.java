@@ -0,0 +1,75 @@
+package com.example.productos.service;
+
+import com.example.productos.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "productos.bulk.tamano-lote=2")
+@Transactional
+class ProductoBulkServiceTest {
+
+    @Autowired
+    private ProductoBulkService bulkService;
+    @Autowired
+    private ProductoRepository repository;
+
+    @Test
+    void procesaVariosLotesManteniendoElOrden() {
+        List<ProductoBulkItem> items = List.of(
+                new ProductoBulkItem("Bulk A", new BigDecimal("10.00"), 1),
+                new ProductoBulkItem("Bulk B", new BigDecimal("20.00"), 2),
+                new ProductoBulkItem("Bulk C", new BigDecimal("30.00"), 3),
+                new ProductoBulkItem("Bulk D", new BigDecimal("40.00"), 4),
+                new ProductoBulkItem("Bulk E", new BigDecimal("50.00"), 5));
+
+        List<ResultadoBulk> resultados = bulkService.procesar(items.iterator());
+
+        assertThat(resultados).extracting(ResultadoBulk::indice).containsExactly(0, 1, 2, 3, 4);
+        assertThat(resultados).extracting(ResultadoBulk::estado).containsOnly(ResultadoBulk.Estado.CREADO);
+        assertThat(repository.findByNombreIn(List.of("Bulk A", "Bulk C", "Bulk E"))).hasSize(3);
+    }
+
+    @Test
+    void actualizaPorNombreExistente() {
+        List<ResultadoBulk> resultados = bulkService.procesar(List.of(
+                new ProductoBulkItem("Proyector", new BigDecimal("999.00"), 1)).iterator());
+
+        assertThat(resultados.get(0).estado()).isEqualTo(ResultadoBulk.Estado.ACTUALIZADO);
+        assertThat(repository.findByNombre("Proyector").get().getPrecio()).isEqualByComparingTo("999.00");
+    }
+
+    @Test
+    void nombreRepetidoEnElMismoLoteSeActualiza() {
+        List<ResultadoBulk> resultados = bulkService.procesar(List.of(
+                new ProductoBulkItem("Repetido", new BigDecimal("1.00"), 1),
+                new ProductoBulkItem("Repetido", new BigDecimal("2.00"), 2)).iterator());
+
+        assertThat(resultados).extracting(ResultadoBulk::estado)
+                .containsExactly(ResultadoBulk.Estado.CREADO, ResultadoBulk.Estado.ACTUALIZADO);
+        assertThat(resultados.get(0).id()).isEqualTo(resultados.get(1).id());
+        assertThat(repository.findByNombre("Repetido").get().getStock()).isEqualTo(2);
+    }
+
+    @Test
+    void elementosInvalidosNoDetienenElLote() {
+        List<ResultadoBulk> resultados = bulkService.procesar(List.of(
+                new ProductoBulkItem(null, new BigDecimal("1.00"), 1),
+                new ProductoBulkItem("SinPrecio", null, 1),
+                new ProductoBulkItem("StockNegativo", new BigDecimal("1.00"), -1),
+                new ProductoBulkItem("Valido", new BigDecimal("1.00"), 1)).iterator());
+
+        assertThat(resultados).extracting(ResultadoBulk::error).containsExactly(
+                "El nombre es obligatorio",
+                "El precio es obligatorio",
+                "El stock no puede ser negativo",
+                null);
+        assertThat(resultados.get(3).estado()).isEqualTo(ResultadoBulk.Estado.CREADO);
+    }
+}
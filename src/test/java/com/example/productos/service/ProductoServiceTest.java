@@ -1,13 +1,20 @@
 package com.example.productos.service;
 
+import com.example.productos.config.CacheConfig;
 import com.example.productos.domain.Producto;
 import com.example.productos.repository.ProductoRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -19,6 +26,8 @@ class ProductoServiceTest {
     private ProductoService service;
     @Autowired
     private ProductoRepository repository;
+    @Autowired
+    private CacheManager cacheManager;
 
     // Se agrega nuevo test para listar productos
     @Test
@@ -28,6 +37,33 @@ class ProductoServiceTest {
         assertThat(service.listar()).hasSizeGreaterThanOrEqualTo(2);
     }
 
+    @Test
+    void listarPaginaAvanzaPorCursor() {
+        Producto primero = service.crear("Laptop", new BigDecimal("1200.00"), 2);
+        Producto segundo = service.crear("Mouse", new BigDecimal("25.00"), 10);
+
+        List<Producto> pagina = service.listarPagina(primero.getId() - 1, 1);
+        assertThat(pagina).containsExactly(primero);
+        assertThat(service.listarPagina(primero.getId(), 1)).containsExactly(segundo);
+    }
+
+    @Test
+    void listarPaginaConLimiteInvalidoLanzaException() {
+        assertThatThrownBy(() -> service.listarPagina(0, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("limite");
+        assertThatThrownBy(() -> service.listarPagina(0, ProductoService.LIMITE_MAXIMO + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void recorrerEntregaTodosLosProductosEnOrden() {
+        Producto creado = service.crear("Parlante", new BigDecimal("80.00"), 6);
+        List<Long> ids = new ArrayList<>();
+        service.recorrer(0, p -> ids.add(p.getId()));
+        assertThat(ids).isSorted().contains(creado.getId());
+    }
+
     @Test
     void crearYObtenerProducto() {
         Producto creado = service.crear("Monitor", new BigDecimal("599.90"), 3);
@@ -151,4 +187,142 @@ class ProductoServiceTest {
         assertThatThrownBy(() -> service.obtenerPorId(creado.getId()))
                 .isInstanceOf(NotFoundException.class);
     }
+
+    @Test
+    void actualizarConVersionObsoletaLanzaException() {
+        Producto creado = service.crear("Proyector 4K", new BigDecimal("900.00"), 2);
+        Producto actualizado = service.actualizar(creado.getId(), "Proyector 4K", new BigDecimal("850.00"), 2, 0L);
+        assertThat(actualizado.getVersion()).isEqualTo(1L);
+
+        assertThatThrownBy(() -> service.actualizarParcial(creado.getId(), null, new BigDecimal("1.00"), null, 0L))
+                .isInstanceOf(PrecondicionFallidaException.class)
+                .hasMessageContaining("versión");
+        assertThat(service.obtenerPorId(creado.getId()).getPrecio()).isEqualByComparingTo("850.00");
+    }
+
+    @Test
+    void eliminarConVersionObsoletaLanzaException() {
+        Producto creado = service.crear("Lector", new BigDecimal("15.00"), 2);
+        assertThatThrownBy(() -> service.eliminar(creado.getId(), 7L))
+                .isInstanceOf(PrecondicionFallidaException.class);
+        assertThatThrownBy(() -> service.eliminar(999L, 0L))
+                .isInstanceOf(NotFoundException.class);
+        service.eliminar(creado.getId(), 0L);
+        assertThat(repository.findById(creado.getId())).isEmpty();
+    }
+
+    @Test
+    void obtenerVariosRespetaElOrdenPedidoYMarcaLosInexistentes() {
+        Producto teclado = service.crear("Teclado", new BigDecimal("60.00"), 3);
+        Producto mouse = service.crear("Mouse", new BigDecimal("25.00"), 10);
+
+        List<ResultadoMget> resultados = service.obtenerVarios(List.of(mouse.getId(), 999_999L, teclado.getId(), mouse.getId()));
+
+        assertThat(resultados).extracting(ResultadoMget::id)
+                .containsExactly(mouse.getId(), 999_999L, teclado.getId(), mouse.getId());
+        assertThat(resultados).extracting(ResultadoMget::encontrado).containsExactly(true, false, true, true);
+        assertThat(resultados.get(0).producto().getNombre()).isEqualTo("Mouse");
+        assertThat(resultados.get(1).producto()).isNull();
+        assertThat(resultados.get(2).producto().getNombre()).isEqualTo("Teclado");
+    }
+
+    @Test
+    void obtenerVariosRechazaMasIdsQueElTopeONulos() {
+        List<Long> demasiados = new ArrayList<>();
+        for (long i = 1; i <= 1001; i++) {
+            demasiados.add(i);
+        }
+        assertThatThrownBy(() -> service.obtenerVarios(demasiados))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("1000");
+        assertThatThrownBy(() -> service.obtenerVarios(Arrays.asList(1L, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.obtenerVarios(List.of())).isEmpty();
+    }
+
+    // Pruebas de la caché de lectura (Caffeine) delante de obtenerPorId y obtenerPorNombre
+    @Test
+    void obtenerPorIdSeSirveDesdeLaCache() {
+        Producto creado = service.crear("Consola", new BigDecimal("399.00"), 2);
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(CacheConfig.PRODUCTOS);
+        long aciertos = cache.getNativeCache().stats().hitCount();
+
+        Producto primero = service.obtenerPorId(creado.getId());
+        Producto segundo = service.obtenerPorId(creado.getId());
+
+        assertThat(segundo).isSameAs(primero);
+        assertThat(cache.getNativeCache().stats().hitCount()).isEqualTo(aciertos + 1);
+    }
+
+    @Test
+    void obtenerVariosUsaYCompletaLaCache() {
+        Producto cacheado = service.crear("Webcam", new BigDecimal("55.00"), 2);
+        Producto leido = service.crear("Micrófono", new BigDecimal("75.00"), 2);
+        Producto enCache = service.obtenerPorId(cacheado.getId());
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+
+        List<ResultadoMget> resultados = service.obtenerVarios(List.of(cacheado.getId(), leido.getId()));
+
+        assertThat(resultados.get(0).producto()).isSameAs(enCache);
+        assertThat(cache.get(leido.getId(), Producto.class)).isSameAs(resultados.get(1).producto());
+    }
+
+    @Test
+    void actualizarRefrescaLaCache() {
+        Producto creado = service.crear("Disco", new BigDecimal("80.00"), 4);
+        service.obtenerPorId(creado.getId());
+
+        service.actualizar(creado.getId(), "Disco SSD", new BigDecimal("95.00"), 4, null);
+        assertThat(service.obtenerPorId(creado.getId()).getPrecio()).isEqualByComparingTo("95.00");
+
+        service.actualizarParcial(creado.getId(), null, new BigDecimal("90.00"), null);
+        assertThat(service.obtenerPorId(creado.getId()).getPrecio()).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void actualizarInvalidoNoModificaElValorCacheado() {
+        Producto creado = service.crear("Memoria", new BigDecimal("45.00"), 9);
+        Producto cacheado = service.obtenerPorId(creado.getId());
+
+        assertThatThrownBy(() -> service.actualizar(creado.getId(), "Otro", new BigDecimal("-1.00"), 9, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.actualizarParcial(creado.getId(), "Otro", null, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(cacheado.getNombre()).isEqualTo("Memoria");
+        assertThat(service.obtenerPorId(creado.getId()).getPrecio()).isEqualByComparingTo("45.00");
+    }
+
+    @Test
+    void eliminarInvalidaLaCache() {
+        Producto creado = service.crear("Fuente", new BigDecimal("70.00"), 3);
+        service.obtenerPorId(creado.getId());
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        assertThat(cache.get(creado.getId())).isNotNull();
+
+        service.eliminar(creado.getId());
+
+        assertThat(cache.get(creado.getId())).isNull();
+        assertThatThrownBy(() -> service.obtenerPorId(creado.getId()))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void obtenerPorNombreSeCacheaYSeInvalidaAlActualizar() {
+        Producto creado = service.crear("Tarjeta", new BigDecimal("30.00"), 1);
+        service.obtenerPorNombre("Tarjeta");
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE);
+        assertThat(cache.get("Tarjeta")).isNotNull();
+
+        service.actualizarParcial(creado.getId(), null, new BigDecimal("35.00"), null);
+
+        assertThat(cache.get("Tarjeta")).isNull();
+        assertThat(service.obtenerPorNombre("Tarjeta").getPrecio()).isEqualByComparingTo("35.00");
+    }
+
+    @Test
+    void obtenerPorNombreNoCacheaAusencias() {
+        assertThatThrownBy(() -> service.obtenerPorNombre("Inexistente")).isInstanceOf(NotFoundException.class);
+        assertThat(cacheManager.getCache(CacheConfig.PRODUCTOS_POR_NOMBRE).get("Inexistente")).isNull();
+    }
 }
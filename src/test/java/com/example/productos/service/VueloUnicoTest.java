@@ -0,0 +1,154 @@
+package com.example.productos.service;
+
+import com.example.productos.domain.Producto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sin cachés y sin @Transactional (dentro de una transacción no se comparte). ConsultasRetenidas
+// cuenta los SELECT sobre producto y, con la compuerta cerrada, retiene el primero: así todas las
+// peticiones llegan mientras la consulta sigue en curso
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:vuelo;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+        "spring.cache.type=none",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "productos.salida.despachador.habilitado=false",
+        "productos.lecturas.espera=2s"
+})
+@Import(ConsultasRetenidas.Configuracion.class)
+class VueloUnicoTest {
+
+    private static final int PETICIONES = 32;
+
+    @Autowired
+    private ProductoService service;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private ConsultasRetenidas consultas;
+
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Long> creados = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        consultas.abrir();
+        hilos.shutdownNow();
+        creados.forEach(service::eliminar);
+    }
+
+    @Test
+    void peticionesSimultaneasDelMismoIdHacenUnaSolaConsulta() throws Exception {
+        Long id = crear("Vuelo Oferta");
+
+        List<Future<Producto>> respuestas = simultaneas("porId", () -> service.obtenerPorId(id));
+
+        assertThat(consultas.ejecutadas.get()).isEqualTo(1);
+        for (Future<Producto> respuesta : respuestas) {
+            assertThat(respuesta.get().getNombre()).isEqualTo("Vuelo Oferta");
+        }
+    }
+
+    @Test
+    void todasRecibenElNotFoundDeLaConsultaCompartida() throws Exception {
+        List<Future<Producto>> respuestas = simultaneas("porId", () -> service.obtenerPorId(987_654L));
+
+        assertThat(consultas.ejecutadas.get()).isEqualTo(1);
+        for (Future<Producto> respuesta : respuestas) {
+            assertThatThrownBy(respuesta::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(NotFoundException.class);
+        }
+    }
+
+    @Test
+    void laBusquedaPorNombreTambienSeComparte() throws Exception {
+        crear("Vuelo Por Nombre");
+
+        List<Future<Producto>> respuestas = simultaneas("porNombre", () -> service.obtenerPorNombre("Vuelo Por Nombre"));
+
+        assertThat(consultas.ejecutadas.get()).isEqualTo(1);
+        for (Future<Producto> respuesta : respuestas) {
+            assertThat(respuesta.get().getNombre()).isEqualTo("Vuelo Por Nombre");
+        }
+    }
+
+    @Test
+    void quienEsperaMasQueElLimiteRecibeEsperaAgotada() throws Exception {
+        Long id = crear("Vuelo Lento");
+        consultas.cerrar();
+        Future<Producto> primera = hilos.submit(() -> service.obtenerPorId(id));
+        consultas.esperarRetenida();
+
+        assertThatThrownBy(() -> service.obtenerPorId(id)).isInstanceOf(EsperaAgotadaException.class);
+
+        consultas.abrir();
+        assertThat(primera.get(10, TimeUnit.SECONDS).getNombre()).isEqualTo("Vuelo Lento");
+    }
+
+    @Test
+    void quienLlegaDespuesDeUnBorradoNoSeSumaALaConsultaAnterior() throws Exception {
+        Long id = service.crear("Vuelo Borrado", new BigDecimal("10.00"), 1).getId();
+        consultas.cerrar();
+        Future<Producto> anterior = hilos.submit(() -> service.obtenerPorId(id));
+        consultas.esperarRetenida();
+
+        service.eliminar(id);
+
+        assertThatThrownBy(() -> service.obtenerPorId(id)).isInstanceOf(NotFoundException.class);
+        assertThat(consultas.ejecutadas.get()).isEqualTo(2);
+        consultas.abrir();
+        assertThatThrownBy(() -> anterior.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(NotFoundException.class);
+    }
+
+    // Retiene la primera consulta, lanza las PETICIONES y la suelta cuando las demás ya la están esperando
+    private List<Future<Producto>> simultaneas(String consulta, Supplier<Producto> lectura) throws Exception {
+        double antes = compartidas(consulta);
+        consultas.cerrar();
+        List<Future<Producto>> respuestas = new ArrayList<>(PETICIONES);
+        for (int i = 0; i < PETICIONES; i++) {
+            respuestas.add(hilos.submit(lectura::get));
+        }
+        consultas.esperarRetenida();
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (compartidas(consulta) < antes + PETICIONES - 1 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        assertThat(compartidas(consulta)).isEqualTo(antes + PETICIONES - 1);
+        consultas.abrir();
+        for (Future<Producto> respuesta : respuestas) {
+            try {
+                respuesta.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException ignorada) {
+                // Cada prueba revisa el resultado
+            }
+        }
+        return respuestas;
+    }
+
+    private double compartidas(String consulta) {
+        return registry.get("productos.lecturas.compartidas").tag("consulta", consulta).counter().count();
+    }
+
+    private Long crear(String nombre) {
+        Long id = service.crear(nombre, new BigDecimal("10.00"), 1).getId();
+        creados.add(id);
+        return id;
+    }
+}